@@ -0,0 +1,47 @@
+package Benchmarks;
+
+import Model.Map;
+
+/**
+ * Times Enemy phases on a large, crowded floor,
+ * with Enemies planning one at a time and in parallel,
+ * and with every Enemy awake or far ones dormant.
+ * <p></p>
+ * To run, from /src:
+ * <pre>
+ * javac Benchmarks/EnemyPlanningBenchmark.java
+ * java Benchmarks.EnemyPlanningBenchmark [enemies] [size] [turns]
+ * </pre>
+ */
+public class EnemyPlanningBenchmark {
+    public static void main(String[] args) {
+        int enemies = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int turns = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        System.out.println(enemies + " enemies, " + size + "x" + size + ", "
+                + turns + " turns, " + Runtime.getRuntime().availableProcessors() + " cpus");
+
+        for (int run = 0; run < 8; run++) {
+            boolean parallel = run % 2 == 1;
+            boolean dormant = run % 4 >= 2;
+            Map map = new Map(size, size, 1);
+            map.nextFloor();
+            int added = map.addEnemies(enemies);
+            map.setParallelPlanning(parallel);
+            map.setWakeRadius(dormant ? map.getWakeRadius() : Integer.MAX_VALUE);
+            map.setLegacyLogging(false);
+
+            long start = System.nanoTime();
+            int played = 0;
+            for (; played < turns && map.getFloor() == 1; played++) {
+                map.endTurn();
+            }
+            double ms = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("%-8s %-7s %4d enemies  %8.2f ms/turn  %s%n",
+                    parallel ? "parallel" : "serial", dormant ? "dormant" : "awake", added,
+                    ms / Math.max(1, played), map.getStatistics());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Benchmarks;
+
+import Model.Enemy;
+import Model.EntityStore;
+import Model.EntityView;
+import Model.Map;
+import Model.Position;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compares read passes over the Enemies of a Map with 10,000 of them,
+ * laid out three ways:
+ * <ul>
+ *     <li>loose: copies of the Enemies, each with stats of its own,
+ *     as every Entity had before the store</li>
+ *     <li>handles: the Map's own Enemies, read through their views,
+ *     which are handles over slots of one store</li>
+ *     <li>columns: the columns of a store holding the same stats,
+ *     scanned in order</li>
+ * </ul>
+ * Each tick runs the same two passes on every layout: AI finds the
+ * healthy Enemies within the wake radius of a Player, and rendering
+ * sums the health bars.
+ * <p></p>
+ * To run, from /src:
+ * <pre>
+ * javac Benchmarks/EntityStoreBenchmark.java
+ * java Benchmarks.EntityStoreBenchmark [enemies] [ticks]
+ * </pre>
+ */
+public class EntityStoreBenchmark {
+    /** The wake radius of the Map, in tiles. */
+    private static final int RADIUS = 14;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        int size = (int) Math.sqrt(count * 9.0) + 20;
+        Map map = new Map(size, size, 1L);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(count);
+
+        List<Enemy> loose = map.getEnemies();
+        List<EntityView> handles = map.getEnemyViews();
+        Position[] players = map.getPlayerViews().stream()
+                .map(EntityView::getPOS).toArray(Position[]::new);
+        EntityStore store = new EntityStore(handles.size());
+        for (EntityView enemy : handles) {
+            int slot = store.allocate(enemy.getID());
+            store.setmaxHP(slot, enemy.getmaxHP());
+            store.setHP(slot, enemy.getHP());
+            store.setLVL(slot, enemy.getLVL());
+            store.setPOS(slot, enemy.getPOS());
+        }
+
+        System.out.println(handles.size() + " enemies on a " + size + "x" + size + " Map, " + ticks + " ticks");
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            double looseSum = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                looseSum += tick(loose, players);
+            }
+            long looseNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double handlesSum = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                handlesSum += tick(handles, players);
+            }
+            long handlesNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double columnsSum = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                columnsSum += tick(store, players);
+            }
+            long columnsNanos = System.nanoTime() - start;
+
+            double n = (double) ticks * handles.size();
+            System.out.printf("loose %5.2f  handles %5.2f  columns %5.2f ns/enemy/tick  "
+                            + "(checksums %.0f %.0f %.0f)%n",
+                    looseNanos / n, handlesNanos / n, columnsNanos / n, looseSum, handlesSum, columnsSum);
+        }
+    }
+
+    /** One tick over Enemies, read one at a time. */
+    private static double tick(List<? extends EntityView> enemies, Position[] players) {
+        // AI: healthy Enemies near a Player are awake
+        int awake = 0;
+        for (EntityView enemy : enemies) {
+            if (enemy.getHP() > enemy.getmaxHP() * 0.3 && near(enemy.getPOS(), players)) {
+                awake++;
+            }
+        }
+
+        // rendering: health bars and levels
+        double bars = 0;
+        for (EntityView enemy : enemies) {
+            bars += enemy.getHP() / enemy.getmaxHP() + enemy.getLVL();
+        }
+        return awake + bars;
+    }
+
+    /** The same tick over the columns of a store. */
+    private static double tick(EntityStore store, Position[] players) {
+        int n = store.size();
+        BitSet near = new BitSet(n);
+        store.markWithin(players, RADIUS, near);
+        int awake = 0;
+        for (int slot = near.nextSetBit(0); slot >= 0; slot = near.nextSetBit(slot + 1)) {
+            if (store.getHP(slot) > store.getmaxHP(slot) * 0.3) {
+                awake++;
+            }
+        }
+
+        double bars = 0;
+        for (int slot = 0; slot < n; slot++) {
+            bars += store.getHP(slot) / store.getmaxHP(slot) + store.getLVL(slot);
+        }
+        return awake + bars;
+    }
+
+    /** @return True if a Position is within the wake radius of a Player. */
+    private static boolean near(Position p, Position[] players) {
+        for (Position player : players) {
+            if (p.distanceTo(player) <= RADIUS) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
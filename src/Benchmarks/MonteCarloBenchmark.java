@@ -0,0 +1,134 @@
+package Benchmarks;
+
+import Model.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plays headless matches between scripted Players and Enemies,
+ * once with greedy Enemies and once with a MonteCarloBrain,
+ * starting each pair of matches from forks of the same floor.
+ * <p></p>
+ * Players attack the weakest Enemy in reach, or else move towards
+ * the nearest Enemy, and never take the stairs.
+ * <p></p>
+ * To run, from /src:
+ * <pre>
+ * javac Benchmarks/MonteCarloBenchmark.java
+ * java Benchmarks.MonteCarloBenchmark [matches] [budget ms] [turns]
+ * </pre>
+ */
+public class MonteCarloBenchmark {
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int turns = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        System.out.println(matches + " matches, " + budget + " ms budget, "
+                + turns + " turns, " + Runtime.getRuntime().availableProcessors() + " cpus");
+
+        MonteCarloBrain brain = new MonteCarloBrain(budget);
+        Result greedy = new Result("greedy");
+        Result mcts = new Result("mcts");
+
+        for (int match = 0; match < matches; match++) {
+            Map start = new Map(30, 20, match);
+            start.setLegacyLogging(false);
+            start.nextFloor();
+            start.addEnemies(8);
+
+            play(start.fork(), null, turns, greedy);
+            play(start.fork(), brain, turns, mcts);
+        }
+
+        System.out.println(greedy.report(matches));
+        System.out.println(mcts.report(matches));
+        System.out.printf("%.0f playouts/s per search thread, %d playouts in total%n",
+                brain.getPlayoutsPerSecond(), brain.getPlayouts());
+    }
+
+    /** Plays one match, adding its outcome to the Result. */
+    private static void play(Map map, EnemyBrain brain, int turns, Result result) {
+        map.setEnemyBrain(brain);
+        if (brain instanceof MonteCarloBrain) {
+            map.setDecisionDeadline(((MonteCarloBrain) brain).getBudgetMillis() + 50);
+        }
+
+        double startHP = totalHP(map.getPlayerViews());
+        int startEnemies = map.getEnemyViews().size();
+        int startPlayers = map.getPlayerViews().size();
+        long nanos = 0;
+
+        for (int turn = 0; turn < turns && !map.getPlayerViews().isEmpty()
+                && !map.getEnemyViews().isEmpty(); turn++) {
+            for (EntityView player : map.getPlayerViews().toArray(new EntityView[0])) {
+                act(map, player);
+            }
+
+            long start = System.nanoTime();
+            map.endTurn();
+            nanos += System.nanoTime() - start;
+            result.turns++;
+        }
+
+        result.damage += startHP - totalHP(map.getPlayerViews());
+        result.playerDeaths += startPlayers - map.getPlayerViews().size();
+        result.enemyDeaths += startEnemies - map.getEnemyViews().size();
+        result.nanos += nanos;
+    }
+
+    /** Attacks the weakest Enemy in reach, or moves towards the nearest. */
+    private static void act(Map map, EntityView player) {
+        Position p = player.getPOS();
+        Set<Position> moves = map.possibleMovesForCharacter(p);
+        moves.removeIf(pos -> map.entityKindAt(pos) == EntityKind.STAIRS);
+
+        List<EntityView> enemies = map.getEnemyViews();
+        EntityView target = enemies.stream()
+                .filter(enemy -> moves.contains(enemy.getPOS()))
+                .min(Comparator.comparingDouble(EntityView::getHP))
+                .orElse(null);
+        if (target != null) {
+            map.processAction(p, target.getPOS());
+            return;
+        }
+
+        EntityView nearest = enemies.stream()
+                .min(Comparator.comparingInt(enemy -> enemy.getPOS().distanceTo(p)))
+                .orElse(null);
+        if (nearest == null) {
+            return;
+        }
+
+        moves.stream()
+                .filter(pos -> map.entityKindAt(pos) == EntityKind.EMPTY)
+                .min(Comparator.comparingInt((Position pos) -> pos.distanceTo(nearest.getPOS()))
+                        .thenComparingInt(pos -> pos.x).thenComparingInt(pos -> pos.y))
+                .ifPresent(pos -> map.processAction(p, pos));
+    }
+
+    private static double totalHP(List<EntityView> entities) {
+        return entities.stream().mapToDouble(entity -> Math.max(0, entity.getHP())).sum();
+    }
+
+    /** The combined outcome of the matches played by one kind of Enemy. */
+    private static final class Result {
+        final String name;
+        double damage;
+        int playerDeaths, enemyDeaths, turns;
+        long nanos;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        String report(int matches) {
+            return String.format("%-7s damage to players %6.1f/match  players lost %4.2f/match"
+                            + "  enemies lost %5.2f/match  %6.2f ms/enemy phase",
+                    name, damage / matches, playerDeaths / (double) matches,
+                    enemyDeaths / (double) matches, nanos / 1e6 / Math.max(1, turns));
+        }
+    }
+}
@@ -58,6 +58,10 @@ public class Display {
 	private Deque<String> backlog = new ArrayDeque<>();
 	private boolean logAnimating = false;
 
+	// the events of the displayed Map, read once per frame
+	private EventRing.Reader events;
+	private final EventRecord record = new EventRecord();
+
 	/**
 	 * Initializes a new Display object.
 	 * @param root The root Group of the Scene.
@@ -67,7 +71,13 @@ public class Display {
 	Display(Group root, int width, int height) {
 		this.root = root;
 
-		Map.logHandler = this::handleLog;
+		// show new events on every frame
+		new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				readEvents();
+			}
+		}.start();
 
 		floors = new ImageView[width][height];
 		entities = new ImageView[width][height];
@@ -179,16 +189,15 @@ public class Display {
 	 * @param highlighted is a set of positions used to draw the move overlay.
 	 */
 	public void drawMapOnScene(Map map, Set<Position> highlighted) {
-		Entity[][] grid = map.getGrid();
-		double[][] visibility = map.getVisibility();
+		GridView grid = map.view();
 
 		for (int x = 0; x < map.getHeight(); x++) {
 			for (int y = 0; y < map.getWidth(); y++) {
-				Entity e = grid[y][x];
+				EntityKind kind = grid.kindAt(y, x);
 				Image newImage = null;
 
 				// reset
-				if (!(e instanceof Player)) {
+				if (kind != EntityKind.PLAYER) {
 					entities[x][y].setOpacity(1);
 				}
 
@@ -200,8 +209,8 @@ public class Display {
 				}
 
 				// process entity
-				if (e instanceof Obstacle) {
-					if (y < map.getWidth() - 1 && grid[y+1][x] instanceof Obstacle) {
+				if (kind == EntityKind.WALL) {
+					if (y < map.getWidth() - 1 && grid.kindAt(y+1, x) == EntityKind.WALL) {
 						newImage = space;
 					}
 					else {
@@ -212,29 +221,29 @@ public class Display {
 						}
 					}
 				}
-				else if (e instanceof Stairs) {
+				else if (kind == EntityKind.STAIRS) {
 					switch (map.getType()) {
 						case TOWER: floors[x][y].setImage(downstairs_tower); break;
 						case CAVE: floors[x][y].setImage(downstairs_cave); break;
 						case DUNGEON: floors[x][y].setImage(downstairs_dungeon); break;
 					}
 				}
-				else if (e instanceof Enemy) {
+				else if (kind == EntityKind.ENEMY) {
 					newImage = green_slime;
 				}
-				else if (e instanceof Player) {
+				else if (kind == EntityKind.PLAYER) {
 					newImage = hero;
 					// fade out players with no moves left
-					double opacity = ((Player) e).getSTM() <= 0 ? 0.5 : 1;
+					double opacity = grid.entityAt(y, x).getSTM() <= 0 ? 0.5 : 1;
 					fadeNodeOpacity(entities[x][y], opacity, 0.2);
 				}
 				entities[x][y].setImage(newImage);
 
 				// fade animations for highlights and shadows
-				double newOpacity = highlighted.contains(new Position(y, x)) ? 1 : 0;
+				double newOpacity = highlighted.contains(Position.of(y, x)) ? 1 : 0;
 				fadeNodeOpacity(highlights[x][y], newOpacity, 0.2);
 
-				double opacity = 1 - visibility[y][x];
+				double opacity = 1 - grid.visibilityAt(y, x);
 				fadeNodeOpacity(shades[x][y], opacity, 0.2);
 				fadeNodeOpacity(covers[x][y], opacity, 0.2);
 			}
@@ -416,6 +425,26 @@ public class Display {
 		}
 	}
 
+	/**
+	 * Shows the events of a Map from now on, in place of those of
+	 * any Map shown before. The Map stops writing to the static log.
+	 * @param map The Map to show the events of.
+	 */
+	public void showEvents(Map map) {
+		map.setLegacyLogging(false);
+		events = map.events().newReader();
+	}
+
+	/** Queues the events posted since the last frame. */
+	private void readEvents() {
+		if (events == null) {
+			return;
+		}
+		while (events.poll(record)) {
+			handleLog(record.getMessage());
+		}
+	}
+
 	/** Asynchronous animation handler for Map logs. */
 	private void handleLog(String log) {
 		if (log != null) {
@@ -473,7 +502,7 @@ public class Display {
 	 * @param map The Map associated with the Display.
 	 * @param ent The Entity to display information for.
 	 */
-	public void drawInfoOnScene(Map map, Entity ent) {
+	public void drawInfoOnScene(Map map, EntityView ent) {
 		// no entity to display info for
 		if (ent == null) {
 			fadeNodeOpacity(statusDisplay, 0, 0.3);
@@ -482,19 +511,19 @@ public class Display {
 
 		fadeNodeOpacity(statusDisplay, 1, 0.3);
 
-		if (ent instanceof Obstacle) {
+		if (ent.getKind() == EntityKind.WALL) {
 			portrait.setImage(wall);
 			nameText.setText("Wall");
 		}
-		else if (ent instanceof Stairs) {
+		else if (ent.getKind() == EntityKind.STAIRS) {
 			portrait.setImage(upstairs);
 			nameText.setText("Portal");
 		}
-		else if (ent instanceof Enemy) {
+		else if (ent.getKind() == EntityKind.ENEMY) {
 			portrait.setImage(green_slime);
 			nameText.setText("Green Slime");
 		}
-		else if (ent instanceof Player) {
+		else if (ent.getKind() == EntityKind.PLAYER) {
 			portrait.setImage(hero);
 			nameText.setText("Generic Shifty-eyed Hero");
 		}
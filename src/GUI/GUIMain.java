@@ -15,7 +15,6 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -86,18 +85,20 @@ public class GUIMain extends Application {
 
 	/** Generates a new map and resets variables. */
 	private void reset() {
+		// reset variables
+        map = new Map(MAP_HEIGHT, MAP_WIDTH);
+		display.showEvents(map);
+		
 		// control messages
-		Map.logMessage("\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n");
-		Map.logMessage("Mouse controls:\nClick to select\n" +
+		map.events().post("\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n");
+		map.events().post("Mouse controls:\nClick to select\n" +
 				"Right-click to end turn");
-		Map.logMessage("Keyboard controls:\nTAB to select Player\n" +
-				"WASD to move\nSPACEBAR to end turn");
+		map.events().post("Keyboard controls:\nTAB to select Player\n" +
+				"WASD to move\nSPACEBAR to end turn\nZ to undo");
 		
-		// reset variables
-        map = new Map(MAP_HEIGHT, MAP_WIDTH);
 		map.nextFloor();
 		selected = null;
-		possibleMoves = new HashSet<>();
+		possibleMoves = new PositionSet();
 
 		// display once
 		redrawMap();
@@ -129,6 +130,14 @@ public class GUIMain extends Application {
 			case TAB:
                 selectNextPlayer();
 				break;
+				
+			case Z: // undo the last action or turn
+				if (map.getCommandCount() > 0) {
+					map.rewindTo(map.getCommandCount() - 1);
+					selected = null;
+					redrawMap();
+				}
+				break;
 			
 			// movement
 			case A: case LEFT: dy = -1; break;
@@ -184,8 +193,7 @@ public class GUIMain extends Application {
 			}
 			// second click: try performing action
 			else {
-				if (map.getPlayers().stream().map(Player::getPOS)
-						.anyMatch(pos::equals)) {
+				if (map.entityKindAt(pos) == EntityKind.PLAYER) {
 					selected = pos.equals(selected) ? null : pos;
 					redrawMap();
 				}
@@ -207,7 +215,7 @@ public class GUIMain extends Application {
 			return false;
 		}
 		
-		boolean nextFloor = map.getGrid()[end.x][end.y] instanceof Stairs;
+		boolean nextFloor = map.entityKindAt(end) == EntityKind.STAIRS;
 		
 		// ask map to process
 		Turn turn = map.processAction(start, end);
@@ -269,11 +277,11 @@ public class GUIMain extends Application {
 	
 	private void redrawInfo() {
 		// check if hovered position is visible
-		if (hover == null || map.getVisibility()[hover.x][hover.y] < 0.1) {
+		if (hover == null || map.visibilityAt(hover) < 0.1) {
 			display.drawInfoOnScene(map, null);
 		}
 		else {
-			display.drawInfoOnScene(map, map.getGrid()[hover.x][hover.y]);
+			display.drawInfoOnScene(map, map.entitySnapshotAt(hover));
 		}
 	}
 
@@ -318,10 +326,10 @@ public class GUIMain extends Application {
 	
 	/** Attempts to select the next available player. */
 	private boolean selectNextPlayer() {
-		List<Player> players = map.getPlayers();
+		List<EntityView> players = map.getPlayerViews();
 		for (int i = 0; i < players.size(); i++) {
 			int index = ++selectHint % players.size();
-			Player player = players.get(index);
+			EntityView player = players.get(index);
 			if (player.getSTM() > 0) {
 				// player found with remaining stamina
 				selected = player.getPOS();
@@ -0,0 +1,61 @@
+package Model;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Enemy decisions off the game thread.
+ * <p></p>
+ * Each decision gets its own thread, so a brain that blocks
+ * never holds up the others. Virtual threads are used when the
+ * running Java has them, and otherwise a cached pool of daemon
+ * threads, which are reused between Enemy phases.
+ */
+public final class AIExecutor {
+    /** The executor shared by every Map. */
+    private static final AIExecutor SHARED = new AIExecutor();
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private AIExecutor() {
+        ExecutorService found;
+        boolean isVirtual;
+        try {
+            // Java 21+, looked up so that older versions still compile
+            found = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            isVirtual = true;
+        }
+        catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            found = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "enemy-ai-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            isVirtual = false;
+        }
+        executor = found;
+        virtual = isVirtual;
+    }
+
+    /** @return The executor shared by every Map. */
+    public static AIExecutor shared() {
+        return SHARED;
+    }
+
+    /** @return True if decisions run on virtual threads. */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Starts a decision on its own thread.
+     * @param decision The decision to run.
+     * @return A Future holding the decision's result.
+     */
+    <T> Future<T> submit(Callable<T> decision) {
+        return executor.submit(decision);
+    }
+}
@@ -0,0 +1,29 @@
+package Model;
+
+/**
+ * An action requested by a Player, for {@code Map.processActions()}.
+ * Actions are immutable, so a batch can be built ahead of time
+ * and sent more than once.
+ */
+public final class Action {
+    /** The Position of the Player acting. */
+    public final Position start;
+    
+    /** The destination of the action: a move, an attack or the stairs. */
+    public final Position end;
+    
+    /**
+     * Creates an Action.
+     * @param start The Position of the Player acting.
+     * @param end The destination of the action.
+     */
+    public Action(Position start, Position end) {
+        this.start = start;
+        this.end = end;
+    }
+    
+    @Override
+    public String toString() {
+        return start + " -> " + end;
+    }
+}
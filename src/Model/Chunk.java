@@ -0,0 +1,93 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A square piece of a ChunkedWorld.
+ * <p></p>
+ * A chunk holds the tile kinds and the explored visibility of its
+ * cells, at index {@code x * size + y} relative to its corner.
+ * A chunk is touched once anything differs from how it was generated.
+ * Untouched chunks can simply be generated again, while touched
+ * chunks are compressed when they are evicted.
+ */
+final class Chunk {
+    /** The tile kind of each cell, as in Grid. */
+    final byte[] tiles;
+
+    /** The highest visibility each cell has had, from 0 to 255. */
+    final byte[] seen;
+
+    /** Whether the chunk differs from how it was generated. */
+    boolean touched;
+
+    /**
+     * Creates a chunk from its tiles, with nothing seen yet.
+     * @param tiles The tile kinds of the chunk.
+     */
+    Chunk(byte[] tiles) {
+        this.tiles = tiles;
+        this.seen = new byte[tiles.length];
+    }
+
+    /** @return The tiles and visibility, deflated. */
+    byte[] compress() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(concat(tiles, seen));
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tiles.length / 8);
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Restores a chunk from {@code compress()}.
+     * @param data The compressed chunk.
+     * @param cells The number of cells in the chunk.
+     * @return The restored, touched chunk.
+     */
+    static Chunk decompress(byte[] data, int cells) {
+        byte[] both = new byte[cells * 2];
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        try {
+            int read = 0;
+            while (read < both.length && !inflater.finished()) {
+                int inflated = inflater.inflate(both, read, both.length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // truncated data would otherwise never finish
+                    throw new IllegalStateException("Corrupt chunk");
+                }
+                read += inflated;
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt chunk", e);
+        }
+        finally {
+            inflater.end();
+        }
+
+        byte[] tiles = new byte[cells];
+        System.arraycopy(both, 0, tiles, 0, cells);
+        Chunk chunk = new Chunk(tiles);
+        System.arraycopy(both, cells, chunk.seen, 0, cells);
+        chunk.touched = true;
+        return chunk;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] both = new byte[a.length + b.length];
+        System.arraycopy(a, 0, both, 0, a.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+}
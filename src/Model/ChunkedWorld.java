@@ -0,0 +1,309 @@
+package Model;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An unbounded cave floor, stored in square chunks.
+ * <p></p>
+ * Unlike Map, which allocates its whole area up front, a
+ * ChunkedWorld only keeps the chunks near its Players in memory.
+ * Chunks are generated from the seed as Players come within
+ * {@code LOAD_RANGE} of them, and chunks more than one chunk away
+ * from every Player are evicted: untouched chunks are dropped, as
+ * they can be generated again, and explored chunks are compressed.
+ * <p></p>
+ * Coordinates may be negative. As the world is unbounded, the
+ * delegate methods treat cells in chunks that are not loaded as
+ * walls, which keeps pathfinding within the loaded area. Chunks
+ * are always loaded far enough around the Players for their
+ * movement and sight, so this never changes a result.
+ */
+public final class ChunkedWorld implements Pathfinding.Delegate {
+    /** The side length of a chunk. */
+    public static final int CHUNK_SIZE = 64;
+
+    /** The range at which Players see. */
+    private static final int SIGHT_RANGE = 7;
+
+    /** How close a Player must come to a chunk for it to be loaded. */
+    private static final int LOAD_RANGE = SIGHT_RANGE + 8;
+
+    /** The seed that chunks are generated from. */
+    private final long seed;
+
+    /** The chunks in memory, by packed chunk coordinates. */
+    private final HashMap<Long, Chunk> loaded = new HashMap<>();
+
+    /** The compressed explored chunks, by packed chunk coordinates. */
+    private final HashMap<Long, byte[]> stored = new HashMap<>();
+
+    /** The Players in the world. */
+    private final List<Player> players = new ArrayList<>();
+
+    /** The number of chunks generated so far, including regenerations. */
+    private long generated = 0;
+
+    /** Creates a ChunkedWorld with a random seed. */
+    public ChunkedWorld() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Creates a ChunkedWorld with three random Players near the origin.
+     * Worlds with the same seed have the same caves and Players.
+     * @param seed The seed that chunks are generated from.
+     */
+    public ChunkedWorld(long seed) {
+        this.seed = seed;
+
+        // the area around the origin is always open
+        Position[] starts = { new Position(0, 0), new Position(1, 0), new Position(0, 1) };
+        SplittableRandom rand = new SplittableRandom(seed ^ 0xD6E8FEB86659FD93L);
+        for (int i = 0; i < starts.length; i++) {
+            Player player = Player.randomPlayer(rand);
+            player.setID(i + 1);
+            player.setPOS(starts[i]);
+            players.add(player);
+        }
+
+        updateChunks();
+        players.forEach(this::updateVisibility);
+    }
+
+    // Public API
+
+    /** @return The seed that chunks are generated from. */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** @return Live, read-only views of the Players in the world. */
+    public List<EntityView> getPlayerViews() {
+        return players.stream().map(Entity::view).collect(Collectors.toList());
+    }
+
+    /** @return The number of chunks in memory. */
+    public int getLoadedChunks() {
+        return loaded.size();
+    }
+
+    /** @return The number of explored chunks kept compressed. */
+    public int getStoredChunks() {
+        return stored.size();
+    }
+
+    /** @return The total size of the compressed chunks, in bytes. */
+    public long getStoredBytes() {
+        return stored.values().stream().mapToLong(data -> data.length).sum();
+    }
+
+    /** @return The number of chunks generated, including regenerations. */
+    public long getGeneratedChunks() {
+        return generated;
+    }
+
+    /**
+     * @param p The Position to check.
+     * @return The kind of the cell, or null if its chunk is not loaded.
+     */
+    public EntityKind entityKindAt(Position p) {
+        Chunk chunk = loaded.get(key(p.x, p.y));
+        if (chunk == null) {
+            return null;
+        }
+        if (chunk.tiles[index(p.x, p.y)] == Grid.WALL) {
+            return EntityKind.WALL;
+        }
+        return playerAt(p) != null ? EntityKind.PLAYER : EntityKind.EMPTY;
+    }
+
+    /**
+     * @param p The Position to check.
+     * @return The highest visibility the cell has had, from 0.0 to 1.0,
+     *         or 0.0 if its chunk is not loaded.
+     */
+    public double visibilityAt(Position p) {
+        Chunk chunk = loaded.get(key(p.x, p.y));
+        return chunk == null ? 0 : (chunk.seen[index(p.x, p.y)] & 0xff) / 255.0;
+    }
+
+    /**
+     * Returns the kinds of the cells in a rectangle of the world.
+     * @param corner The corner of the rectangle with the lowest x and y.
+     * @param width The x-length of the rectangle.
+     * @param height The y-length of the rectangle.
+     * @return A [width][height] array of kinds, relative to the corner.
+     *         Cells in chunks that are not loaded are null.
+     */
+    public EntityKind[][] kindsIn(Position corner, int width, int height) {
+        EntityKind[][] kinds = new EntityKind[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                kinds[x][y] = entityKindAt(Position.of(corner.x + x, corner.y + y));
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * Calculates the possible moves for a Player at a Position.
+     * @param p The Position of the Player.
+     * @return A Set of Positions that the Player can move to.
+     */
+    public Set<Position> possibleMovesForCharacter(Position p) {
+        Player player = playerAt(p);
+        if (player == null || player.getSTM() <= 0) {
+            return new HashSet<>();
+        }
+        return Pathfinding.movementForPosition(this, p, player.getSTM());
+    }
+
+    /**
+     * Moves a Player, loading and evicting chunks around it.
+     * @param p1 The Position of the Player.
+     * @param p2 The Position to move to.
+     * @return A Turn representing the move, or null if it is not possible.
+     */
+    public Turn processAction(Position p1, Position p2) {
+        if (p1 == null || p2 == null || p1.equals(p2)
+                || !possibleMovesForCharacter(p1).contains(p2)) {
+            return null;
+        }
+
+        Player player = playerAt(p1);
+        player.setPOS(p2);
+        updateChunks();
+        updateVisibility(player);
+
+        Turn turn = new Turn();
+        turn.start = p1;
+        turn.end = p2;
+        turn.pathfind(this);
+        player.setSTM(player.getSTM() - turn.path.size() - 1);
+        return turn;
+    }
+
+    /** Ends the turn, restoring the stamina of every Player. */
+    public void endTurn() {
+        players.forEach(player -> player.setSTM(player.getSPD()));
+    }
+
+    // Chunk management
+
+    /**
+     * Loads every chunk within {@code LOAD_RANGE} of a Player,
+     * and evicts chunks more than one chunk away from every Player.
+     */
+    private void updateChunks() {
+        Set<Long> keep = new HashSet<>();
+        for (Player player : players) {
+            Position pos = player.getPOS();
+            int cx = Math.floorDiv(pos.x, CHUNK_SIZE), cy = Math.floorDiv(pos.y, CHUNK_SIZE);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    keep.add(pack(cx + dx, cy + dy));
+                }
+            }
+
+            // load the chunks the Player can reach or see
+            int minX = Math.floorDiv(pos.x - LOAD_RANGE, CHUNK_SIZE);
+            int maxX = Math.floorDiv(pos.x + LOAD_RANGE, CHUNK_SIZE);
+            int minY = Math.floorDiv(pos.y - LOAD_RANGE, CHUNK_SIZE);
+            int maxY = Math.floorDiv(pos.y + LOAD_RANGE, CHUNK_SIZE);
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    load(x, y);
+                }
+            }
+        }
+
+        Iterator<java.util.Map.Entry<Long, Chunk>> it = loaded.entrySet().iterator();
+        while (it.hasNext()) {
+            java.util.Map.Entry<Long, Chunk> entry = it.next();
+            if (!keep.contains(entry.getKey())) {
+                if (entry.getValue().touched) {
+                    stored.put(entry.getKey(), entry.getValue().compress());
+                }
+                it.remove();
+            }
+        }
+    }
+
+    /** Loads a chunk, from storage if it was explored, or else generating it. */
+    private void load(int cx, int cy) {
+        long key = pack(cx, cy);
+        if (loaded.containsKey(key)) {
+            return;
+        }
+
+        byte[] data = stored.remove(key);
+        if (data != null) {
+            loaded.put(key, Chunk.decompress(data, CHUNK_SIZE * CHUNK_SIZE));
+        }
+        else {
+            loaded.put(key, new Chunk(MapGenerator.generateChunk(seed, cx, cy, CHUNK_SIZE)));
+            generated++;
+        }
+    }
+
+    /** Marks the cells a Player can see as explored. */
+    private void updateVisibility(Player player) {
+        Position pos = player.getPOS();
+        for (Position pos2 : Pathfinding.visibility(this, pos, SIGHT_RANGE)) {
+            Chunk chunk = loaded.get(key(pos2.x, pos2.y));
+            if (chunk == null) {
+                continue;
+            }
+
+            // same parabolic opacity curve as Map
+            double opacity = -Math.pow(pos.distanceTo(pos2) / (double) SIGHT_RANGE, 2) + 1.1;
+            int value = (int) (Math.min(1, opacity) * 255);
+            int i = index(pos2.x, pos2.y);
+            if (value > (chunk.seen[i] & 0xff)) {
+                chunk.seen[i] = (byte) value;
+                chunk.touched = true;
+            }
+        }
+    }
+
+    /** @return The Player at a Position, or null. */
+    private Player playerAt(Position p) {
+        for (Player player : players) {
+            if (player.getPOS().equals(p)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /** @return The packed coordinates of the chunk containing a cell. */
+    private static long key(int x, int y) {
+        return pack(Math.floorDiv(x, CHUNK_SIZE), Math.floorDiv(y, CHUNK_SIZE));
+    }
+
+    /** @return Chunk coordinates packed into one key. */
+    private static long pack(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /** @return The index of a cell within its chunk. */
+    private static int index(int x, int y) {
+        return Math.floorMod(x, CHUNK_SIZE) * CHUNK_SIZE + Math.floorMod(y, CHUNK_SIZE);
+    }
+
+    // Interface implementation methods
+
+    @Override
+    public boolean validPosition(Position p) {
+        Chunk chunk = loaded.get(key(p.x, p.y));
+        return chunk != null && chunk.tiles[index(p.x, p.y)] != Grid.WALL
+                && playerAt(p) == null;
+    }
+
+    @Override
+    public boolean transparentPosition(Position p) {
+        Chunk chunk = loaded.get(key(p.x, p.y));
+        return chunk != null && chunk.tiles[index(p.x, p.y)] != Grid.WALL;
+    }
+}
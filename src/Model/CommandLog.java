@@ -0,0 +1,214 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The commands given to a Map, with snapshots to replay them from.
+ * <p></p>
+ * Commands are packed into a byte array. Cells are written as
+ * {@code x * height + y} in a variable-length encoding, so an action
+ * on a small Map takes five bytes, and the end of a turn one byte
+ * plus the moves chosen by brains, which cannot be replayed.
+ * <p></p>
+ * Snapshots are forks of the Map, taken every {@code INTERVAL}
+ * commands and whenever the Map changes in a way that replaying
+ * commands cannot repeat, such as generating a floor.
+ */
+final class CommandLog {
+    /** Opcode of {@code processAction()}, followed by two cells. */
+    static final byte ACTION = 1;
+    /** Opcode of {@code endTurn()}, followed by the brains' moves. */
+    static final byte END_TURN = 2;
+
+    /** The number of commands between periodic snapshots. */
+    static final int INTERVAL = 32;
+
+    /** The state of a Map after a number of commands. */
+    static final class Snapshot {
+        /** The number of commands before the snapshot. */
+        final int index;
+        /** The offset of the next command in the log. */
+        final int offset;
+        /** The fork holding the state, which is never changed. */
+        final Map state;
+
+        Snapshot(int index, int offset, Map state) {
+            this.index = index;
+            this.offset = offset;
+            this.state = state;
+        }
+    }
+
+    private byte[] data = new byte[256];
+    private int length = 0;
+    private int count = 0;
+
+    /** The snapshots, by increasing index. */
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    /** @return The number of commands logged. */
+    int getCount() {
+        return count;
+    }
+
+    /** @return The number of bytes the commands take. */
+    int getBytes() {
+        return length;
+    }
+
+    /** @return The number of snapshots kept. */
+    int getSnapshots() {
+        return snapshots.size();
+    }
+
+    /** @return True if the next command is due a periodic snapshot. */
+    boolean snapshotDue() {
+        return snapshots.isEmpty()
+                || count - snapshots.get(snapshots.size() - 1).index >= INTERVAL;
+    }
+
+    /**
+     * Logs a {@code processAction()}.
+     * @param from The cell of the Player.
+     * @param to The cell of the destination.
+     */
+    void action(int from, int to) {
+        write(ACTION);
+        writeVarint(from);
+        writeVarint(to);
+        count++;
+    }
+
+    /**
+     * Logs an {@code endTurn()}.
+     * @param moves The cells chosen by brains, in the order they were used.
+     * @param size The number of cells.
+     */
+    void endTurn(int[] moves, int size) {
+        write(END_TURN);
+        writeVarint(size);
+        for (int i = 0; i < size; i++) {
+            writeVarint(moves[i]);
+        }
+        count++;
+    }
+
+    /**
+     * Keeps a snapshot of the state after the commands so far,
+     * replacing any other snapshot taken after the same command.
+     * @param state A fork of the Map, which must never be changed.
+     */
+    void snapshot(Map state) {
+        Snapshot snapshot = new Snapshot(count, length, state);
+        int last = snapshots.size() - 1;
+        if (last >= 0 && snapshots.get(last).index == count) {
+            snapshots.set(last, snapshot);
+        }
+        else {
+            snapshots.add(snapshot);
+        }
+    }
+
+    /**
+     * @param index A number of commands.
+     * @return The latest snapshot taken no later than the index.
+     */
+    Snapshot snapshotAt(int index) {
+        Snapshot found = snapshots.get(0);
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.index > index) {
+                break;
+            }
+            found = snapshot;
+        }
+        return found;
+    }
+
+    /**
+     * Forgets the commands from an index on, and the snapshots after it.
+     * @param index The number of commands to keep.
+     * @param offset The offset of the first command forgotten.
+     */
+    void truncate(int index, int offset) {
+        count = index;
+        length = offset;
+        snapshots.removeIf(snapshot -> snapshot.index > index);
+    }
+
+    /**
+     * @param snapshot The snapshot to start from.
+     * @return A Cursor reading the commands after the snapshot.
+     */
+    Cursor cursor(Snapshot snapshot) {
+        return new Cursor(snapshot.index, snapshot.offset);
+    }
+
+    /** Reads commands one at a time. */
+    final class Cursor {
+        /** The number of commands read, counting from the start of the log. */
+        int index;
+        /** The offset of the next command. */
+        int offset;
+
+        /** The opcode of the last command read. */
+        byte op;
+        /** The cells of the last action read. */
+        int from, to;
+        /** The brains' moves of the last end of turn read. */
+        int[] moves = new int[0];
+
+        private Cursor(int index, int offset) {
+            this.index = index;
+            this.offset = offset;
+        }
+
+        /** @return True if a command was read, or false at the end of the log. */
+        boolean next() {
+            if (index >= count) {
+                return false;
+            }
+
+            op = data[offset++];
+            if (op == ACTION) {
+                from = readVarint();
+                to = readVarint();
+            }
+            else {
+                moves = new int[readVarint()];
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = readVarint();
+                }
+            }
+            index++;
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0, shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    private void write(int b) {
+        if (length == data.length) {
+            data = Arrays.copyOf(data, length * 2);
+        }
+        data[length++] = (byte) b;
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write(value);
+    }
+}
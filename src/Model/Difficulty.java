@@ -0,0 +1,98 @@
+package Model;
+
+/**
+ * How strong and how many the Enemies of each floor are.
+ * <p></p>
+ * A random Enemy's stats are multiplied by
+ * {@code strength * 2^(floor / floorsPerDoubling)}, and by up to a
+ * fifth more at random. Each floor starts with {@code minEnemies}
+ * Enemies, plus up to {@code extraEnemies - 1} more at random.
+ * Difficulties are immutable, so one can be shared by many Maps.
+ */
+public final class Difficulty {
+    /** The difficulty the game was designed with. */
+    public static final Difficulty NORMAL = new Difficulty(1, 2.5, 3, 5);
+
+    private final double strength;
+    private final double floorsPerDoubling;
+    private final int minEnemies;
+    private final int extraEnemies;
+
+    /**
+     * Creates a Difficulty.
+     * @param strength The multiplier of every Enemy's stats.
+     * @param floorsPerDoubling The number of floors over which Enemy stats double.
+     * @param minEnemies The number of Enemies each floor starts with, at least.
+     * @param extraEnemies The number of different counts of Enemies
+     *                     added at random, at least 1.
+     */
+    public Difficulty(double strength, double floorsPerDoubling, int minEnemies, int extraEnemies) {
+        if (strength <= 0 || floorsPerDoubling <= 0 || minEnemies < 0 || extraEnemies < 1) {
+            throw new IllegalArgumentException("Invalid difficulty: " + strength + ", "
+                    + floorsPerDoubling + ", " + minEnemies + ", " + extraEnemies);
+        }
+        this.strength = strength;
+        this.floorsPerDoubling = floorsPerDoubling;
+        this.minEnemies = minEnemies;
+        this.extraEnemies = extraEnemies;
+    }
+
+    /** @return The multiplier of every Enemy's stats. */
+    public double getStrength() {
+        return strength;
+    }
+
+    /** @return The number of floors over which Enemy stats double. */
+    public double getFloorsPerDoubling() {
+        return floorsPerDoubling;
+    }
+
+    /** @return The number of Enemies each floor starts with, at least. */
+    public int getMinEnemies() {
+        return minEnemies;
+    }
+
+    /** @return The number of different counts of Enemies added at random. */
+    public int getExtraEnemies() {
+        return extraEnemies;
+    }
+
+    /**
+     * @param strength The multiplier of every Enemy's stats.
+     * @return A Difficulty like this one with another strength.
+     */
+    public Difficulty withStrength(double strength) {
+        return new Difficulty(strength, floorsPerDoubling, minEnemies, extraEnemies);
+    }
+
+    /**
+     * @param minEnemies The number of Enemies each floor starts with, at least.
+     * @param extraEnemies The number of different counts of Enemies added at random.
+     * @return A Difficulty like this one with other counts of Enemies.
+     */
+    public Difficulty withEnemies(int minEnemies, int extraEnemies) {
+        return new Difficulty(strength, floorsPerDoubling, minEnemies, extraEnemies);
+    }
+
+    /**
+     * @param floor The floor number.
+     * @return The multiplier of the stats of Enemies on the floor, before the random part.
+     */
+    double multiplier(int floor) {
+        return strength * Math.pow(2, floor / floorsPerDoubling);
+    }
+
+    /**
+     * @param rand The source of the count.
+     * @return A random number of Enemies to start a floor with.
+     */
+    int enemyCount(java.util.SplittableRandom rand) {
+        return rand.nextInt(extraEnemies) + minEnemies;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("strength %.2f, doubling every %.1f floors, %d+%d enemies",
+                strength, floorsPerDoubling, minEnemies, extraEnemies - 1);
+    }
+}
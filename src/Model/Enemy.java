@@ -3,17 +3,41 @@ package Model;
 import java.util.*;
 
 public class Enemy extends Entity {
+	/** The crowding by other Enemies at which a chasing Enemy looks for a way around. */
+	private static final int CROWDED = InfluenceMap.CROWDING_RADIUS;
+	
 	private String type;
 	public Enemy(double HP, double ATK, double DEF, int SPD, Position POS, int LVL, String type) {
 		super(HP, ATK, DEF, SPD, POS, LVL);
 		this.type = type;
 	}
 	
+	/** Enemy handle over stats already in a store. */
+	Enemy(EntityStore store, int slot, int ID, String type) {
+		super(store, slot, ID);
+		this.type = type;
+	}
+	
 	/** Takes the floor level of the dungeon and generates a random enemy based on it **/
 	public static Enemy randomEnemy(int Floor) {
-		double multiplier = Math.pow(2, Floor/2.5);
-		multiplier *= (Math.random()/5) + 1;
-		Random rand = new Random();
+		return randomEnemy(Floor, new SplittableRandom());
+	}
+	
+	/**
+	 * Generates a random enemy for a floor, rolling its stats from a given source,
+	 * so that the same stream always generates the same enemy.
+	 */
+	public static Enemy randomEnemy(int Floor, SplittableRandom rand) {
+		return randomEnemy(Floor, Difficulty.NORMAL, rand);
+	}
+	
+	/**
+	 * Generates a random enemy for a floor at a difficulty,
+	 * rolling its stats from a given source.
+	 */
+	public static Enemy randomEnemy(int Floor, Difficulty difficulty, SplittableRandom rand) {
+		double multiplier = difficulty.multiplier(Floor);
+		multiplier *= (rand.nextDouble()/5) + 1;
 		double HP = (rand.nextInt(9) + 3) * multiplier;
 		double ATK = (rand.nextInt(9) + 1) * multiplier;
 		int SPD = rand.nextInt(3) + 1;
@@ -24,21 +48,35 @@ public class Enemy extends Entity {
 	
 	/** Takes a map, and returns a position for the enemy to move to. **/
 	public Position makeMove(Map map) {
-		// retrieve own moves from map
-		Set<Position> moves = map.possibleMovesForEnemy(getPOS());
+		return chooseMove(map, map.movesForEnemy(getPOS()),
+				map.playersPerceivedBy(this), map.influence(), map.enemyRandom(this));
+	}
+	
+	/**
+	 * Chooses a move from the Enemy's possible moves.
+	 * Nothing is written while choosing, so several Enemies
+	 * may choose at once while the Map is not changing.
+	 * @param map The delegate used for pathfinding.
+	 * @param moves The possible moves of the Enemy.
+	 * @param perceived The Positions of the Players the Enemy perceives.
+	 * @param influence The influence fields of the Map.
+	 * @param rand The source of random moves.
+	 * @return A Position to move to.
+	 */
+	Position chooseMove(Pathfinding.Delegate map, Set<Position> moves,
+			List<Position> perceived, InfluenceMap influence, SplittableRandom rand) {
 		if (moves.isEmpty()) {
 			return getPOS();
 		}
 		
-		// find closest visible player in map
-		Position toAttack = map.getPlayers().stream().map(Entity::getPOS)
-				.filter(pos -> Pathfinding.lineOfSight(map, pos, getPOS()) && pos.distanceTo(getPOS()) < 7)
+		// find closest perceived player
+		Position toAttack = perceived.stream()
 				.min(Comparator.comparingInt(getPOS()::distanceTo))
 				.orElse(null);
 		
-		// no player found: return random move in range
+		// no player found: random move in range, drawn towards threat
 		if (toAttack == null) {
-			return new ArrayList<>(moves).get(new Random().nextInt(moves.size()));
+			return wander(moves, influence, rand);
 		}
 		// attack player in range
 		else if (moves.contains(toAttack)) {
@@ -46,24 +84,89 @@ public class Enemy extends Entity {
 		}
 		// path towards closest position to player
 		else {
-			return Pathfinding.shortestPath(map, getPOS(), toAttack).stream()
+			Position step = Pathfinding.shortestPath(map, getPOS(), toAttack).stream()
 					.reduce((pos1, pos2) -> moves.contains(pos2) ? pos2 : pos1).orElse(getPOS());
+			return flank(step, toAttack, moves, influence);
 		}
 	}
 	
+	/**
+	 * Makes a random move. Where Players have been recently, moves
+	 * with more threat are more likely, so Enemies that lost sight
+	 * of a Player search where it was instead of drifting away.
+	 * Only threat is read, which does not change while Enemies move.
+	 */
+	private Position wander(Set<Position> moves, InfluenceMap influence, SplittableRandom rand) {
+		List<Position> list = new ArrayList<>(moves);
+		Position move = list.get(rand.nextInt(list.size()));
+		if (list.stream().noneMatch(pos -> influence.threatAt(pos) > 0)) {
+			return move;
+		}
+		
+		double best = influence.threatAt(move) * (rand.nextDouble() + 0.5);
+		for (Position pos : list) {
+			double score = influence.threatAt(pos) * (rand.nextDouble() + 0.5);
+			if (score > best) {
+				best = score;
+				move = pos;
+			}
+		}
+		return move;
+	}
+	
+	/**
+	 * Swaps a step along the shortest path for one that is as close
+	 * to the target but less crowded by other Enemies, so Enemies
+	 * chasing the same Player surround it instead of queueing.
+	 */
+	private Position flank(Position step, Position target, Set<Position> moves, InfluenceMap influence) {
+		int best = influence.crowdingAround(getPOS(), step);
+		if (best < CROWDED) {
+			return step;
+		}
+		
+		Position move = step;
+		int distance = step.distanceTo(target);
+		for (Position pos : moves) {
+			int crowding = influence.crowdingAround(getPOS(), pos);
+			if (crowding < best && pos.distanceTo(target) <= distance) {
+				best = crowding;
+				move = pos;
+			}
+		}
+		return move;
+	}
+	
 	/** Attacks a player, and subtracts HP from them based on the Enemy's attack and the Player's defense. **/
 	public void attack(Player Player) {
 		double ATK = this.getATK();
 		double damage = (ATK * 10)/(Player.getDEF() + 5);
 		Player.setHP(Player.getHP() - damage);
 		
-		Map.logMessage("Took " + (int) damage + " damage!");
+		post(GameEvent.Type.DAMAGE_TAKEN, damage, "Took " + (int) damage + " damage!");
    }
 	
+	@Override
+	public EntityKind getKind() {
+		return EntityKind.ENEMY;
+	}
+	
 	@Override
 	public Entity copy() {
-		Enemy Enemy = new Enemy(getmaxHP(), getATK(), getDEF(), getSPD(), getPOS(), getLVL(), "Placeholder");
+		Enemy Enemy = new Enemy(getmaxHP(), getATK(), getDEF(), getSPD(), getPOS(), getLVL(), type);
 		Enemy.setHP(getHP());
+		Enemy.setID(getID());
 		return Enemy;
 	}
+	
+	/**
+	 * Creates another handle over the stats of this Enemy,
+	 * which have been copied into a slot of another store.
+	 * @param target The store holding the stats.
+	 * @param slot The slot of the stats in the store.
+	 * @return An Enemy with the same id.
+	 */
+	Enemy handle(EntityStore target, int slot) {
+		return new Enemy(target, slot, getID(), type);
+	}
 }
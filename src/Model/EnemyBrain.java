@@ -0,0 +1,30 @@
+package Model;
+
+/**
+ * Decides the moves of Enemies in place of {@link Enemy#makeMove}.
+ * <p></p>
+ * Brains run on the threads of an {@link AIExecutor}, all at once,
+ * on a fork of the Map taken as the decisions start, so they must
+ * only read it. The Map goes on changing without them, and a brain
+ * that outlives its decision never sees those changes.
+ * Each decision has a deadline set by the Map. A brain that misses
+ * it, throws, or returns an impossible move is replaced by the
+ * usual greedy move for that turn. Blocking is allowed, but a brain
+ * should stop promptly when its thread is interrupted.
+ */
+public interface EnemyBrain {
+    /**
+     * Chooses a move for an Enemy.
+     * @param map A fork of the Map to read from.
+     * @param enemy A read-only view of the Enemy deciding.
+     * @return The Position to move to, the Enemy's own Position
+     *         to stay, or null to fall back to the greedy move.
+     * @throws InterruptedException If interrupted after the deadline.
+     */
+    Position decide(Map map, EntityView enemy) throws InterruptedException;
+
+    /** @return The name the brain's timings are recorded under. */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
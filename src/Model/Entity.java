@@ -4,27 +4,61 @@ package Model;
  * Entity class describes a general (abstract) object that will exist within a playable map
  * Contains getter and setter methods for instance variables that act as characteristics and attributes that will apply to actions for each entity created.
  * Contains one abstract method that type casts child-classes into parent.
+ * On a Map, the stats are kept in the Map's EntityStore, and an Entity is a handle over its slot there.
  */
-public abstract class Entity {	
-	private double maxHP;
-	private double HP;
-	private double ATK;
-	private double DEF;
-	private int SPD;
-	private int LVL;
-	private Position POS;
+public abstract class Entity implements EntityView {	
+	/**
+	 * The store holding the stats of this Entity, and its slot there.
+	 * An Entity that is not on a Map has a store of its own.
+	 */
+	private EntityStore store;
+	private int slot;
+	
+	/**
+	 * The stable id of the Entity, given by the Map it is placed on.
+	 * 0 for Entities that have not been placed on a Map.
+	 */
+	private int ID;
+	
+	/** Lazily created read-only view of this Entity. */
+	private EntityView view;
+	
+	/** The events of the Map holding this Entity, or null. */
+	private EventBus events;
+	
+	/**
+	 * The token of the Map that may change this Entity in place,
+	 * or null. Entities shared with a fork have no owner.
+	 */
+	Object owner;
+	
+	/** True for a tile shared between every cell it appears in. */
+	private boolean sharedTile;
 	
 	/**
 	 * Basic Constructor for manual setting of each stat in creation of an Entity object. 
 	 */
 	public Entity(double HP, double ATK, double DEF, int SPD, Position POS, int LVL) {
-		this.maxHP = HP;
-		this.HP = HP;
-		this.ATK = ATK;
-		this.DEF = DEF;
-		this.SPD = SPD;
-		this.POS = POS;
-		this.LVL = LVL;
+		store = EntityStore.loose();
+		store.maxHP[0] = HP;
+		store.hp[0] = HP;
+		store.atk[0] = ATK;
+		store.def[0] = DEF;
+		store.spd[0] = SPD;
+		store.pos[0] = POS;
+		store.lvl[0] = LVL;
+	}
+	
+	/**
+	 * Constructor for a handle over stats already in a store.
+	 * @param store The store holding the stats.
+	 * @param slot The slot of the stats in the store.
+	 * @param ID The id of the Entity.
+	 */
+	Entity(EntityStore store, int slot, int ID) {
+		this.store = store;
+		this.slot = slot;
+		this.ID = ID;
 	}
 
 	/**
@@ -32,7 +66,7 @@ public abstract class Entity {
 	 * @param HP:double
 	 */
 	public void setHP(double HP) {
-		this.HP = HP;
+		writable().hp[slot] = HP;
 	}
 
 	/**
@@ -40,7 +74,7 @@ public abstract class Entity {
 	 * @param ATK:double
 	 */
 	public void setATK(double ATK) {
-		this.ATK = ATK;
+		writable().atk[slot] = ATK;
 	}
 
 	/**
@@ -48,7 +82,7 @@ public abstract class Entity {
 	 * @param DEF:double
 	 */
 	public void setDEF(double DEF) {
-		this.DEF = DEF;
+		writable().def[slot] = DEF;
 	}
 
 	/**
@@ -56,7 +90,7 @@ public abstract class Entity {
 	 * @param SPD:int
 	 */
 	public void setSPD(int SPD) {
-		this.SPD = SPD;
+		writable().spd[slot] = SPD;
 	}
 
 	/**
@@ -64,7 +98,7 @@ public abstract class Entity {
 	 * @param POS:Position
 	 */
 	public void setPOS(Position POS) {
-		this.POS = POS;
+		writable().pos[slot] = POS;
 	}
 
 	/**
@@ -72,7 +106,7 @@ public abstract class Entity {
 	 * @param LVL:int
 	 */
 	public void setLVL(int LVL) {
-		this.LVL = LVL;
+		writable().lvl[slot] = LVL;
 	}
 
 	/**
@@ -80,7 +114,24 @@ public abstract class Entity {
 	 * @param maxHP:double
 	 */
 	public void setmaxHP(double maxHP) {
-		this.maxHP = maxHP;
+		writable().maxHP[slot] = maxHP;
+	}
+
+	/**
+	 * Setter method for the stable id, used when placed on a Map.
+	 * @param ID:int
+	 */
+	void setID(int ID) {
+		this.ID = ID;
+	}
+
+	/**
+	 * Getter method for obtaining the stable Entity id.
+	 * Copies share the id of the Entity they were copied from.
+	 * @return int, 0 if the Entity has not been placed on a Map
+	 */
+	public int getID() {
+		return ID;
 	}
 
 	/**
@@ -88,7 +139,7 @@ public abstract class Entity {
 	 * @return Position object
 	 */
 	public Position getPOS() {
-		return POS;
+		return store.pos[slot];
 	}
 
 	/**
@@ -96,7 +147,7 @@ public abstract class Entity {
 	 * @return double
 	 */
 	public double getATK() {
-		return ATK;
+		return store.atk[slot];
 	}
 
 	/**
@@ -104,7 +155,7 @@ public abstract class Entity {
 	 * @return double
 	 */
 	public double getHP() {
-		return HP;
+		return store.hp[slot];
 	}
 
 	/**
@@ -112,7 +163,7 @@ public abstract class Entity {
 	 * @return double
 	 */
 	public double getDEF() {
-		return DEF;
+		return store.def[slot];
 	}
 
 	/**
@@ -120,7 +171,7 @@ public abstract class Entity {
 	 * @return int
 	 */
 	public int getSPD() {
-		return SPD;
+		return store.spd[slot];
 	}
 
 	/**
@@ -128,7 +179,7 @@ public abstract class Entity {
 	 * @return int
 	 */
 	public int getLVL() {
-		return LVL;
+		return store.lvl[slot];
 	}
 
 	/**
@@ -136,9 +187,102 @@ public abstract class Entity {
 	 * @return double
 	 */
 	public double getmaxHP() {
-		return maxHP;
+		return store.maxHP[slot];
 	}
 
+	/**
+	 * Marks an Entity as a tile shared between every cell it appears
+	 * in, such as the walls. Its setters throw from then on, and
+	 * {@code copy()} should return it as it is.
+	 * @param tile A new Entity, not on any Map.
+	 * @return The tile.
+	 */
+	static <T extends Entity> T sharedTile(T tile) {
+		((Entity) tile).sharedTile = true;
+		return tile;
+	}
+	
+	/** @return True if this Entity is a shared tile, which may not change. */
+	final boolean isSharedTile() {
+		return sharedTile;
+	}
+	
+	/**
+	 * Checks that the stats of this Entity may change before they are
+	 * written: shared tiles never change, and neither do frozen stores.
+	 * @return The store to write the stats to.
+	 */
+	final EntityStore writable() {
+		if (sharedTile) {
+			throw new UnsupportedOperationException("Shared tiles are immutable");
+		}
+		store.checkWritable();
+		return store;
+	}
+	
+	/** @return The store holding the stats of this Entity. */
+	final EntityStore store() {
+		return store;
+	}
+	
+	/** @return The slot of this Entity in its store. */
+	final int slot() {
+		return slot;
+	}
+	
+	/**
+	 * Moves the stats of this Entity into a slot of a store,
+	 * and reads and writes them there from now on.
+	 * @param target The store of the Map the Entity is placed on.
+	 * @param slot A cleared slot of the store.
+	 */
+	final void attach(EntityStore target, int slot) {
+		target.copySlot(store, this.slot, slot);
+		store = target;
+		this.slot = slot;
+	}
+	
+	/**
+	 * Moves the stats of this Entity out of its store into one of its
+	 * own, as when it leaves a Map, so that the slot can be reused.
+	 */
+	final void detach() {
+		EntityStore own = EntityStore.loose();
+		own.copySlot(store, slot, 0);
+		store = own;
+		slot = 0;
+	}
+	
+	/**
+	 * Returns a live, read-only view of this Entity,
+	 * which is created once and then reused.
+	 * @return An EntityView wrapping this Entity.
+	 */
+	EntityView view() {
+		if (view == null) {
+			view = new ReadOnlyEntity(this);
+		}
+		return view;
+	}
+	
+	/** @param events The events of the Map holding this Entity. */
+	void setEvents(EventBus events) {
+		this.events = events;
+	}
+	
+	/**
+	 * Posts an event to the Map holding this Entity.
+	 * Entities that are not on a Map use the static log.
+	 */
+	void post(GameEvent.Type type, double value, String message) {
+		if (events != null) {
+			events.post(type, value, message);
+		}
+		else {
+			Map.logMessage(message);
+		}
+	}
+	
 	/**
 	 * A polymorphic copy method for subclasses to override.
 	 * This method must be preferred over a copy constructor,
@@ -0,0 +1,19 @@
+package Model;
+
+/**
+ * The kinds of things a cell on a Map can hold.
+ * Allows clients to tell cells apart without
+ * copying or casting the Entities in them.
+ */
+public enum EntityKind {
+    /** An open cell with nothing in it. */
+    EMPTY,
+    /** An impassable wall. */
+    WALL,
+    /** The stairs to the next floor. */
+    STAIRS,
+    /** A Player character. */
+    PLAYER,
+    /** An Enemy character. */
+    ENEMY
+}
@@ -0,0 +1,88 @@
+package Model;
+
+/**
+ * Immutable copy of the stats of an Entity at one point in time.
+ * <p></p>
+ * Unlike a live EntityView, a snapshot never changes, so it can be
+ * kept across turns or handed to other threads. Unlike
+ * {@code Entity.copy()}, it has no setters to keep in sync.
+ */
+public final class EntitySnapshot implements EntityView {
+    private final EntityKind kind;
+    private final int ID;
+    private final double HP, maxHP, ATK, DEF;
+    private final int SPD, LVL, STM;
+    private final Position POS;
+
+    /**
+     * Creates a snapshot of the current stats of a view.
+     * @param source The view to copy stats from.
+     */
+    public EntitySnapshot(EntityView source) {
+        kind = source.getKind();
+        ID = source.getID();
+        HP = source.getHP();
+        maxHP = source.getmaxHP();
+        ATK = source.getATK();
+        DEF = source.getDEF();
+        SPD = source.getSPD();
+        LVL = source.getLVL();
+        STM = source.getSTM();
+        POS = source.getPOS();
+    }
+
+    @Override
+    public EntityKind getKind() {
+        return kind;
+    }
+
+    @Override
+    public int getID() {
+        return ID;
+    }
+
+    @Override
+    public double getHP() {
+        return HP;
+    }
+
+    @Override
+    public double getmaxHP() {
+        return maxHP;
+    }
+
+    @Override
+    public double getATK() {
+        return ATK;
+    }
+
+    @Override
+    public double getDEF() {
+        return DEF;
+    }
+
+    @Override
+    public int getSPD() {
+        return SPD;
+    }
+
+    @Override
+    public int getLVL() {
+        return LVL;
+    }
+
+    @Override
+    public Position getPOS() {
+        return POS;
+    }
+
+    @Override
+    public int getSTM() {
+        return STM;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "@" + POS + "[" + (int) HP + "/" + (int) maxHP + "]";
+    }
+}
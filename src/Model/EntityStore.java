@@ -0,0 +1,442 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The stats of characters, kept in parallel primitive arrays indexed
+ * by slot. A Map allocates a slot for each of its characters, and
+ * Players and Enemies are thin handles reading and writing their
+ * slot, so passes over every character scan a few flat arrays instead
+ * of following a pointer to each object.
+ * <p></p>
+ * Slots are found by id in an open-addressing table laid out as in
+ * PositionIntMap, and freed when a character dies or leaves the floor,
+ * so the store stays as large as the most characters on the Map at
+ * once, however many have come and gone.
+ * <p></p>
+ * A character that is not on a Map has a store of its own, with a
+ * single slot and no table.
+ * <p></p>
+ * Columns only used by Players, such as experience and stamina,
+ * are kept for every slot and are 0 for Enemies.
+ * <p></p>
+ * A store grows as slots are written, and is not thread-safe:
+ * it may be read by several threads while nothing writes to it.
+ * A frozen store is shared by forked Maps and may only be read.
+ */
+public final class EntityStore {
+    double[] maxHP;
+    double[] hp;
+    double[] atk;
+    double[] def;
+    int[] spd;
+    int[] lvl;
+    Position[] pos;
+    double[] exp;
+    double[] lvlLimit;
+    int[] stm;
+
+    private static final byte EMPTY = 0, FULL = 1, REMOVED = 2;
+
+    /** The slot of each character allocated a slot, by id, or null until the first. */
+    private int[] tableIds;
+    private int[] tableSlots;
+    private byte[] tableStates;
+    /** The number of characters in the table, and of its entries that are not EMPTY. */
+    private int size;
+    private int tableUsed;
+    /** The number of bits of a hash used as an index. */
+    private int bits;
+
+    /** Slots that were freed, reused before new ones. */
+    private int[] free = new int[8];
+    private int freeCount;
+
+    /** The number of slots ever allocated, freed or not. */
+    private int used;
+
+    /** True once the store is shared, and may no longer change. */
+    private boolean frozen;
+
+    /** True for the store of a single character not on a Map. */
+    private boolean loose;
+
+    /**
+     * Creates an empty store.
+     * @param capacity The number of slots to allocate up front.
+     */
+    public EntityStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        maxHP = new double[capacity];
+        hp = new double[capacity];
+        atk = new double[capacity];
+        def = new double[capacity];
+        spd = new int[capacity];
+        lvl = new int[capacity];
+        pos = new Position[capacity];
+        exp = new double[capacity];
+        lvlLimit = new double[capacity];
+        stm = new int[capacity];
+    }
+
+    /** @return A store of one slot, 0, for a character that is not on a Map. */
+    static EntityStore loose() {
+        EntityStore store = new EntityStore(1);
+        store.loose = true;
+        store.used = 1;
+        return store;
+    }
+
+    /** Creates an independent, unfrozen copy of a store. */
+    private EntityStore(EntityStore source) {
+        maxHP = source.maxHP.clone();
+        hp = source.hp.clone();
+        atk = source.atk.clone();
+        def = source.def.clone();
+        spd = source.spd.clone();
+        lvl = source.lvl.clone();
+        pos = source.pos.clone();
+        exp = source.exp.clone();
+        lvlLimit = source.lvlLimit.clone();
+        stm = source.stm.clone();
+        if (source.tableIds != null) {
+            tableIds = source.tableIds.clone();
+            tableSlots = source.tableSlots.clone();
+            tableStates = source.tableStates.clone();
+        }
+        size = source.size;
+        tableUsed = source.tableUsed;
+        bits = source.bits;
+        loose = source.loose;
+        free = source.free.clone();
+        freeCount = source.freeCount;
+        used = source.used;
+    }
+
+    /** @return An independent copy of the store, costing one array copy per column. */
+    public EntityStore copy() {
+        return new EntityStore(this);
+    }
+
+    /** @return The number of slots the columns have room for. */
+    public int getCapacity() {
+        return hp.length;
+    }
+
+    /** @return The number of characters allocated a slot. */
+    public int size() {
+        return size;
+    }
+
+    /** @return True for the store of a single character not on a Map. */
+    public boolean isLoose() {
+        return loose;
+    }
+
+    /**
+     * @param id The id of a character.
+     * @return The slot of the character, or -1 if it has none.
+     */
+    public int slotOf(int id) {
+        int entry = find(id);
+        return entry < 0 ? -1 : tableSlots[entry];
+    }
+
+    /**
+     * Allocates a cleared slot for a character, reusing a freed slot
+     * if there is one.
+     * @param id The id of the character, which must not have a slot.
+     * @return The slot.
+     */
+    public int allocate(int id) {
+        checkWritable();
+        if (find(id) >= 0) {
+            throw new IllegalStateException("Character " + id + " already has a slot");
+        }
+
+        int slot = freeCount > 0 ? free[--freeCount] : used++;
+        ensureCapacity(slot);
+        maxHP[slot] = 0;
+        hp[slot] = 0;
+        atk[slot] = 0;
+        def[slot] = 0;
+        spd[slot] = 0;
+        lvl[slot] = 0;
+        pos[slot] = null;
+        exp[slot] = 0;
+        lvlLimit[slot] = 0;
+        stm[slot] = 0;
+        insert(id, slot);
+        return slot;
+    }
+
+    /**
+     * Frees the slot of a character, to be reused by another.
+     * Handles over the slot must be detached first.
+     * @param id The id of the character.
+     */
+    public void free(int id) {
+        checkWritable();
+        int entry = find(id);
+        if (entry < 0) {
+            return;
+        }
+        tableStates[entry] = REMOVED;
+        size--;
+
+        int slot = tableSlots[entry];
+        pos[slot] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * Freezes the store, as when the Map holding it is forked.
+     * The characters of both Maps keep reading it until they are
+     * changed, at which point each Map copies their slots into a
+     * store of its own.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /** @return True if the store is shared and may not change. */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /** Throws if the store is frozen, before anything writes to it. */
+    void checkWritable() {
+        if (frozen) {
+            throw new IllegalStateException("Frozen stores are shared and may not change");
+        }
+    }
+
+    /** @return The entry of the table holding an id, or -1. */
+    private int find(int id) {
+        if (tableIds == null) {
+            return -1;
+        }
+        int mask = tableIds.length - 1;
+        int entry = PositionSet.slotOf(id, bits);
+        while (tableStates[entry] != EMPTY) {
+            if (tableStates[entry] == FULL && tableIds[entry] == id) {
+                return entry;
+            }
+            entry = (entry + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Adds an id that is not in the table yet. */
+    private void insert(int id, int slot) {
+        if (tableIds == null || (tableUsed + 1) * 2 > tableIds.length) {
+            rehash(size + 1);
+        }
+
+        int mask = tableIds.length - 1;
+        int entry = PositionSet.slotOf(id, bits);
+        while (tableStates[entry] == FULL) {
+            entry = (entry + 1) & mask;
+        }
+        if (tableStates[entry] == EMPTY) {
+            tableUsed++;
+        }
+        tableIds[entry] = id;
+        tableSlots[entry] = slot;
+        tableStates[entry] = FULL;
+        size++;
+    }
+
+    /** Rebuilds the table for a number of ids, dropping tombstones. */
+    private void rehash(int expected) {
+        int[] oldIds = tableIds;
+        int[] oldSlots = tableSlots;
+        byte[] oldStates = tableStates;
+
+        bits = Math.max(3, 32 - Integer.numberOfLeadingZeros(expected * 2 - 1) + 1);
+        tableIds = new int[1 << bits];
+        tableSlots = new int[1 << bits];
+        tableStates = new byte[1 << bits];
+        tableUsed = size;
+        if (oldIds == null) {
+            return;
+        }
+
+        int mask = tableIds.length - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldStates[i] == FULL) {
+                int entry = PositionSet.slotOf(oldIds[i], bits);
+                while (tableStates[entry] != EMPTY) {
+                    entry = (entry + 1) & mask;
+                }
+                tableIds[entry] = oldIds[i];
+                tableSlots[entry] = oldSlots[i];
+                tableStates[entry] = FULL;
+            }
+        }
+    }
+
+    /**
+     * Marks the slots of the characters within a rectilinear distance
+     * of any of some Positions, in one pass over the position column.
+     * Freed slots are never marked.
+     * @param centres The Positions to measure from.
+     * @param range The largest distance to mark.
+     * @param marks The set of slots to mark, which is not cleared first.
+     */
+    public void markWithin(Position[] centres, int range, BitSet marks) {
+        Position[] column = pos;
+        for (int slot = 0; slot < used; slot++) {
+            Position p = column[slot];
+            if (p == null) {
+                continue;
+            }
+            for (Position centre : centres) {
+                if (p.distanceTo(centre) <= range) {
+                    marks.set(slot);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure a slot exists, growing every column if needed.
+     * @param slot The slot about to be written.
+     */
+    public void ensureCapacity(int slot) {
+        checkWritable();
+        if (slot < hp.length) {
+            return;
+        }
+        int capacity = Math.max(slot + 1, hp.length * 2);
+        maxHP = Arrays.copyOf(maxHP, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        atk = Arrays.copyOf(atk, capacity);
+        def = Arrays.copyOf(def, capacity);
+        spd = Arrays.copyOf(spd, capacity);
+        lvl = Arrays.copyOf(lvl, capacity);
+        pos = Arrays.copyOf(pos, capacity);
+        exp = Arrays.copyOf(exp, capacity);
+        lvlLimit = Arrays.copyOf(lvlLimit, capacity);
+        stm = Arrays.copyOf(stm, capacity);
+    }
+
+    /**
+     * Copies every stat of a slot of another store into a slot of this one.
+     * @param source The store to copy from.
+     * @param from The slot to copy from.
+     * @param to The slot to copy to, which is allocated if needed.
+     */
+    public void copySlot(EntityStore source, int from, int to) {
+        ensureCapacity(to);
+        maxHP[to] = source.maxHP[from];
+        hp[to] = source.hp[from];
+        atk[to] = source.atk[from];
+        def[to] = source.def[from];
+        spd[to] = source.spd[from];
+        lvl[to] = source.lvl[from];
+        pos[to] = source.pos[from];
+        exp[to] = source.exp[from];
+        lvlLimit[to] = source.lvlLimit[from];
+        stm[to] = source.stm[from];
+    }
+
+    // Getters
+
+    public double getmaxHP(int slot) {
+        return maxHP[slot];
+    }
+
+    public double getHP(int slot) {
+        return hp[slot];
+    }
+
+    public double getATK(int slot) {
+        return atk[slot];
+    }
+
+    public double getDEF(int slot) {
+        return def[slot];
+    }
+
+    public int getSPD(int slot) {
+        return spd[slot];
+    }
+
+    public int getLVL(int slot) {
+        return lvl[slot];
+    }
+
+    public Position getPOS(int slot) {
+        return pos[slot];
+    }
+
+    public double getEXP(int slot) {
+        return exp[slot];
+    }
+
+    public double getLVLlimit(int slot) {
+        return lvlLimit[slot];
+    }
+
+    public int getSTM(int slot) {
+        return stm[slot];
+    }
+
+    // Setters, which grow the store as needed
+
+    public void setmaxHP(int slot, double value) {
+        ensureCapacity(slot);
+        maxHP[slot] = value;
+    }
+
+    public void setHP(int slot, double value) {
+        ensureCapacity(slot);
+        hp[slot] = value;
+    }
+
+    public void setATK(int slot, double value) {
+        ensureCapacity(slot);
+        atk[slot] = value;
+    }
+
+    public void setDEF(int slot, double value) {
+        ensureCapacity(slot);
+        def[slot] = value;
+    }
+
+    public void setSPD(int slot, int value) {
+        ensureCapacity(slot);
+        spd[slot] = value;
+    }
+
+    public void setLVL(int slot, int value) {
+        ensureCapacity(slot);
+        lvl[slot] = value;
+    }
+
+    public void setPOS(int slot, Position value) {
+        ensureCapacity(slot);
+        pos[slot] = value;
+    }
+
+    public void setEXP(int slot, double value) {
+        ensureCapacity(slot);
+        exp[slot] = value;
+    }
+
+    public void setLVLlimit(int slot, double value) {
+        ensureCapacity(slot);
+        lvlLimit[slot] = value;
+    }
+
+    public void setSTM(int slot, int value) {
+        ensureCapacity(slot);
+        stm[slot] = value;
+    }
+}
@@ -0,0 +1,43 @@
+package Model;
+
+/**
+ * Read-only access to the stats of an Entity.
+ * <p></p>
+ * Views handed out by a Map are live: they always show the
+ * current state of the Entity, but cannot be used to change it.
+ * Holding on to a view is therefore cheaper than asking the Map
+ * for copies, but its values may change between turns.
+ */
+public interface EntityView {
+    /** @return The kind of the Entity. */
+    EntityKind getKind();
+
+    /** @return The stable id of the Entity, or 0 for walls and stairs. */
+    int getID();
+
+    /** @return The current health of the Entity. */
+    double getHP();
+
+    /** @return The maximum health of the Entity. */
+    double getmaxHP();
+
+    /** @return The attack of the Entity. */
+    double getATK();
+
+    /** @return The defense of the Entity. */
+    double getDEF();
+
+    /** @return The movement allowance of the Entity. */
+    int getSPD();
+
+    /** @return The level of the Entity. */
+    int getLVL();
+
+    /** @return The Position of the Entity. May be null for tiles. */
+    Position getPOS();
+
+    /** @return The remaining stamina, or 0 if the Entity is not a Player. */
+    default int getSTM() {
+        return 0;
+    }
+}
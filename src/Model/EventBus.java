@@ -0,0 +1,126 @@
+package Model;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the GameEvents of a single Map to its subscribers,
+ * and keeps them in an EventRing for readers and the history.
+ * <p></p>
+ * Events may be posted and subscribers added from any thread.
+ * Subscribers are called on the posting thread, in the order
+ * they subscribed, so a slow subscriber slows down the game.
+ * Consumers that may be slow, such as animations, should read
+ * at their own pace through {@code newReader()} instead.
+ */
+public final class EventBus {
+    /** The number of events kept for readers. */
+    private static final int RING_SIZE = 1024;
+
+    /** The subscribers, copied on write so posting never blocks on them. */
+    private final List<Consumer<GameEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Every event posted. Publishing is guarded by the ring. */
+    private final EventRing ring;
+
+    /** The number of events returned by {@code getHistory()}. */
+    private final int capacity;
+
+    /**
+     * Creates an EventBus with no subscribers.
+     * @param capacity The number of events kept in the history.
+     */
+    public EventBus(int capacity) {
+        this(capacity, RING_SIZE);
+    }
+
+    /**
+     * Creates an EventBus keeping fewer events for readers,
+     * for short-lived Maps such as forks.
+     * @param capacity The number of events kept in the history.
+     * @param ringSize The number of events kept for readers.
+     */
+    EventBus(int capacity, int ringSize) {
+        this.capacity = capacity;
+        ring = new EventRing(Math.max(capacity, ringSize));
+    }
+
+    /** @param subscriber A subscriber to inform of every event. */
+    public void subscribe(Consumer<GameEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /** @param subscriber The subscriber to remove. */
+    public void unsubscribe(Consumer<GameEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Records an event and informs every subscriber.
+     * @param event The event to post.
+     */
+    public void post(GameEvent event) {
+        synchronized (ring) {
+            ring.publish(event.type, event.value, event.message);
+        }
+
+        for (Consumer<GameEvent> subscriber : subscribers) {
+            subscriber.accept(event);
+        }
+    }
+
+    /**
+     * Records an event and informs every subscriber.
+     * Nothing is allocated when there are no subscribers.
+     * @param type The type of the event.
+     * @param value The value of the event.
+     * @param message The message of the event.
+     */
+    public void post(GameEvent.Type type, double value, String message) {
+        synchronized (ring) {
+            ring.publish(type, value, message);
+        }
+
+        if (!subscribers.isEmpty()) {
+            GameEvent event = new GameEvent(type, value, message);
+            for (Consumer<GameEvent> subscriber : subscribers) {
+                subscriber.accept(event);
+            }
+        }
+    }
+
+    /** @param message A plain message to post. */
+    public void post(String message) {
+        post(GameEvent.Type.MESSAGE, 0, message);
+    }
+
+    /**
+     * Creates a Reader of the events still kept, oldest first.
+     * Readers never block posting, and count the events they
+     * missed if they fall too far behind.
+     * @return A new EventRing.Reader.
+     */
+    public EventRing.Reader newReader() {
+        return ring.newReader();
+    }
+
+    /** @return The number of events posted so far. */
+    public long getPosted() {
+        return ring.getPublished();
+    }
+
+    /** @return A copy of the recent events, newest first. */
+    public List<GameEvent> getHistory() {
+        List<GameEvent> history = new ArrayList<>(capacity);
+        EventRecord record = new EventRecord();
+        long last = ring.getPublished() - 1;
+        for (long seq = last; seq >= 0 && seq > last - capacity; seq--) {
+            if (!ring.read(seq, record)) {
+                break;
+            }
+            history.add(record.toEvent());
+        }
+        return history;
+    }
+}
@@ -0,0 +1,55 @@
+package Model;
+
+/**
+ * A reusable holder for an event read from an EventRing.
+ * <p></p>
+ * Readers pass the same record to every {@code poll()}, which
+ * overwrites it, so reading events allocates nothing.
+ */
+public final class EventRecord {
+    private long sequence = -1;
+    private GameEvent.Type type;
+    private double value;
+    private String message;
+
+    /** Creates an empty record to read into. */
+    public EventRecord() { }
+
+    /** Overwrites the record with an event. */
+    void set(long sequence, GameEvent.Type type, double value, String message) {
+        this.sequence = sequence;
+        this.type = type;
+        this.value = value;
+        this.message = message;
+    }
+
+    /** @return The sequence number of the event, counting from 0. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** @return The type of the event. */
+    public GameEvent.Type getType() {
+        return type;
+    }
+
+    /** @return The value of the event. */
+    public double getValue() {
+        return value;
+    }
+
+    /** @return The message of the event. */
+    public String getMessage() {
+        return message;
+    }
+
+    /** @return A new, immutable GameEvent with the same contents. */
+    public GameEvent toEvent() {
+        return new GameEvent(type, value, message);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + value + " " + message;
+    }
+}
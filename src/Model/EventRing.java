@@ -0,0 +1,177 @@
+package Model;
+
+/**
+ * A bounded ring buffer of events, written by one thread
+ * and read by any number of readers without locking.
+ * <p></p>
+ * Every event is numbered in the order it was published, and each
+ * Reader keeps its own position, so a slow reader never holds up
+ * the writer or other readers. When a reader falls more than the
+ * capacity behind, the oldest events are overwritten, and the
+ * reader skips ahead and counts how many it missed.
+ * <p></p>
+ * Slots are allocated once and reused. Each slot is guarded by
+ * its own sequence number: the writer marks the slot as busy,
+ * writes it, then stamps it with the event's number. A reader
+ * accepts a slot only if it holds the same number before and
+ * after copying it, so it never sees a half-written event.
+ */
+public final class EventRing {
+    /** Sequence number of a slot that is being written. */
+    private static final long BUSY = -1;
+
+    /** A preallocated slot of the ring. */
+    private static final class Slot {
+        volatile long sequence = BUSY;
+        volatile GameEvent.Type type;
+        volatile double value;
+        volatile String message;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+
+    /** The sequence number of the next event to publish. */
+    private volatile long published = 0;
+
+    /**
+     * Creates an empty EventRing.
+     * @param capacity The minimum number of events kept,
+     *                 rounded up to a power of two.
+     */
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    /** @return The number of events kept. */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** @return The number of events published so far. */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Publishes an event. Only one thread may publish at a time.
+     * @param type The type of the event.
+     * @param value The value of the event.
+     * @param message The message of the event.
+     * @return The sequence number of the event.
+     */
+    public long publish(GameEvent.Type type, double value, String message) {
+        long sequence = published;
+        Slot slot = slots[(int) (sequence & mask)];
+
+        slot.sequence = BUSY;
+        slot.type = type;
+        slot.value = value;
+        slot.message = message;
+        slot.sequence = sequence;
+
+        published = sequence + 1;
+        return sequence;
+    }
+
+    /**
+     * Reads a published event, if it has not been overwritten.
+     * @param sequence The sequence number of the event.
+     * @param into The record to read into.
+     * @return True if the event was read.
+     */
+    public boolean read(long sequence, EventRecord into) {
+        if (sequence < 0 || sequence >= published) {
+            return false;
+        }
+
+        Slot slot = slots[(int) (sequence & mask)];
+        if (slot.sequence != sequence) {
+            return false;
+        }
+        GameEvent.Type type = slot.type;
+        double value = slot.value;
+        String message = slot.message;
+        if (slot.sequence != sequence) {
+            return false;
+        }
+
+        into.set(sequence, type, value, message);
+        return true;
+    }
+
+    /**
+     * Creates a Reader starting at the oldest event still kept.
+     * @return A new Reader.
+     */
+    public Reader newReader() {
+        return new Reader(Math.max(0, published - slots.length));
+    }
+
+    /**
+     * Creates a Reader that only sees events published from now on.
+     * @return A new Reader.
+     */
+    public Reader newTailReader() {
+        return new Reader(published);
+    }
+
+    /**
+     * Reads the events of an EventRing in order, at its own pace.
+     * A Reader must only be used by one thread at a time.
+     */
+    public final class Reader {
+        /** The sequence number of the next event to read. */
+        private long next;
+
+        /** The number of events overwritten before they were read. */
+        private long missed;
+
+        private Reader(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Reads the next event, skipping over any overwritten events.
+         * @param into The record to read into.
+         * @return True if an event was read, false if there are none.
+         */
+        public boolean poll(EventRecord into) {
+            while (next < published) {
+                if (read(next, into)) {
+                    next++;
+                    return true;
+                }
+
+                // lapped by the writer: skip to the oldest safe event,
+                // leaving room for a slot that may be mid-write
+                long oldest = published - slots.length + 1;
+                if (oldest > next) {
+                    missed += oldest - next;
+                    next = oldest;
+                }
+            }
+            return false;
+        }
+
+        /** @return The number of events published but not yet read. */
+        public long available() {
+            return Math.max(0, published - next);
+        }
+
+        /** @return The number of events overwritten before they were read. */
+        public long getMissed() {
+            return missed;
+        }
+
+        /** @return The sequence number of the next event to read. */
+        public long getNext() {
+            return next;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Model;
+
+/**
+ * Something that happened in a game, posted to the EventBus of a Map.
+ * <p></p>
+ * Every event carries a message that can be shown to the player
+ * as is, along with its type and a value, so clients can react
+ * to events without parsing the message.
+ */
+public final class GameEvent {
+    /** Types of events. */
+    public enum Type {
+        /** A plain message with no value. */
+        MESSAGE,
+        /** A Player dealt {@code value} damage to an Enemy. */
+        DAMAGE_DEALT,
+        /** A Player took {@code value} damage from an Enemy. */
+        DAMAGE_TAKEN,
+        /** An Enemy was defeated. */
+        ENEMY_DEFEATED,
+        /** A Player gained {@code value} experience points. */
+        EXPERIENCE,
+        /** A Player reached level {@code value}. */
+        LEVEL_UP,
+        /** The Players advanced to floor {@code value}. */
+        FLOOR,
+        /** A Player died. */
+        DEATH,
+        /** Every Player has died. */
+        GAME_OVER
+    }
+
+    /** The type of the event. */
+    public final Type type;
+
+    /** The value of the event, or 0 for types without one. */
+    public final double value;
+
+    /** A message describing the event. */
+    public final String message;
+
+    /**
+     * Creates an event.
+     * @param type The type of the event.
+     * @param value The value of the event.
+     * @param message A message describing the event.
+     */
+    public GameEvent(Type type, double value, String message) {
+        this.type = type;
+        this.value = value;
+        this.message = message;
+    }
+
+    /**
+     * Creates a plain message event.
+     * @param message The message.
+     */
+    public GameEvent(String message) {
+        this(Type.MESSAGE, 0, message);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + value + " " + message;
+    }
+}
@@ -0,0 +1,360 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage for the tiles and characters of a Map.
+ * <p></p>
+ * Tiles are kept in a flat byte array, and the cells occupied by
+ * characters hold the id of the character, which indexes a table
+ * of Players and Enemies. Walls and stairs are therefore a single
+ * byte each, rather than an Entity with its own Position.
+ * <p></p>
+ * Characters are also bucketed by area, so finding the characters
+ * near a Position only looks at the buckets around it.
+ * <p></p>
+ * Cells are stored column-major, at index {@code x * height + y},
+ * matching the {@code [x][y]} layout used by the rest of the Model.
+ * <p></p>
+ * A Grid can be forked for lookahead. The fork shares the tiles,
+ * which never change once generated, and shares the occupants,
+ * table and buckets until either side writes to them. Occupants
+ * are kept in blocks so that a write only copies the block it is in.
+ */
+final class Grid {
+    /** Tile kind of an open floor tile. */
+    static final byte FLOOR = 0;
+    /** Tile kind of an impassable, opaque wall. */
+    static final byte WALL = 1;
+    /** Tile kind of the stairs to the next floor. */
+    static final byte STAIRS = 2;
+
+    /** Occupant id of an unoccupied cell. */
+    static final int NO_ID = 0;
+
+    /** The side length of the square area covered by each bucket. */
+    private static final int BUCKET_SIZE = 8;
+
+    /** The number of cells in each block of occupants. */
+    private static final int BLOCK_SIZE = 64;
+
+    private final int width, height;
+
+    /** The tile kind of each cell. */
+    private final byte[] tiles;
+
+    /** The id of the character in each cell, or NO_ID, in blocks of cells. */
+    private int[][] occupants;
+
+    /** Whether each block of occupants belongs to this Grid alone. */
+    private boolean[] ownedBlocks;
+
+    /** The characters on the grid, indexed by id. Index 0 is unused. */
+    private Entity[] table = new Entity[16];
+
+    /** Whether the table belongs to this Grid alone. */
+    private boolean ownedTable = true;
+
+    /** The next id to hand out to characters without one. */
+    private int nextID = 1;
+
+    /** The number of bucket columns and rows. */
+    private final int bucketsX, bucketsY;
+
+    /** The ids of the characters in each bucket. */
+    private int[][] buckets;
+
+    /** Whether each bucket belongs to this Grid alone. */
+    private boolean[] ownedBuckets;
+
+    /** The number of ids in each bucket. */
+    private int[] bucketSizes;
+
+    /** Whether the bucket sizes belong to this Grid alone. */
+    private boolean ownedSizes = true;
+
+    /**
+     * Creates a grid of floor tiles with no characters.
+     * @param width The width of the grid.
+     * @param height The height of the grid.
+     */
+    Grid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        Position.reserve(width, height);
+        tiles = new byte[width * height];
+        int blocks = (width * height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        occupants = new int[blocks][BLOCK_SIZE];
+        ownedBlocks = new boolean[blocks];
+        Arrays.fill(ownedBlocks, true);
+
+        bucketsX = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        bucketsY = (height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        buckets = new int[bucketsX * bucketsY][];
+        ownedBuckets = new boolean[bucketsX * bucketsY];
+        Arrays.fill(ownedBuckets, true);
+        bucketSizes = new int[bucketsX * bucketsY];
+    }
+
+    /** Creates a fork sharing everything with a Grid. */
+    private Grid(Grid source) {
+        width = source.width;
+        height = source.height;
+        tiles = source.tiles;
+        occupants = source.occupants.clone();
+        ownedBlocks = new boolean[occupants.length];
+        table = source.table;
+        ownedTable = false;
+        nextID = source.nextID;
+        bucketsX = source.bucketsX;
+        bucketsY = source.bucketsY;
+        buckets = source.buckets.clone();
+        ownedBuckets = new boolean[buckets.length];
+        bucketSizes = source.bucketSizes;
+        ownedSizes = false;
+    }
+
+    /**
+     * Forks the grid. Both grids then copy whatever they share
+     * before writing to it, so neither sees the other's changes.
+     * The characters themselves are shared, and must be copied
+     * and swapped in with {@code replace()} before they change.
+     * @return The new Grid.
+     */
+    Grid fork() {
+        Grid fork = new Grid(this);
+        Arrays.fill(ownedBlocks, false);
+        ownedTable = false;
+        Arrays.fill(ownedBuckets, false);
+        ownedSizes = false;
+        return fork;
+    }
+
+    /** @return The width, x-length of the grid. */
+    int getWidth() {
+        return width;
+    }
+
+    /** @return The height, y-length of the grid. */
+    int getHeight() {
+        return height;
+    }
+
+    /** Returns true if the coordinates are on the grid. */
+    boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /** @return The tile kind at the coordinates. */
+    byte tileAt(int x, int y) {
+        return tiles[x * height + y];
+    }
+
+    /** Sets the tile kind at the coordinates. */
+    void setTile(int x, int y, byte tile) {
+        tiles[x * height + y] = tile;
+    }
+
+    /** Sets every tile on the grid to the tile kind. */
+    void fill(byte tile) {
+        Arrays.fill(tiles, tile);
+    }
+
+    /** Returns true if the cell is a floor with no character on it. */
+    boolean isEmpty(int x, int y) {
+        int i = x * height + y;
+        return tiles[i] == FLOOR && occupant(i) == NO_ID;
+    }
+
+    /** @return The id of the character at the coordinates, or NO_ID. */
+    int idAt(int x, int y) {
+        return occupant(x * height + y);
+    }
+
+    /** @return The character at the coordinates, or null. */
+    Entity entityAt(int x, int y) {
+        return table[occupant(x * height + y)];
+    }
+
+    /** @return The character with the id, or null. */
+    Entity byID(int id) {
+        return id > 0 && id < table.length ? table[id] : null;
+    }
+
+    /** @return The id that will be given to the next new character. */
+    int getNextID() {
+        return nextID;
+    }
+
+    /**
+     * Continues handing out ids from a previous grid,
+     * so that ids stay unique across floors.
+     * @param nextID The next id to hand out.
+     */
+    void setNextID(int nextID) {
+        this.nextID = nextID;
+    }
+
+    /**
+     * Adds a character to the table and places it at its current
+     * Position. Characters without an id are given a new one,
+     * and characters with an id keep it.
+     * @param entity The Player or Enemy to add.
+     * @return The id of the character.
+     */
+    int add(Entity entity) {
+        if (entity.getID() == NO_ID) {
+            entity.setID(nextID++);
+        }
+        int id = entity.getID();
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+            ownedTable = true;
+        }
+        writableTable()[id] = entity;
+
+        Position pos = entity.getPOS();
+        setOccupant(pos.x * height + pos.y, id);
+        bucketAdd(bucketOf(pos.x, pos.y), id);
+        return id;
+    }
+
+    /**
+     * Swaps a character in the table for a copy with the same id,
+     * so that the copy can change without affecting forks.
+     * @param entity The copy to hold from now on.
+     */
+    void replace(Entity entity) {
+        writableTable()[entity.getID()] = entity;
+    }
+
+    /**
+     * Moves the character in one cell to another cell,
+     * updating its Position.
+     * @param from The Position of the character.
+     * @param to The empty Position to move to.
+     */
+    void move(Position from, Position to) {
+        int id = occupant(from.x * height + from.y);
+        setOccupant(from.x * height + from.y, NO_ID);
+        setOccupant(to.x * height + to.y, id);
+        table[id].setPOS(to);
+
+        int b1 = bucketOf(from.x, from.y), b2 = bucketOf(to.x, to.y);
+        if (b1 != b2) {
+            bucketRemove(b1, id);
+            bucketAdd(b2, id);
+        }
+    }
+
+    /**
+     * Removes the character in a cell from the grid.
+     * @param pos The Position of the character.
+     */
+    void remove(Position pos) {
+        int id = occupant(pos.x * height + pos.y);
+        setOccupant(pos.x * height + pos.y, NO_ID);
+        writableTable()[id] = null;
+        bucketRemove(bucketOf(pos.x, pos.y), id);
+    }
+
+    /**
+     * Finds the characters within a rectilinear distance of a Position.
+     * Only the buckets overlapping the range are checked.
+     * @param p The Position to search around.
+     * @param range The maximum distance, inclusive.
+     * @return A List of characters in range, in no particular order.
+     */
+    List<Entity> entitiesWithin(Position p, int range) {
+        List<Entity> found = new ArrayList<>();
+        if (range < 0) {
+            return found;
+        }
+
+        int minX = Math.max(0, (p.x - range) / BUCKET_SIZE);
+        int maxX = Math.min(bucketsX - 1, Math.max(0, p.x + range) / BUCKET_SIZE);
+        int minY = Math.max(0, (p.y - range) / BUCKET_SIZE);
+        int maxY = Math.min(bucketsY - 1, Math.max(0, p.y + range) / BUCKET_SIZE);
+
+        for (int bx = minX; bx <= maxX; bx++) {
+            for (int by = minY; by <= maxY; by++) {
+                int b = bx * bucketsY + by;
+                for (int i = 0; i < bucketSizes[b]; i++) {
+                    Entity entity = table[buckets[b][i]];
+                    if (entity.getPOS().distanceTo(p) <= range) {
+                        found.add(entity);
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /** @return The id of the character in the cell with the index. */
+    private int occupant(int i) {
+        return occupants[i / BLOCK_SIZE][i % BLOCK_SIZE];
+    }
+
+    /** Sets the id in the cell with the index, copying its block if shared. */
+    private void setOccupant(int i, int id) {
+        int b = i / BLOCK_SIZE;
+        if (!ownedBlocks[b]) {
+            occupants[b] = occupants[b].clone();
+            ownedBlocks[b] = true;
+        }
+        occupants[b][i % BLOCK_SIZE] = id;
+    }
+
+    /** @return The table, copied first if shared. */
+    private Entity[] writableTable() {
+        if (!ownedTable) {
+            table = table.clone();
+            ownedTable = true;
+        }
+        return table;
+    }
+
+    /** @return The bucket with the index, copied first if shared. */
+    private int[] writableBucket(int b) {
+        if (!ownedSizes) {
+            bucketSizes = bucketSizes.clone();
+            ownedSizes = true;
+        }
+        if (!ownedBuckets[b] && buckets[b] != null) {
+            buckets[b] = buckets[b].clone();
+        }
+        ownedBuckets[b] = true;
+        return buckets[b];
+    }
+
+    /** @return The index of the bucket containing the coordinates. */
+    private int bucketOf(int x, int y) {
+        return (x / BUCKET_SIZE) * bucketsY + y / BUCKET_SIZE;
+    }
+
+    /** Adds an id to a bucket, growing it if needed. */
+    private void bucketAdd(int b, int id) {
+        writableBucket(b);
+        if (buckets[b] == null) {
+            buckets[b] = new int[4];
+        }
+        else if (bucketSizes[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+        }
+        buckets[b][bucketSizes[b]++] = id;
+    }
+
+    /** Removes an id from a bucket by swapping in the last id. */
+    private void bucketRemove(int b, int id) {
+        int[] bucket = writableBucket(b);
+        for (int i = 0; i < bucketSizes[b]; i++) {
+            if (bucket[i] == id) {
+                bucket[i] = bucket[--bucketSizes[b]];
+                return;
+            }
+        }
+    }
+}
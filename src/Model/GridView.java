@@ -0,0 +1,38 @@
+package Model;
+
+/**
+ * Read-only, live view of the cells of a Map.
+ * <p></p>
+ * Unlike {@code Map.getGrid()} and {@code Map.getVisibility()},
+ * a GridView copies nothing: every query reads the Map directly.
+ * It is meant for renderers and other clients that scan the
+ * whole Map, possibly many times per turn.
+ */
+public interface GridView {
+    /** @return The width, x-length of the grid. */
+    int getWidth();
+
+    /** @return The height, y-length of the grid. */
+    int getHeight();
+
+    /**
+     * @param x The x coordinate of the cell.
+     * @param y The y coordinate of the cell.
+     * @return The kind of the cell's contents.
+     */
+    EntityKind kindAt(int x, int y);
+
+    /**
+     * @param x The x coordinate of the cell.
+     * @param y The y coordinate of the cell.
+     * @return A view of the cell's contents, or null if it is empty.
+     */
+    EntityView entityAt(int x, int y);
+
+    /**
+     * @param x The x coordinate of the cell.
+     * @param y The y coordinate of the cell.
+     * @return The visibility of the cell, from 0.0 to 1.0.
+     */
+    double visibilityAt(int x, int y);
+}
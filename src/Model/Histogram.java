@@ -0,0 +1,103 @@
+package Model;
+
+/**
+ * A histogram of durations, bucketed by powers of two microseconds.
+ * <p></p>
+ * Bucket {@code i} holds durations of less than {@code 2^i}
+ * microseconds that did not fit in an earlier bucket, and the
+ * last bucket holds everything longer. Recording is constant time
+ * and allocates nothing, so it is cheap enough to time every call.
+ */
+public final class Histogram {
+    /** The number of buckets, the last covering about a second and up. */
+    public static final int BUCKETS = 21;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /** Creates an empty Histogram. */
+    public Histogram() { }
+
+    /** @param nanos A duration to add, in nanoseconds. */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        counts[Math.min(bucket, BUCKETS - 1)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Adds every duration of another Histogram, as when
+     * combining the timings of several threads.
+     * @param other The Histogram to add.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    /** @return The number of durations recorded. */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param bucket The index of the bucket, from 0 to {@code BUCKETS - 1}.
+     * @return The number of durations in the bucket.
+     */
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket The index of the bucket.
+     * @return The exclusive upper bound of the bucket in microseconds,
+     *         or {@code Long.MAX_VALUE} for the last bucket.
+     */
+    public static long bucketLimitMicros(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /** @return The mean duration in microseconds, or 0 if none were recorded. */
+    public double getMeanMicros() {
+        return count == 0 ? 0 : totalNanos / 1000.0 / count;
+    }
+
+    /** @return The longest duration in microseconds. */
+    public double getMaxMicros() {
+        return maxNanos / 1000.0;
+    }
+
+    /**
+     * Estimates a percentile from the buckets.
+     * @param fraction The percentile as a fraction, such as 0.99.
+     * @return The upper bound in microseconds of the bucket holding
+     *         the percentile, or the maximum for the last bucket.
+     */
+    public double getPercentileMicros(double fraction) {
+        long target = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(bucketLimitMicros(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.0fus p50<=%.0fus p99<=%.0fus max=%.0fus",
+                count, getMeanMicros(), getPercentileMicros(0.5),
+                getPercentileMicros(0.99), getMaxMicros());
+    }
+}
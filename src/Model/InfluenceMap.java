@@ -0,0 +1,267 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Influence fields maintained by a Map, which Enemies read to
+ * coordinate without searching.
+ * <p></p>
+ * Threat remembers where the Players have been: every turn it decays,
+ * and every Player stamps threat around its Position, falling off
+ * with distance. Crowding follows the Enemies exactly: an Enemy moving
+ * takes its stamp off the tiles around its old Position and puts it
+ * around the new one. Updates only touch the tiles within a stamp's
+ * radius, and reading a tile is one array lookup.
+ * <p></p>
+ * Decay is lazy: threat is stored divided by the decay since its
+ * column was last rescaled, so a turn costs nothing, and a column is
+ * only rescaled when it is next stamped and its values need it.
+ * Crowding is kept in ints, so moves undo each other exactly.
+ * <p></p>
+ * The fields are kept in columns, and a copy shares the columns until
+ * either index writes to them, as the Map does with visibility. Forking
+ * a Map does not copy the fields, and memory grows with the columns
+ * stamped afterwards rather than with the size of the Map.
+ */
+final class InfluenceMap {
+    /** The distance, inclusive, that a Player's threat reaches. */
+    static final int THREAT_RADIUS = 8;
+
+    /** The distance, inclusive, that an Enemy's crowding reaches. */
+    static final int CROWDING_RADIUS = 2;
+
+    /** The part of the threat that is left after a turn. */
+    private static final float DECAY = 0.5f;
+
+    /** The threat below which a tile counts as forgotten. */
+    private static final float FORGOTTEN = 1 / 64f;
+
+    /** How large stored threat may grow before it is rescaled. */
+    private static final float RESCALE = 1 << 20;
+
+    private final int width;
+    private final int height;
+
+    /** Threat at {@code [x][y]}, divided by {@code scale / columnScale[x]}. */
+    private float[][] threat;
+
+    /** The decay at which each column of threat was last rescaled. */
+    private float[] columnScale;
+
+    /** Crowding at {@code [x][y]}. */
+    private int[][] crowding;
+
+    /** The columns of each field that are not shared with a copy. */
+    private boolean[] ownedThreat;
+    private boolean[] ownedCrowding;
+
+    /** The decay since the column scales were last rescaled. */
+    private float scale = 1;
+
+    /**
+     * Creates empty fields.
+     * @param width The width of the Map.
+     * @param height The height of the Map.
+     */
+    InfluenceMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        clear();
+    }
+
+    /** Creates a copy sharing the columns of an index. */
+    private InfluenceMap(InfluenceMap source) {
+        width = source.width;
+        height = source.height;
+        threat = source.threat.clone();
+        crowding = source.crowding.clone();
+        ownedThreat = new boolean[width];
+        ownedCrowding = new boolean[width];
+        columnScale = source.columnScale.clone();
+        Arrays.fill(source.ownedThreat, false);
+        Arrays.fill(source.ownedCrowding, false);
+        scale = source.scale;
+    }
+
+    /** @return An independent copy of the fields. */
+    InfluenceMap copy() {
+        return new InfluenceMap(this);
+    }
+
+    /**
+     * Clears the fields and stamps every character, as after a floor change.
+     * @param players The Players on the Map.
+     * @param enemies The Enemies on the Map.
+     */
+    void rebuild(Collection<Player> players, Collection<Enemy> enemies) {
+        clear();
+
+        for (Player player : players) {
+            stampThreat(player.getPOS());
+        }
+        for (Enemy enemy : enemies) {
+            addEnemy(enemy.getPOS());
+        }
+    }
+
+    /**
+     * Decays the threat, then stamps it around every Player.
+     * @param players The Players on the Map.
+     */
+    void endTurn(Collection<Player> players) {
+        scale *= DECAY;
+        if (scale < 1 / RESCALE) {
+            // rescale the columns' references rather than their cells;
+            // columns left alone long enough reach infinity, reading as 0
+            for (int x = 0; x < width; x++) {
+                columnScale[x] /= scale;
+            }
+            scale = 1;
+        }
+
+        for (Player player : players) {
+            stampThreat(player.getPOS());
+        }
+    }
+
+    /** @param pos The Position of an Enemy that was placed. */
+    void addEnemy(Position pos) {
+        stampCrowding(pos, 1);
+    }
+
+    /** @param pos The Position of an Enemy that was removed. */
+    void removeEnemy(Position pos) {
+        stampCrowding(pos, -1);
+    }
+
+    /**
+     * @param from The Position the Enemy left.
+     * @param to The Position the Enemy moved to.
+     */
+    void moveEnemy(Position from, Position to) {
+        stampCrowding(from, -1);
+        stampCrowding(to, 1);
+    }
+
+    /**
+     * @param p The Position to check.
+     * @return The threat at the Position, or 0 if it is
+     *         forgotten or the Position is not on the Map.
+     */
+    float threatAt(Position p) {
+        if (!inBounds(p)) {
+            return 0;
+        }
+        float value = threat[p.x][p.y] * (scale / columnScale[p.x]);
+        return value < FORGOTTEN ? 0 : value;
+    }
+
+    /**
+     * @param p The Position to check.
+     * @return The crowding at the Position, or 0 if it is not on the Map.
+     *         Each Enemy adds {@code CROWDING_RADIUS + 1} on its own tile,
+     *         and one less for every step away.
+     */
+    int crowdingAt(Position p) {
+        return inBounds(p) ? crowding[p.x][p.y] : 0;
+    }
+
+    /**
+     * @param self The Position of the Enemy asking.
+     * @param p The Position to check.
+     * @return The crowding at the Position from every Enemy except the one asking.
+     */
+    int crowdingAround(Position self, Position p) {
+        return crowdingAt(p) - Math.max(0, CROWDING_RADIUS + 1 - self.distanceTo(p));
+    }
+
+    /** Adds threat around a Player, falling off linearly to the radius. */
+    private void stampThreat(Position pos) {
+        if (pos == null) {
+            return;
+        }
+        for (int dx = -THREAT_RADIUS; dx <= THREAT_RADIUS; dx++) {
+            int x = pos.x + dx;
+            if (x < 0 || x >= width) {
+                continue;
+            }
+            float[] column = threatColumn(x);
+            float weight = columnScale[x] / scale / (THREAT_RADIUS + 1);
+            int spread = THREAT_RADIUS - Math.abs(dx);
+            for (int dy = -spread; dy <= spread; dy++) {
+                int y = pos.y + dy;
+                if (y >= 0 && y < height) {
+                    column[y] += weight * (THREAT_RADIUS + 1 - Math.abs(dx) - Math.abs(dy));
+                }
+            }
+        }
+    }
+
+    /** Adds or takes away the crowding of an Enemy. */
+    private void stampCrowding(Position pos, int sign) {
+        if (pos == null) {
+            return;
+        }
+        for (int dx = -CROWDING_RADIUS; dx <= CROWDING_RADIUS; dx++) {
+            int x = pos.x + dx;
+            if (x < 0 || x >= width) {
+                continue;
+            }
+            int[] column = crowdingColumn(x);
+            int spread = CROWDING_RADIUS - Math.abs(dx);
+            for (int dy = -spread; dy <= spread; dy++) {
+                int y = pos.y + dy;
+                if (y >= 0 && y < height) {
+                    column[y] += sign * (CROWDING_RADIUS + 1 - Math.abs(dx) - Math.abs(dy));
+                }
+            }
+        }
+    }
+
+    /** Empties both fields, which are then owned. */
+    private void clear() {
+        threat = new float[width][height];
+        crowding = new int[width][height];
+        ownedThreat = new boolean[width];
+        ownedCrowding = new boolean[width];
+        columnScale = new float[width];
+        Arrays.fill(columnScale, 1);
+        Arrays.fill(ownedThreat, true);
+        Arrays.fill(ownedCrowding, true);
+        scale = 1;
+    }
+
+    /**
+     * @return A column of threat, copied first if shared with a copy,
+     *         and rescaled first if its values have grown too large.
+     */
+    private float[] threatColumn(int x) {
+        if (!ownedThreat[x]) {
+            threat[x] = threat[x].clone();
+            ownedThreat[x] = true;
+        }
+        float[] column = threat[x];
+        float decay = scale / columnScale[x];
+        if (decay < 1 / RESCALE) {
+            for (int y = 0; y < height; y++) {
+                column[y] *= decay;
+            }
+            columnScale[x] = scale;
+        }
+        return column;
+    }
+
+    /** @return A column of crowding, copied first if shared with a copy. */
+    private int[] crowdingColumn(int x) {
+        if (!ownedCrowding[x]) {
+            crowding[x] = crowding[x].clone();
+            ownedCrowding[x] = true;
+        }
+        return crowding[x];
+    }
+
+    private boolean inBounds(Position p) {
+        return p.x >= 0 && p.x < width && p.y >= 0 && p.y < height;
+    }
+}
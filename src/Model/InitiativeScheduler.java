@@ -0,0 +1,163 @@
+package Model;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Decides which character acts next, based on speed.
+ * <p></p>
+ * Every character waits {@code TICKS / speed} ticks between actions,
+ * so faster characters act more often. Characters are kept in a
+ * priority queue keyed on the time of their next action, with ties
+ * going to the lower id, so the order only depends on the speeds
+ * and ids given. Scheduling and taking the next character are both
+ * O(log n). Removed characters are skipped lazily when they reach
+ * the front of the queue.
+ */
+public final class InitiativeScheduler {
+    /** The number of ticks a character with speed 1 waits between actions. */
+    public static final int TICKS = 720;
+
+    /** A scheduled action. */
+    private static final class Entry implements Comparable<Entry> {
+        final long time;
+        final int id;
+
+        Entry(long time, int id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (time != other.time) {
+                return Long.compare(time, other.time);
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /** The scheduled actions, soonest first. May hold stale entries. */
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /** The live entry of each scheduled id. */
+    private final HashMap<Integer, Entry> scheduled = new HashMap<>();
+
+    /** The time of the most recent action. */
+    private long now = 0;
+
+    /** The number of rounds of TICKS counted by {@code roundPassed()}. */
+    private long rounds = 0;
+
+    /** Creates an empty scheduler at time 0. */
+    public InitiativeScheduler() { }
+
+    /**
+     * Copies the scheduler, leaving stale entries behind.
+     * Entries never change, so the copy shares them.
+     * @return An independent scheduler with the same order and time.
+     */
+    public InitiativeScheduler copy() {
+        InitiativeScheduler copy = new InitiativeScheduler();
+        copy.scheduled.putAll(scheduled);
+        copy.queue.addAll(scheduled.values());
+        copy.now = now;
+        copy.rounds = rounds;
+        return copy;
+    }
+
+    /**
+     * @param speed The speed of a character.
+     * @return The ticks the character waits between actions.
+     */
+    public static long interval(int speed) {
+        return TICKS / Math.max(1, speed);
+    }
+
+    /** @return The time of the most recent action. */
+    public long now() {
+        return now;
+    }
+
+    /** @return The number of characters scheduled. */
+    public int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Schedules a character to act after waiting for its speed,
+     * replacing any action it already had scheduled.
+     * @param id The id of the character.
+     * @param speed The speed of the character.
+     */
+    public void schedule(int id, int speed) {
+        scheduleAt(id, now + interval(speed));
+    }
+
+    /**
+     * Schedules a character to act at the current time, after
+     * anything else already scheduled then with a lower id.
+     * @param id The id of the character.
+     */
+    public void scheduleNow(int id) {
+        scheduleAt(id, now);
+    }
+
+    /** @param id The id of the character to remove. */
+    public void remove(int id) {
+        scheduled.remove(id);
+    }
+
+    /** Removes every character and resets the time to 0. */
+    public void clear() {
+        queue.clear();
+        scheduled.clear();
+        now = 0;
+        rounds = 0;
+    }
+
+    /**
+     * Counts a round passing once the time reaches its end. A round
+     * lasts TICKS, in which a character with speed 1 acts once, as
+     * every character does in a turn of phase mode.
+     * @return True if a round had passed and was counted, in
+     *         which case the next one may also have passed.
+     */
+    public boolean roundPassed() {
+        if (now < (rounds + 1) * TICKS) {
+            return false;
+        }
+        rounds++;
+        return true;
+    }
+
+    /**
+     * Takes the character that acts next, and advances the time
+     * to its action. The character is no longer scheduled, and
+     * should be scheduled again once it has acted.
+     * @return The id of the character, or -1 if none are scheduled.
+     */
+    public int next() {
+        while (!queue.isEmpty()) {
+            Entry entry = queue.poll();
+            if (scheduled.get(entry.id) == entry) {
+                scheduled.remove(entry.id);
+                now = entry.time;
+                return entry.id;
+            }
+        }
+        return -1;
+    }
+
+    private void scheduleAt(int id, long time) {
+        Entry entry = new Entry(time, id);
+        scheduled.put(id, entry);
+        queue.add(entry);
+
+        // drop stale entries once they outnumber the live ones
+        if (queue.size() > 2 * scheduled.size() + 64) {
+            queue.clear();
+            queue.addAll(scheduled.values());
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package Model;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Model class containing all information necessary
@@ -16,8 +18,8 @@ import java.util.stream.Collectors;
 public final class Map implements Pathfinding.Delegate {
 	// Private variables
 	
-	/** The characters and walls held by the map. */
-	private Entity[][] entities;
+	/** The tiles and characters held by the map. */
+	private Grid grid;
 	
 	/**
 	 * A grid of the visibility of positions on the Map.
@@ -27,17 +29,26 @@ public final class Map implements Pathfinding.Delegate {
 	 */
 	private double[][] visibility;
 	
+	/** Whether each column of visibility belongs to this Map alone. */
+	private boolean[] ownedColumns;
+	
 	/** A list of the players on the map. */
 	private List<Player> players;
 	
 	/**
-	 * A list of the enemies on the map.
+	 * The enemies on the map by id, in the order they act.
 	 * Subject to change in size as enemies are defeated.
 	 */
-	private List<Enemy> enemies;
+	private LinkedHashMap<Integer, Enemy> enemies;
+	
+	/** The enemies in the order they act. Null when out of date. */
+	private List<Enemy> enemyOrder;
 	
-	/** Held reference to Stairs. */
-	private Stairs stairs;
+	/** The next id to give to a new Entity. */
+	private int nextID = 1;
+	
+	/** The Position of the Stairs. */
+	private Position stairs;
     
     /** The type of the Map. */
 	private Type type;
@@ -45,14 +56,174 @@ public final class Map implements Pathfinding.Delegate {
 	/** The current floor number. Affects map generation. */
 	private int floor;
 	
+	/** Which Enemies can perceive which Players. */
+	private PerceptionIndex perception;
+	
+	/** Where the Players have been and where the Enemies crowd. */
+	private InfluenceMap influence;
+	
+	/** The seed that floors, Enemy decisions and combat rolls are derived from. */
+	private final long seed;
+	
+	/** The number of Enemy phases started so far. */
+	private int turnNumber = 0;
+	
+	/** Whether Enemies plan their moves in parallel. */
+	private boolean parallelPlanning = false;
+	
+	/** The distance from the Players beyond which Enemies may be dormant. */
+	private int wakeRadius = 2 * SIGHT_RANGE;
+	
+	/** The number of turns between the steps of a dormant Enemy, or 0 for none. */
+	private int dormantInterval = 4;
+	
+	/** How strong and how many the Enemies of new floors are. */
+	private Difficulty difficulty = Difficulty.NORMAL;
+	
+	/** The brain of Enemies without their own, or null for greedy moves. */
+	private EnemyBrain brain;
+	
+	/** The brains of particular Enemies, by id. */
+	private final HashMap<Integer, EnemyBrain> brains = new HashMap<>();
+	
+	/** The time each brain has to decide, in milliseconds. */
+	private long decisionDeadline = 50;
+	
+	/**
+	 * The fork brains read during the current turn, or null.
+	 * It is taken once a turn, as forking costs a pass over
+	 * the characters and has every one copied when next changed.
+	 */
+	private Map decisionSnapshot;
+	
+	/** How the Players and Enemies take turns. */
+	private TurnMode turnMode = TurnMode.PHASE;
+	
+	/** Who acts next in initiative mode. */
+	private InitiativeScheduler initiative;
+	
+	/** The Player whose turn it is in initiative mode, or null. */
+	private Player actor;
+	
+	/** The number of actions and turn ends so far. */
+	private int commandCount = 0;
+	
+	/** The commands and snapshots to rewind with, or null for forks. */
+	private CommandLog history;
+	
+	/** The cells chosen by brains during this turn, for the history. */
+	private int[] brainMoves = new int[16];
+	
+	/** The number of cells in {@code brainMoves}. */
+	private int brainMoveCount = 0;
+	
+	/** The recorded cells to use in place of brains while replaying, or null. */
+	private int[] replayMoves;
+	
+	/** The next cell to use from {@code replayMoves}. */
+	private int replayIndex = 0;
+	
+	/** The sight of Players who moved, to reveal at the end of a batch. */
+	private final List<Sight> pendingSights = new ArrayList<>();
+	
+	/** The number of changes made to the Map so far. */
+	private long version = 0;
+	
+	/**
+	 * The number of changes to where characters are.
+	 * Only moves, deaths and floor changes increase it.
+	 */
+	private long layoutVersion = 0;
+	
+	/** Counters describing the work done by the Map. */
+	private final Statistics statistics = new Statistics();
+	
+	/** Possible moves of characters, valid for one layout version. */
+	private final MoveCache moveCache = new MoveCache(statistics);
+	
+	/** The most recent changes made to the Map, oldest first. */
+	private final Deque<MapChange> changes = new ArrayDeque<>();
+	
+	/** The listeners informed of every change. */
+	private final List<Consumer<MapChange>> changeListeners = new ArrayList<>();
+	
+	/** The events of this Map. */
+	private final EventBus events;
+	
+	/** Whether events are also sent to the static log. */
+	private boolean legacyLogging = true;
+	
+	/** Sends events to the static log. */
+	private final Consumer<GameEvent> legacyForwarder = event -> logMessage(event.message);
+	
+	/**
+	 * The token marking the Players and Enemies this Map may change
+	 * in place. Forking gives both Maps new tokens, so each takes
+	 * new handles over its own store before changing a character.
+	 */
+	private Object owner = new Object();
+	
+	/**
+	 * The stats of the Players and Enemies on the Map, one slot each.
+	 * Forking freezes the store and leaves it to the characters the
+	 * Maps share, which only read it. Each Map then starts an empty
+	 * store, and copies a character's slot into it before changing it.
+	 */
+	private EntityStore store = new EntityStore(64);
+	
+	/** Live read-only view of the cells of the Map. */
+	private final GridView view = new View();
+	
+	/**
+	 * The views handed out for each character, by id. They follow
+	 * the copies this Map makes, so they stay live after a fork.
+	 */
+	private final ConcurrentHashMap<Integer, ReadOnlyEntity> views = new ConcurrentHashMap<>();
+	
+	/** Live read-only views of the Players on the Map. */
+	private final List<EntityView> playerViews = new AbstractList<EntityView>() {
+		@Override
+		public EntityView get(int index) {
+			return viewOf(players.get(index));
+		}
+		
+		@Override
+		public int size() {
+			return players.size();
+		}
+	};
+	
+	/** Live read-only views of the Enemies on the Map. */
+	private final List<EntityView> enemyViews = new AbstractList<EntityView>() {
+		@Override
+		public EntityView get(int index) {
+			return viewOf(enemyList().get(index));
+		}
+		
+		@Override
+		public int size() {
+			return enemies.size();
+		}
+	};
+	
 	// Static variables
 	
 	/**
-	 * A log of the twenty most recent events.
+	 * A log of the twenty most recent messages of every Map.
 	 * Stored in a Deque for better insertion/removal times,
 	 * but is returned as a chronological List in {@code getLog()}.
+	 * Guarded by itself.
 	 */
-	private static Deque<String> log = new ArrayDeque<>();
+	private static final Deque<String> log = new ArrayDeque<>();
+	
+	/** The number of events kept by the static log and each EventBus. */
+	private static final int LOG_SIZE = 20;
+	
+	/** The range at which Players see and Enemies perceive. */
+	private static final int SIGHT_RANGE = 7;
+	
+	/** The number of changes kept for {@code changesSince()}. */
+	private static final int CHANGE_HISTORY = 4096;
     
     // Constructors
     
@@ -67,31 +238,121 @@ public final class Map implements Pathfinding.Delegate {
 	 * @param y The height of the Map.
 	 */
 	public Map(int x, int y) {
+		this(x, y, new Random().nextLong());
+	}
+	
+	/**
+	 * Creates a Map with the specified dimensions and seed.
+	 * Maps with the same seed generate the same Players and floors,
+	 * and Enemies make the same decisions on them, whether they plan
+	 * in parallel or not, so the same commands play the same game.
+	 * @param x The width of the Map.
+	 * @param y The height of the Map.
+	 * @param seed The seed for generation, Enemy decisions and combat.
+	 */
+	public Map(int x, int y, long seed) {
+		this.seed = seed;
+		
 		// create lists
-		entities = new Entity[x][y];
+		grid = new Grid(x, y);
 		visibility = new double[x][y];
+		ownedColumns = new boolean[x];
+		Arrays.fill(ownedColumns, true);
 		players = new ArrayList<>();
-		enemies = new ArrayList<>();
+		enemies = new LinkedHashMap<>();
+		perception = new PerceptionIndex(SIGHT_RANGE);
+		influence = new InfluenceMap(x, y);
+		initiative = new InitiativeScheduler();
+		events = new EventBus(LOG_SIZE);
 		
 		// set var defaults
 		floor = 0;
 		type = Type.TOWER;
 		
 		// create players
-		players.add(Player.randomPlayer());
-		players.add(Player.randomPlayer());
-		players.add(Player.randomPlayer());
+		SplittableRandom rand = generationRandom();
+		players.add(Player.randomPlayer(rand));
+		players.add(Player.randomPlayer(rand));
+		players.add(Player.randomPlayer(rand));
+		players.forEach(player -> {
+			player.setID(nextID++);
+			admit(player);
+		});
+		
+		// forward to the static log for older clients
+		events.subscribe(legacyForwarder);
+		
+		history = new CommandLog();
+		checkpoint();
+	}
+	
+	/**
+	 * Creates a fork of a Map. Everything is shared with the source
+	 * until either Map changes it, except for the small per-character
+	 * lists, which are copied.
+	 * @param source The Map to fork.
+	 */
+	private Map(Map source) {
+		seed = source.seed;
+		
+		// share the grid, visibility and characters until written
+		grid = source.grid.fork();
+		visibility = source.visibility.clone();
+		ownedColumns = new boolean[visibility.length];
+		Arrays.fill(source.ownedColumns, false);
+		source.owner = new Object();
+		int characters = source.players.size() + source.enemies.size();
+		source.store.freeze();
+		source.store = new EntityStore(characters);
+		store = new EntityStore(characters);
+		
+		players = new ArrayList<>(source.players);
+		enemies = new LinkedHashMap<>(source.enemies);
+		perception = source.perception.copy();
+		influence = source.influence.copy();
+		initiative = source.initiative.copy();
+		brains.putAll(source.brains);
+		
+		nextID = source.nextID;
+		commandCount = source.commandCount;
+		stairs = source.stairs;
+		type = source.type;
+		floor = source.floor;
+		turnNumber = source.turnNumber;
+		parallelPlanning = source.parallelPlanning;
+		wakeRadius = source.wakeRadius;
+		dormantInterval = source.dormantInterval;
+		difficulty = source.difficulty;
+		brain = source.brain;
+		decisionDeadline = source.decisionDeadline;
+		turnMode = source.turnMode;
+		actor = source.actor;
+		version = source.version;
+		layoutVersion = source.layoutVersion;
+		
+		// forks are quiet: nothing is sent to the static log,
+		// and no history is kept
+		events = new EventBus(LOG_SIZE, LOG_SIZE);
+		legacyLogging = false;
 	}
 	
 	// Static public API
 	
+	/*
+	 * The static log is shared by every Map in the JVM, and is kept
+	 * for clients written before each Map had its own EventBus.
+	 * Maps forward their events to it unless legacy logging is off.
+	 */
+	
 	/** @return The List of recent messages. */
 	static public List<String> getLog() {
-		return new ArrayList<>(log);
+		synchronized (log) {
+			return new ArrayList<>(log);
+		}
 	}
 	
 	/** The method to call when messages are logged by Map. */
-	static public Consumer<String> logHandler;
+	static public volatile Consumer<String> logHandler;
 	
 	/**
 	 * Adds a message to the log list.
@@ -101,37 +362,100 @@ public final class Map implements Pathfinding.Delegate {
 	 * @param message The message to add.
 	 */
 	static public void logMessage(String message) {
-		// limit to 20 messages
-		while (log.size() >= 20) {
-			log.removeLast();
+		synchronized (log) {
+			// limit to 20 messages
+			while (log.size() >= LOG_SIZE) {
+				log.removeLast();
+			}
+			
+			log.addFirst(message);
 		}
 		
-		log.addFirst(message);
-		
 		// inform handler
-		if (logHandler != null) {
-			logHandler.accept(message);
+		Consumer<String> handler = logHandler;
+		if (handler != null) {
+			handler.accept(message);
 		}
 	}
 	
 	// Public API
 	
+	/**
+	 * Forks the game, for lookahead searches and what-if tools.
+	 * <p></p>
+	 * The fork starts out identical to this Map, but from then on
+	 * each changes independently of the other. The terrain is shared,
+	 * and everything else is shared until one of the Maps changes it,
+	 * so forking costs little more than copying the lists of Players
+	 * and Enemies, and memory grows with the changes made afterwards.
+	 * <p></p>
+	 * The fork has its own events, statistics and change history,
+	 * continuing from this Map's version, with no listeners and with
+	 * legacy logging off. Brains and settings carry over. Forks keep
+	 * no command history, so they cannot be rewound.
+	 * @return The new Map.
+	 */
+	public Map fork() {
+		return new Map(this);
+	}
+	
 	/** Types of Maps. */
 	public enum Type {
 		CAVE, DUNGEON, TOWER
 	}
 	
+	/** Ways for Players and Enemies to take turns. */
+	public enum TurnMode {
+		/**
+		 * Every Player acts, then {@code endTurn()} moves every
+		 * Enemy in order.
+		 */
+		PHASE,
+		/**
+		 * Players and Enemies act one at a time, more often the
+		 * higher their speed. Only the Player returned by
+		 * {@code getActor()} may act, and {@code endTurn()} ends
+		 * their turn and moves Enemies until a Player is next.
+		 */
+		INITIATIVE
+	}
+	
 	/** @return The type of the Map. */
 	public Type getType() {
 		return type;
 	}
 	
-	/** @return A copy of the entities represented by this Map. */
+	/**
+	 * Walls and stairs are the shared, immutable
+	 * {@link Obstacle#WALL} and {@link Stairs#TILE} instances.
+	 * @return A copy of the entities represented by this Map.
+	 */
 	public Entity[][] getGrid() {
-		return Arrays.stream(entities).map(arr ->
-				Arrays.stream(arr).map(entity -> entity == null ? null : entity.copy())
-						.toArray(Entity[]::new))
-				.toArray(Entity[][]::new);
+		Entity[][] copy = new Entity[getWidth()][getHeight()];
+		
+		for (int x = 0; x < getWidth(); x++) {
+			for (int y = 0; y < getHeight(); y++) {
+				switch (grid.tileAt(x, y)) {
+					case Grid.WALL: copy[x][y] = Obstacle.WALL; break;
+					case Grid.STAIRS: copy[x][y] = Stairs.TILE; break;
+					default:
+						Entity entity = grid.entityAt(x, y);
+						copy[x][y] = entity == null ? null : entity.copy();
+				}
+			}
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Returns a live, read-only view of the Map's cells.
+	 * Unlike {@code getGrid()}, nothing is copied, so this
+	 * should be preferred by clients that only read the Map.
+	 * @return The GridView of this Map.
+	 */
+	public GridView view() {
+		return view;
 	}
 	
 	/** @return A copy of the visibility of the Map. */
@@ -149,10 +473,214 @@ public final class Map implements Pathfinding.Delegate {
 	
 	/** @return A copy of the Enemies on the Map. */
 	public List<Enemy> getEnemies() {
-		return enemies.stream().map(enemy -> (Enemy) enemy.copy())
+		return enemies.values().stream().map(enemy -> (Enemy) enemy.copy())
 				.collect(Collectors.toList());
 	}
 	
+	/**
+	 * Returns live, read-only views of the Players on the Map.
+	 * The List cannot be modified, and changes as Players die.
+	 * @return A List of views of the Players.
+	 */
+	public List<EntityView> getPlayerViews() {
+		return playerViews;
+	}
+	
+	/**
+	 * Returns live, read-only views of the Enemies on the Map.
+	 * The List cannot be modified, and changes as Enemies die.
+	 * @return A List of views of the Enemies.
+	 */
+	public List<EntityView> getEnemyViews() {
+		return enemyViews;
+	}
+	
+	/**
+	 * Messages and other events of this Map are posted here,
+	 * including those of the Players and Enemies on it.
+	 * @return The EventBus of this Map.
+	 */
+	public EventBus events() {
+		return events;
+	}
+	
+	/** @return True if events are also sent to the static log. */
+	public boolean isLegacyLogging() {
+		return legacyLogging;
+	}
+	
+	/**
+	 * Sets whether the events of this Map are also sent to the static
+	 * {@code getLog()} and {@code logHandler}, which every Map shares.
+	 * Turn this off when running more than one Map at a time.
+	 * @param legacyLogging True to forward events to the static log.
+	 */
+	public void setLegacyLogging(boolean legacyLogging) {
+		if (legacyLogging && !this.legacyLogging) {
+			events.subscribe(legacyForwarder);
+		}
+		else if (!legacyLogging) {
+			events.unsubscribe(legacyForwarder);
+		}
+		this.legacyLogging = legacyLogging;
+	}
+	
+	/** @return Counters describing the work done by the Map. */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+	
+	/** @return The seed for generation, Enemy decisions and combat. */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/** @return The number of times {@code endTurn()} has been called. */
+	public int getTurnNumber() {
+		return turnNumber;
+	}
+	
+	/** @return True if Enemies plan their moves in parallel. */
+	public boolean isParallelPlanning() {
+		return parallelPlanning;
+	}
+	
+	/**
+	 * Sets whether Enemies plan their moves in parallel.
+	 * <p></p>
+	 * In parallel, awake Enemies first plan against the Map as
+	 * it stood at the start of the Enemy phase. The plans are
+	 * then carried out one at a time in the usual order, and an
+	 * Enemy plans again if an earlier Enemy changed a cell its
+	 * plan read: one it could reach or, for Enemies chasing a
+	 * Player, one their path or crowding depended on. Both
+	 * modes therefore make exactly the same moves.
+	 * @param parallelPlanning True to plan in parallel.
+	 */
+	public void setParallelPlanning(boolean parallelPlanning) {
+		this.parallelPlanning = parallelPlanning;
+	}
+	
+	/** @return The distance from the Players beyond which Enemies may be dormant. */
+	public int getWakeRadius() {
+		return wakeRadius;
+	}
+	
+	/**
+	 * Sets how far from the Players Enemies stay awake.
+	 * <p></p>
+	 * An Enemy farther than this from every Player, perceiving
+	 * none of them and without a brain, is dormant: it does not
+	 * plan its move, and only takes a step in a random direction
+	 * every few turns. It wakes as soon as it perceives a Player
+	 * or one comes within range, so the Enemy phase costs about
+	 * as much as the Enemies near the Players, however many
+	 * others there are.
+	 * @param wakeRadius The distance, or Integer.MAX_VALUE to keep every Enemy awake.
+	 */
+	public void setWakeRadius(int wakeRadius) {
+		this.wakeRadius = wakeRadius;
+	}
+	
+	/** @return How strong and how many the Enemies of new floors are. */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+	
+	/**
+	 * Sets how strong and how many the Enemies of new floors are.
+	 * Floors already generated keep their Enemies.
+	 * @param difficulty The Difficulty, such as {@code Difficulty.NORMAL}.
+	 */
+	public void setDifficulty(Difficulty difficulty) {
+		this.difficulty = Objects.requireNonNull(difficulty);
+	}
+	
+	/** @return The number of turns between the steps of a dormant Enemy, or 0 for none. */
+	public int getDormantInterval() {
+		return dormantInterval;
+	}
+	
+	/**
+	 * Sets how often dormant Enemies step. Their steps are spread
+	 * over the turns by id, so a few of them step every turn.
+	 * @param dormantInterval The number of turns between steps, or 0 for no steps.
+	 */
+	public void setDormantInterval(int dormantInterval) {
+		this.dormantInterval = dormantInterval;
+	}
+	
+	/**
+	 * Sets the brain used by Enemies that have none of their own.
+	 * Decisions are made on an {@link AIExecutor}, all at once,
+	 * before any Enemy moves.
+	 * @param brain The EnemyBrain, or null for the greedy move.
+	 */
+	public void setEnemyBrain(EnemyBrain brain) {
+		this.brain = brain;
+		checkpoint();
+	}
+	
+	/**
+	 * Sets the brain of a single Enemy, overriding the Map's brain.
+	 * @param id The stable id of the Enemy.
+	 * @param brain The EnemyBrain, or null to use the Map's brain.
+	 */
+	public void setEnemyBrain(int id, EnemyBrain brain) {
+		if (brain == null) {
+			brains.remove(id);
+		}
+		else {
+			brains.put(id, brain);
+		}
+		checkpoint();
+	}
+	
+	/** @return How the Players and Enemies take turns. */
+	public TurnMode getTurnMode() {
+		return turnMode;
+	}
+	
+	/**
+	 * Sets how the Players and Enemies take turns.
+	 * Switching to initiative mode gives every Player a turn
+	 * before any Enemy acts.
+	 * @param turnMode The TurnMode to use.
+	 */
+	public void setTurnMode(TurnMode turnMode) {
+		this.turnMode = turnMode;
+		if (turnMode == TurnMode.INITIATIVE) {
+			resetInitiative();
+		}
+		else {
+			initiative.clear();
+			actor = null;
+		}
+		checkpoint();
+	}
+	
+	/**
+	 * @return A read-only view of the Player whose turn it is
+	 *         in initiative mode, or null in phase mode.
+	 */
+	public EntityView getActor() {
+		return actor == null ? null : viewOf(actor);
+	}
+	
+	/** @return The time each brain has to decide, in milliseconds. */
+	public long getDecisionDeadline() {
+		return decisionDeadline;
+	}
+	
+	/**
+	 * Sets the time each brain has to decide. Enemies whose brain
+	 * takes longer make the greedy move instead.
+	 * @param millis The deadline in milliseconds.
+	 */
+	public void setDecisionDeadline(long millis) {
+		decisionDeadline = millis;
+	}
+	
 	/** @return The floor number. */
 	public int getFloor() {
 		return floor;
@@ -160,12 +688,12 @@ public final class Map implements Pathfinding.Delegate {
 	
 	/** @return The width, x-length of the map. */
 	public int getWidth() {
-		return entities.length;
+		return grid.getWidth();
 	}
 	
 	/** @return The height, y-length of the map. */
 	public int getHeight() {
-		return entities.length == 0 ? 0 : entities[0].length;
+		return grid.getHeight();
 	}
 	
 	/**
@@ -177,131 +705,592 @@ public final class Map implements Pathfinding.Delegate {
 				&& p.y >= 0 && p.y < getHeight();
 	}
 	
-	// Public functions
+	/**
+	 * @param id The stable id of the Entity.
+	 * @return A live, read-only view of the Player or Enemy
+	 *         with the id, or null if there is none on the Map.
+	 */
+	public EntityView entityByID(int id) {
+		Entity entity = grid.byID(id);
+		return entity == null ? null : viewOf(entity);
+	}
 	
-	/** Updates visibility for the whole Map. */
-	private void updateVisibility() {
-		// go through each player position
-		players.stream().map(Player::getPOS).forEach(pos -> {
-			for (Position pos2 : Pathfinding.visibility(this, pos, 7)) {
-				// check OOB
-				if (!positionOnMap(pos2)) {
-					continue;
-				}
-				
-				// parabolic opacity curve
-				double opacity = -Math.pow(pos.distanceTo(pos2) / 7.0, 2) + 1.1;
-				if (opacity > visibility[pos2.x][pos2.y]) {
-					visibility[pos2.x][pos2.y] = Math.min(1, opacity);
-				}
-			}
-		});
+	/**
+	 * Finds the Players and Enemies near a Position.
+	 * @param p The Position to search around.
+	 * @param range The maximum rectilinear distance, inclusive.
+	 * @return Live, read-only views of the characters in range.
+	 */
+	public List<EntityView> entitiesWithin(Position p, int range) {
+		return grid.entitiesWithin(p, range).stream()
+				.map(this::viewOf).collect(Collectors.toList());
 	}
 	
-	/** Increments the floor number and recreates the Map. */
-	public void nextFloor() {
-		floor += 1;
-		
-		// reset variables
-		visibility = new double[getWidth()][getHeight()];
-		players.forEach(player -> player.setSTM(player.getSPD()));
-		
-		// different types based on floor
-		if (floor <= 3) {
-			type = Type.TOWER;
-			entities = MapGenerator.generateCircle(getWidth(), getHeight());
-		}
-		else if (floor <= 6) {
-			type = Type.CAVE;
-			entities = MapGenerator.generateCave(getWidth(), getHeight());
-		}
-		else if (floor <= 9) {
-			type = Type.DUNGEON;
-			entities = MapGenerator.generateDungeon(getWidth(), getHeight());
-		}
-		else {
-			type = Type.DUNGEON;
-			entities = MapGenerator.generateBossRoom(getWidth(), getHeight());
-		}
-		
-		MapGenerator.placePlayers(entities, players);
-		stairs = MapGenerator.placeStairs(entities, players);
-		enemies = MapGenerator.placeEnemies(entities, players, floor);
-		
-		updateVisibility();
+	// Change tracking
+	
+	/**
+	 * The version increases by one for every change made to the Map.
+	 * @return The current version of the Map.
+	 */
+	public long getVersion() {
+		return version;
 	}
 	
 	/**
-	 * Calculates the possible moves for an Player at a Position.
-	 * @param p The Position of the Player.
-	 * @return A Set of Positions that the Player can move to.
+	 * Returns the changes made after a version, oldest first.
+	 * Only a limited number of changes are kept, so clients
+	 * that fall too far behind must read the whole Map again.
+	 * @param version The last version the client has seen.
+	 * @return A List of changes, or null if the changes since
+	 *         the version are no longer available.
 	 */
-	public Set<Position> possibleMovesForCharacter(Position p) {
-		// no character at position, return empty set
-		if (!(entities[p.x][p.y] instanceof Player)) {
-			return new HashSet<>();
+	public List<MapChange> changesSince(long version) {
+		if (version >= this.version) {
+			return new ArrayList<>();
 		}
-		
-		// get moves and range
-		int range = ((Player) entities[p.x][p.y]).getSTM();
-		if (range == 0) {
-			return new HashSet<>();
+		if (changes.isEmpty() || changes.peekFirst().version > version + 1) {
+			return null;
 		}
-		Set<Position> moves = possibleMovesForEntity(p, range);
-		
-		// add enemy attacks
-		moves.addAll(enemies.stream().map(Enemy::getPOS).filter(pos ->
-				// enemy in range of attack and open square next to the position
-				Pathfinding.shortestPath(this, p, pos).size() < range
-						&& moves.stream().anyMatch(pos2 -> pos2.distanceTo(pos) == 1)
-		).collect(Collectors.toList()));
 		
-		// add stairs
-		if (Pathfinding.shortestPath(this, p, stairs.getPOS()).size() < range
-				&& moves.stream().anyMatch(
-						pos -> pos.distanceTo(stairs.getPOS()) == 1)) {
-			moves.add(stairs.getPOS());
+		List<MapChange> since = new ArrayList<>();
+		Iterator<MapChange> it = changes.descendingIterator();
+		while (it.hasNext()) {
+			MapChange change = it.next();
+			if (change.version <= version) {
+				break;
+			}
+			since.add(change);
 		}
 		
-		return moves;
+		Collections.reverse(since);
+		return since;
 	}
 	
 	/**
-	 * Calculates the possible moves for an Enemy at a Position.
-	 * This method should not need to be called
-	 * outside of Enemy.makeMove().
-	 * @param p The Position of the Enemy.
-	 * @return A Set of Positions that the Enemy can move to.
+	 * Registers a listener to be informed of every change
+	 * as soon as it is made.
+	 * @param listener The listener to add.
 	 */
-	public Set<Position> possibleMovesForEnemy(Position p) {
-		if (!(entities[p.x][p.y] instanceof Enemy)) {
-			return new HashSet<>();
-		}
-		
-		// get moves and range
-		int range = entities[p.x][p.y].getSPD();
-		Set<Position> moves = possibleMovesForEntity(p, range);
-		
-		// add player attacks
-		moves.addAll(players.stream().map(Player::getPOS).filter(pos ->
-				Pathfinding.shortestPath(this, p, pos).size() < range
-						&& moves.stream().anyMatch(pos2 -> pos2.distanceTo(pos) == 1)
-		).collect(Collectors.toList()));
-		
-		return moves;
+	public void addChangeListener(Consumer<MapChange> listener) {
+		changeListeners.add(listener);
 	}
 	
-	// Interaction functions
+	/** @param listener The listener to remove. */
+	public void removeChangeListener(Consumer<MapChange> listener) {
+		changeListeners.remove(listener);
+	}
+	
+	// Command history
 	
 	/**
-	 * Attempts to process an action.
-	 * @param p1 The Entity performing the action.
-	 * @param p2 The destination Position for the action.
-	 * @return A Turn representing the action taken,
-	 * or null if no changes occurred.
+	 * Every successful {@code processAction()} and every
+	 * {@code endTurn()} is a command.
+	 * @return The number of commands given to the Map so far.
 	 */
-	public Turn processAction(Position p1, Position p2) {
-		// invalid
+	public int getCommandCount() {
+		return commandCount;
+	}
+	
+	/** @return The number of bytes used to log the commands. */
+	public int getCommandBytes() {
+		return history == null ? 0 : history.getBytes();
+	}
+	
+	/**
+	 * Rewinds the Map to how it was after a number of commands,
+	 * forgetting the commands after it. The nearest snapshot is
+	 * restored, and the commands after it are replayed on a quiet
+	 * fork, so no events are posted. Change listeners are informed
+	 * with a REWIND change, and changes from before it are forgotten.
+	 * <p></p>
+	 * Brains are not asked again: Enemies with brains make the
+	 * moves recorded for them. Brain settings and the turn mode
+	 * are rewound with everything else.
+	 * @param index The number of commands to keep, from 0 to
+	 *              {@code getCommandCount()}.
+	 * @throws IllegalArgumentException If the index is out of range.
+	 * @throws IllegalStateException If the Map is a fork.
+	 */
+	public void rewindTo(int index) {
+		if (history == null) {
+			throw new IllegalStateException("Forks keep no history");
+		}
+		if (index < 0 || index > history.getCount()) {
+			throw new IllegalArgumentException("No command " + index);
+		}
+		
+		// replay on a fork of the snapshot, which is never changed
+		CommandLog.Snapshot snapshot = history.snapshotAt(index);
+		Map replay = new Map(snapshot.state);
+		CommandLog.Cursor cursor = history.cursor(snapshot);
+		while (cursor.index < index && cursor.next()) {
+			replay.replay(cursor);
+		}
+		
+		adopt(replay);
+		history.truncate(index, cursor.offset);
+		changes.clear();
+		record(MapChange.Type.REWIND, null, null, index);
+	}
+	
+	// Point queries
+	
+	/**
+	 * @param p The Position to check.
+	 * @return The kind of the cell at the Position,
+	 *         or null if the Position is not on the Map.
+	 */
+	public EntityKind entityKindAt(Position p) {
+		return positionOnMap(p) ? view.kindAt(p.x, p.y) : null;
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the Entity at a Position.
+	 * Walls and stairs are already immutable, so the shared
+	 * tiles are returned for them without allocating.
+	 * @param p The Position to check.
+	 * @return A snapshot of the Entity, or null if the cell
+	 *         is empty or the Position is not on the Map.
+	 */
+	public EntityView entitySnapshotAt(Position p) {
+		if (!positionOnMap(p)) {
+			return null;
+		}
+		
+		Entity entity = grid.entityAt(p.x, p.y);
+		return entity == null ? view.entityAt(p.x, p.y) : new EntitySnapshot(entity);
+	}
+	
+	/**
+	 * @param p The Position to check.
+	 * @return The visibility of the Position from 0.0 to 1.0,
+	 *         or 0.0 if the Position is not on the Map.
+	 */
+	public double visibilityAt(Position p) {
+		return positionOnMap(p) ? visibility[p.x][p.y] : 0;
+	}
+	
+	/**
+	 * @param p The Position to check.
+	 * @return The threat of the Players at the Position, highest where
+	 *         they stand and decaying where they have been,
+	 *         or 0.0 if the Position is not on the Map.
+	 */
+	public double threatAt(Position p) {
+		return influence.threatAt(p);
+	}
+	
+	/**
+	 * @param p The Position to check.
+	 * @return How crowded the Position is by Enemies, or 0 if it is not on the Map.
+	 *         Each Enemy adds the most on its own tile, and one less for every step away.
+	 */
+	public int crowdingAt(Position p) {
+		return influence.crowdingAt(p);
+	}
+	
+	/**
+	 * Returns the kinds of the cells in a rectangle of the Map.
+	 * Only the rectangle is allocated, so this is suited
+	 * to reading a viewport or a small area around a Position.
+	 * @param corner The corner of the rectangle with the lowest x and y.
+	 * @param width The x-length of the rectangle.
+	 * @param height The y-length of the rectangle.
+	 * @return A [width][height] array of kinds, relative to the corner.
+	 *         Cells that are not on the Map are null.
+	 */
+	public EntityKind[][] kindsIn(Position corner, int width, int height) {
+		EntityKind[][] kinds = new EntityKind[width][height];
+		
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int mx = corner.x + x, my = corner.y + y;
+				if (grid.inBounds(mx, my)) {
+					kinds[x][y] = view.kindAt(mx, my);
+				}
+			}
+		}
+		
+		return kinds;
+	}
+	
+	/**
+	 * Returns the visibility of the cells in a rectangle of the Map.
+	 * @param corner The corner of the rectangle with the lowest x and y.
+	 * @param width The x-length of the rectangle.
+	 * @param height The y-length of the rectangle.
+	 * @return A [width][height] array of visibility, relative to the
+	 *         corner. Cells that are not on the Map are 0.0.
+	 */
+	public double[][] visibilityIn(Position corner, int width, int height) {
+		double[][] values = new double[width][height];
+		
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int mx = corner.x + x, my = corner.y + y;
+				if (grid.inBounds(mx, my)) {
+					values[x][y] = visibility[mx][my];
+				}
+			}
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Returns the Positions of the Enemies that can perceive
+	 * the Player at a Position, without any line of sight checks.
+	 * @param p The Position of the Player.
+	 * @return A List of Enemy Positions, empty if there is no Player.
+	 */
+	public List<Position> enemiesPerceiving(Position p) {
+		if (!positionOnMap(p) || !(grid.entityAt(p.x, p.y) instanceof Player)) {
+			return new ArrayList<>();
+		}
+		
+		return perception.enemiesPerceiving((Player) grid.entityAt(p.x, p.y))
+				.stream().map(id -> grid.byID(id).getPOS()).collect(Collectors.toList());
+	}
+	
+	// Public functions
+	
+	/** Updates visibility for the whole Map. */
+	private void updateVisibility() {
+		// go through each player's cached sight
+		for (Player player : players) {
+			reveal(player.getPOS(), perception.sightOf(player));
+		}
+	}
+	
+	/**
+	 * Reveals everything seen by Players who moved since the last
+	 * call. Visibility only ever increases, so revealing every
+	 * Position a Player stopped at once, at the end of a batch,
+	 * gives the same result as revealing after every action.
+	 */
+	private void revealPending() {
+		for (Sight sight : pendingSights) {
+			reveal(sight.eye, sight.tiles);
+		}
+		pendingSights.clear();
+	}
+	
+	/**
+	 * Raises the visibility of the tiles seen from a Position.
+	 * @param pos The Position seen from.
+	 * @param sight The tiles visible from the Position.
+	 */
+	private void reveal(Position pos, Set<Position> sight) {
+		for (Position pos2 : sight) {
+			// check OOB
+			if (!positionOnMap(pos2)) {
+				continue;
+			}
+			
+			// parabolic opacity curve
+			double opacity = -Math.pow(pos.distanceTo(pos2) / (double) SIGHT_RANGE, 2) + 1.1;
+			if (opacity > visibility[pos2.x][pos2.y]) {
+				writableColumn(pos2.x)[pos2.y] = Math.min(1, opacity);
+				record(MapChange.Type.VISIBILITY, null, pos2,
+						visibility[pos2.x][pos2.y]);
+			}
+		}
+	}
+	
+	/** Increments the floor number and recreates the Map. */
+	public void nextFloor() {
+		floor += 1;
+		
+		// reset variables
+		visibility = new double[getWidth()][getHeight()];
+		pendingSights.clear();
+		Arrays.fill(ownedColumns, true);
+		players.forEach(player -> own(player).setSTM(player.getSPD()));
+		views.keySet().retainAll(players.stream()
+				.map(Player::getID).collect(Collectors.toSet()));
+		
+		// different types based on floor
+		SplittableRandom rand = generationRandom();
+		if (floor <= 3) {
+			type = Type.TOWER;
+			grid = MapGenerator.generateCircle(getWidth(), getHeight(), rand);
+		}
+		else if (floor <= 6) {
+			type = Type.CAVE;
+			grid = MapGenerator.generateCave(getWidth(), getHeight(), rand);
+		}
+		else if (floor <= 9) {
+			type = Type.DUNGEON;
+			grid = MapGenerator.generateDungeon(getWidth(), getHeight(), rand);
+		}
+		else {
+			type = Type.DUNGEON;
+			grid = MapGenerator.generateBossRoom(getWidth(), getHeight());
+		}
+		
+		grid.setNextID(nextID);
+		MapGenerator.placePlayers(grid, players, rand);
+		// a new Player is placed if every Player has died
+		players.stream().filter(player -> player.store().isLoose()).forEach(this::admit);
+		stairs = MapGenerator.placeStairs(grid, players, rand);
+		enemies.values().forEach(this::release);
+		enemies = new LinkedHashMap<>();
+		for (Enemy enemy : MapGenerator.placeEnemies(grid, players, floor, difficulty, rand)) {
+			admit(enemy);
+			enemies.put(enemy.getID(), enemy);
+		}
+		enemyOrder = null;
+		nextID = grid.getNextID();
+		perception.rebuild(this, players, enemies.values());
+		influence.rebuild(players, enemies.values());
+		record(MapChange.Type.FLOOR, null, null, floor);
+		if (turnMode == TurnMode.INITIATIVE) {
+			resetInitiative();
+		}
+		
+		updateVisibility();
+		checkpoint();
+	}
+	
+	/**
+	 * Places additional random Enemies on empty tiles of the
+	 * current floor, away from the Players. Useful for stress
+	 * tests and benchmarks of large floors.
+	 * @param count The number of Enemies to add.
+	 * @return The number of Enemies that fit on the floor.
+	 */
+	public int addEnemies(int count) {
+		grid.setNextID(nextID);
+		List<Enemy> added = MapGenerator.addEnemies(grid, players, floor, count, difficulty, generationRandom());
+		nextID = grid.getNextID();
+		
+		for (Enemy enemy : added) {
+			admit(enemy);
+			enemies.put(enemy.getID(), enemy);
+			if (turnMode == TurnMode.INITIATIVE) {
+				initiative.schedule(enemy.getID(), enemy.getSPD());
+			}
+			perception.updateEnemy(enemy);
+			influence.addEnemy(enemy.getPOS());
+			record(MapChange.Type.SPAWN, null, enemy.getPOS(), 0);
+		}
+		enemyOrder = null;
+		checkpoint();
+		
+		return added.size();
+	}
+	
+	/**
+	 * Calculates the possible moves for an Player at a Position.
+	 * Moves are cached until a character moves or dies.
+	 * @param p The Position of the Player.
+	 * @return A Set of Positions that the Player can move to.
+	 */
+	public Set<Position> possibleMovesForCharacter(Position p) {
+		return new PositionSet(movesForCharacter(p));
+	}
+	
+	/**
+	 * Cached version of {@code possibleMovesForCharacter()}
+	 * for use within the Model.
+	 * @param p The Position of the Player.
+	 * @return An unmodifiable Set of Positions.
+	 */
+	Set<Position> movesForCharacter(Position p) {
+		// no character at position, return empty set
+		if (!(grid.entityAt(p.x, p.y) instanceof Player)) {
+			return Collections.emptySet();
+		}
+		
+		// get moves and range
+		Player player = (Player) grid.entityAt(p.x, p.y);
+		int range = player.getSTM();
+		if (range == 0) {
+			return Collections.emptySet();
+		}
+		
+		return moveCache.get(layoutVersion, player.getID(), range,
+				() -> computeMovesForCharacter(p, range));
+	}
+	
+	/** Calculates the possible moves for a Player with a range. */
+	private Set<Position> computeMovesForCharacter(Position p, int range) {
+		PositionIntMap distances = new PositionIntMap(Pathfinding.reachable(range));
+		Set<Position> moves = possibleMovesForEntity(p, range, distances);
+		
+		// add enemy attacks (a path shorter than the range
+		// can only reach enemies within the range)
+		moves.addAll(grid.entitiesWithin(p, range).stream()
+				.filter(entity -> entity instanceof Enemy).map(Entity::getPOS)
+				.filter(pos -> reachableNextTo(distances, pos, range))
+				.collect(Collectors.toList()));
+		
+		// add stairs
+		if (stairs != null && reachableNextTo(distances, stairs, range)) {
+			moves.add(stairs);
+		}
+		
+		return moves;
+	}
+	
+	/**
+	 * Checks whether a character can step onto a Position
+	 * it cannot move through, such as an Enemy or the stairs.
+	 * @param distances The number of steps to each tile the character can reach.
+	 * @param target The Position to step onto.
+	 * @param range The range of the character.
+	 * @return True if a tile next to the Position can be
+	 *         reached with a step to spare.
+	 */
+	private static boolean reachableNextTo(PositionIntMap distances, Position target, int range) {
+		for (int dir = 0; dir < PackedPosition.NEIGHBOURS; dir++) {
+			int packed = PackedPosition.neighbour(PackedPosition.pack(target), dir);
+			if (distances.get(PackedPosition.x(packed), PackedPosition.y(packed), range) < range) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the Positions of the Players an Enemy perceives.
+	 * Enemies that perceive nobody cost nothing to check.
+	 * @param enemy The Enemy to check.
+	 * @return A List of Player Positions.
+	 */
+	List<Position> playersPerceivedBy(Enemy enemy) {
+		Set<Integer> perceived = perception.playersPerceivedBy(enemy);
+		if (perceived.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		return perceived.stream().map(id -> grid.byID(id).getPOS())
+				.collect(Collectors.toList());
+	}
+	
+	/** @return The influence fields, for Enemies choosing moves. */
+	InfluenceMap influence() {
+		return influence;
+	}
+	
+	/**
+	 * Calculates the possible moves for an Enemy at a Position.
+	 * This method should not need to be called
+	 * outside of Enemy.makeMove().
+	 * @param p The Position of the Enemy.
+	 * @return A Set of Positions that the Enemy can move to.
+	 */
+	public Set<Position> possibleMovesForEnemy(Position p) {
+		return new PositionSet(movesForEnemy(p));
+	}
+	
+	/**
+	 * Cached version of {@code possibleMovesForEnemy()}
+	 * for use within the Model.
+	 * @param p The Position of the Enemy.
+	 * @return An unmodifiable Set of Positions.
+	 */
+	Set<Position> movesForEnemy(Position p) {
+		if (!(grid.entityAt(p.x, p.y) instanceof Enemy)) {
+			return Collections.emptySet();
+		}
+		
+		// get moves and range
+		Enemy enemy = (Enemy) grid.entityAt(p.x, p.y);
+		int range = enemy.getSPD();
+		
+		return moveCache.get(layoutVersion, enemy.getID(), range,
+				() -> computeMovesForEnemy(p, range));
+	}
+	
+	/** Calculates the possible moves for an Enemy with a range. */
+	private Set<Position> computeMovesForEnemy(Position p, int range) {
+		PositionIntMap distances = new PositionIntMap(Pathfinding.reachable(range));
+		Set<Position> moves = possibleMovesForEntity(p, range, distances);
+		
+		// add player attacks
+		moves.addAll(grid.entitiesWithin(p, range).stream()
+				.filter(entity -> entity instanceof Player).map(Entity::getPOS)
+				.filter(pos -> reachableNextTo(distances, pos, range))
+				.collect(Collectors.toList()));
+		
+		return moves;
+	}
+	
+	/**
+	 * Creates the source of random choices for generating Players,
+	 * a floor or more Enemies. It depends only on the seed, floor and
+	 * next ID, so Maps with the same seed generate the same content,
+	 * and every generation draws from a stream of its own.
+	 * @return A new SplittableRandom.
+	 */
+	private SplittableRandom generationRandom() {
+		return new SplittableRandom(seed
+				^ floor * 0xD6E8FEB86659FD93L
+				^ nextID * 0xFF51AFD7ED558CCDL);
+	}
+	
+	/**
+	 * Creates the source of random decisions for an Enemy this turn.
+	 * It depends only on the seed, turn or initiative time, and Enemy,
+	 * so it does not
+	 * matter which thread asks for it or in what order.
+	 * @param enemy The Enemy making a decision.
+	 * @return A new SplittableRandom.
+	 */
+	SplittableRandom enemyRandom(Enemy enemy) {
+		long clock = turnMode == TurnMode.INITIATIVE ? initiative.now() : turnNumber;
+		long mixed = seed
+				^ clock * 0x9E3779B97F4A7C15L
+				^ enemy.getID() * 0xC2B2AE3D27D4EB4FL;
+		return new SplittableRandom(mixed);
+	}
+	
+	// Interaction functions
+	
+	/**
+	 * Attempts to process an action.
+	 * @param p1 The Entity performing the action.
+	 * @param p2 The destination Position for the action.
+	 * @return A Turn representing the action taken,
+	 * or null if no changes occurred.
+	 */
+	public Turn processAction(Position p1, Position p2) {
+		Turn turn = applyAction(p1, p2);
+		revealPending();
+		checkpointIfDue();
+		return turn;
+	}
+	
+	/**
+	 * Attempts to process a batch of actions, in order.
+	 * Each action is checked against the Map as left by the
+	 * actions before it, exactly as with {@code processAction()},
+	 * but visibility is only brought up to date once at the end.
+	 * @param actions The actions to take.
+	 * @return A List of the Turns taken, in the same order as the
+	 *         actions, with null for actions that were not possible.
+	 */
+	public List<Turn> processActions(List<Action> actions) {
+		List<Turn> turns = new ArrayList<>(actions.size());
+		for (Action action : actions) {
+			turns.add(applyAction(action.start, action.end));
+		}
+		revealPending();
+		checkpointIfDue();
+		return turns;
+	}
+	
+	/**
+	 * Processes an action, leaving the sight of a Player who
+	 * moved to be revealed by {@code revealPending()}.
+	 * @param p1 The Entity performing the action.
+	 * @param p2 The destination Position for the action.
+	 * @return A Turn representing the action taken,
+	 * or null if no changes occurred.
+	 */
+	private Turn applyAction(Position p1, Position p2) {
+		// invalid
 		if (p1 == null || p2 == null) {
 			return null;
 		}
@@ -309,36 +1298,44 @@ public final class Map implements Pathfinding.Delegate {
 		else if (p1.equals(p2)) {
 			return null;
 		}
+		// off the Map, as sent by a careless client
+		else if (!positionOnMap(p1) || !positionOnMap(p2)) {
+			return null;
+		}
 		
-		Entity entity1 = entities[p1.x][p1.y];
-		Entity entity2 = entities[p2.x][p2.y];
+		Entity entity1 = grid.entityAt(p1.x, p1.y);
+		Entity entity2 = grid.entityAt(p2.x, p2.y);
 		
 		// no character selected, ignore
 		if (!(entity1 instanceof Player)) {
 			return null;
 		}
+		// not this Player's turn, ignore
+		else if (turnMode == TurnMode.INITIATIVE && entity1 != actor) {
+			return null;
+		}
 		// not a possible move, ignore
-		else if (!possibleMovesForCharacter(p1).contains(p2)) {
+		else if (!movesForCharacter(p1).contains(p2)) {
 			return null;
 		}
 		
-		Player player = (Player) entity1;
+		Player player = own((Player) entity1);
 		Turn turn = new Turn();
 		turn.start = p1;
 		
 		// destination is an empty space
-		if (entity2 == null) {
+		if (grid.isEmpty(p2.x, p2.y)) {
 			// move character
-			entities[p2.x][p2.y] = player;
-			entities[p1.x][p1.y] = null;
-			player.setPOS(p2);
+			moveEntity(p1, p2);
 		}
 		// move to stairs
-		else if (entity2 instanceof Stairs) {
+		else if (grid.tileAt(p2.x, p2.y) == Grid.STAIRS) {
 			// refresh map
 			turn.end = p2;
 			turn.pathfind(this);
-			logMessage("Advanced to floor " + (floor + 1) + ".");
+			commandDone(p1, p2);
+			events.post(GameEvent.Type.FLOOR, floor + 1,
+					"Advanced to floor " + (floor + 1) + ".");
 			nextFloor();
 			return turn;
 		}
@@ -348,28 +1345,34 @@ public final class Map implements Pathfinding.Delegate {
 			if (p1.distanceTo(p2) != 1) {
 				// move character next to other entity
 				Position toMove = new Position(1000, 1000);
-				for (Position pos : possibleMovesForCharacter(p1)) {
-					if (pos.distanceTo(p2) == 1 && entities[pos.x][pos.y] == null
+				for (Position pos : movesForCharacter(p1)) {
+					if (pos.distanceTo(p2) == 1 && grid.isEmpty(pos.x, pos.y)
 							&& pos.distanceTo(p1) < toMove.distanceTo(p1)) {
 						toMove = pos;
 					}
 				}
-				entities[toMove.x][toMove.y] = player;
-				entities[p1.x][p1.y] = null;
-				player.setPOS(toMove);
+				moveEntity(p1, toMove);
 			}
 			
 			// ask player to attack enemy
-			Enemy enemy = (Enemy) entity2;
+			Enemy enemy = own((Enemy) entity2);
 			turn.attackPos = enemy.getPOS();
 			double startHP = enemy.getHP();
-			player.attack(enemy);
+			player.attack(enemy, combatRandom(player));
 			turn.damage = (int) (startHP - enemy.getHP());
+			record(MapChange.Type.HP, null, p2, enemy.getHP());
 			
 			// killed enemy, remove
 			if (enemy.getHP() <= 0) {
-				enemies.remove(enemy);
-				entities[p2.x][p2.y] = null;
+				enemies.remove(enemy.getID());
+				enemyOrder = null;
+				views.remove(enemy.getID());
+				initiative.remove(enemy.getID());
+				perception.removeEnemy(enemy);
+				influence.removeEnemy(p2);
+				grid.remove(p2);
+				release(enemy);
+				record(MapChange.Type.DEATH, null, p2, 0);
 			}
 		}
 		else {
@@ -377,7 +1380,10 @@ public final class Map implements Pathfinding.Delegate {
 		}
 		
 		// action successfully completed, finish
-		updateVisibility();
+		if (!player.getPOS().equals(p1)) {
+			perception.updatePlayer(this, player, enemiesWithin(player.getPOS(), SIGHT_RANGE));
+			pendingSights.add(new Sight(player.getPOS(), perception.sightOf(player)));
+		}
 		
 		turn.end = player.getPOS();
 		turn.pathfind(this);
@@ -389,113 +1395,920 @@ public final class Map implements Pathfinding.Delegate {
 		else {
 			player.setSTM(player.getSTM() - turn.path.size() - 1);
 		}
+		record(MapChange.Type.STAMINA, null, player.getPOS(), player.getSTM());
 		
+		commandDone(p1, p2);
 		return turn;
 	}
 	
 	/**
 	 * Ends Player actions and processes Enemy Turns.
+	 * In initiative mode, only the turn of the current actor ends,
+	 * and Enemies act until it is a Player's turn again. The turn
+	 * number then counts rounds of initiative rather than calls.
 	 * @return A List of actions that were taken by enemies.
 	 */
 	public List<Turn> endTurn() {
-		// reset player stamina
-		players.forEach(player -> player.setSTM(player.getSPD()));
+		List<Turn> turns;
+		if (turnMode == TurnMode.INITIATIVE) {
+			turns = processInitiative();
+		}
+		else {
+			// reset player stamina
+			for (Player player : players) {
+				player = own(player);
+				player.setSTM(player.getSPD());
+				record(MapChange.Type.STAMINA, null, player.getPOS(), player.getSTM());
+			}
+			
+			turnNumber++;
+			influence.endTurn(players);
+			turns = processEnemyMoves();
+		}
 		
-		return processEnemyMoves();
+		commandCount++;
+		if (history != null) {
+			history.endTurn(brainMoves, brainMoveCount);
+		}
+		brainMoveCount = 0;
+		checkpointIfDue();
+		return turns;
 	}
 	
 	// Private functions
 	
+	/** @return The Enemies in the order they act. */
+	private List<Enemy> enemyList() {
+		if (enemyOrder == null) {
+			enemyOrder = new ArrayList<>(enemies.values());
+		}
+		return enemyOrder;
+	}
+	
+	/** @return The Enemies within a rectilinear distance of a Position. */
+	private List<Enemy> enemiesWithin(Position p, int range) {
+		List<Enemy> near = new ArrayList<>();
+		for (Entity entity : grid.entitiesWithin(p, range)) {
+			if (entity instanceof Enemy) {
+				near.add((Enemy) entity);
+			}
+		}
+		return near;
+	}
+	
 	/**
-	 * @param p The Position of the Entity.
-	 * @return A Set of Positions that the Entity can move to.
+	 * Moves the Entity at one Position to an empty Position,
+	 * recording the change.
+	 * @param from The Position of the Entity.
+	 * @param to The Position to move to.
 	 */
-	private Set<Position> possibleMovesForEntity(Position p, int range) {
-		if (entities[p.x][p.y] == null || range <= 0) {
-			return new HashSet<>();
+	private void moveEntity(Position from, Position to) {
+		Entity mover = grid.entityAt(from.x, from.y);
+		if (mover instanceof Enemy) {
+			own((Enemy) mover);
+			influence.moveEnemy(from, to);
 		}
-		
-		return Pathfinding.movementForPosition(this, p, range);
+		else {
+			own((Player) mover);
+		}
+		grid.move(from, to);
+		record(MapChange.Type.MOVE, from, to, 0);
 	}
 	
 	/**
-	 * Processes moves for all enemies on the Map.
-	 * @return A List of actions that were taken by enemies.
+	 * Records a change, stamps it with a new version,
+	 * and informs change listeners.
 	 */
-	private List<Turn> processEnemyMoves() {
+	private void record(MapChange.Type type, Position from, Position pos, double value) {
+		MapChange change = new MapChange(++version, type, from, pos, value);
+		if (type == MapChange.Type.MOVE || type == MapChange.Type.DEATH
+				|| type == MapChange.Type.SPAWN || type == MapChange.Type.FLOOR
+				|| type == MapChange.Type.REWIND) {
+			layoutVersion++;
+		}
+		
+		if (changes.size() >= CHANGE_HISTORY) {
+			changes.removeFirst();
+		}
+		changes.addLast(change);
+		
+		for (Consumer<MapChange> listener : changeListeners) {
+			listener.accept(change);
+		}
+	}
+	
+	/**
+	 * @param p The Position of the Entity.
+	 * @return A Set of Positions that the Entity can move to.
+	 */
+	private Set<Position> possibleMovesForEntity(Position p, int range, PositionIntMap distances) {
+		if (grid.entityAt(p.x, p.y) == null || range <= 0) {
+			return new PositionSet();
+		}
+		
+		return Pathfinding.movementForPosition(this, p, range, distances);
+	}
+	
+	/**
+	 * Processes moves for all enemies on the Map.
+	 * @return A List of actions that were taken by enemies.
+	 */
+	private List<Turn> processEnemyMoves() {
 		if (enemies.isEmpty()) {
 			return new ArrayList<>();
 		}
 		
+		List<Enemy> order = enemyList();
+		int n = order.size();
 		List<Turn> turns = new ArrayList<>();
+		boolean[] near = nearPlayers(order);
 		
-		for (Enemy enemy : enemies) {
-			Turn turn = new Turn();
-			
+		// start brains first, so they think while the rest plan
+		long start = System.nanoTime();
+		List<Future<Decision>> pending = replayMoves == null
+				? startDecisions(order) : Collections.nCopies(n, null);
+		
+		// plan the moves of awake Enemies against the unchanged Map;
+		// those chasing a Player also note the cells their path read
+		Position[] plans = new Position[n];
+		List<Set<Position>> planMoves = new ArrayList<>(Collections.nCopies(n, null));
+		List<PositionSet> planReads = new ArrayList<>(Collections.nCopies(n, null));
+		if (parallelPlanning) {
+			IntStream.range(0, n).parallel().forEach(i -> {
+				Enemy enemy = order.get(i);
+				Position p = enemy.getPOS();
+				if (brainOf(enemy) == null && isAwake(enemy, near[i])) {
+					Set<Position> moves = computeMovesForEnemy(p, enemy.getSPD());
+					List<Position> perceived = playersPerceivedBy(enemy);
+					PositionSet reads = perceived.isEmpty() ? null : new PositionSet(perceived);
+					Pathfinding.Delegate delegate = reads == null ? this : pos -> {
+						reads.add(pos);
+						return validPosition(pos);
+					};
+					planMoves.set(i, moves);
+					planReads.set(i, reads);
+					plans[i] = enemy.chooseMove(delegate, moves,
+							perceived, influence, enemyRandom(enemy));
+				}
+			});
+		}
+		
+		Position[] decided = collectDecisions(order, pending, start);
+		
+		// commit in order, planning again near Players and earlier changes
+		BitSet changed = new BitSet();
+		for (int i = 0; i < n; i++) {
+			// the Enemy may have been copied for a fork since
+			Enemy enemy = enemies.get(order.get(i).getID());
 			Position p1 = enemy.getPOS();
-			turn.start = p1;
+			Position p2 = plans[i];
+			Set<Position> moves = planMoves.get(i);
+			
+			if (brainOf(enemy) != null) {
+				moves = movesForEnemy(p1);
+				p2 = brainMove(enemy, decided[i], moves);
+			}
+			else if (!isAwake(enemy, near[i])) {
+				statistics.enemyDormant();
+				p2 = dormantStep(enemy);
+				if (p2 == null) {
+					continue;
+				}
+				moves = Collections.singleton(p2);
+			}
+			else if (moves == null || planStale(changed, p1, enemy.getSPD(), planReads.get(i))) {
+				moves = movesForEnemy(p1);
+				p2 = greedyMove(enemy);
+				if (parallelPlanning) {
+					statistics.enemyReplan();
+				}
+			}
+			else {
+				statistics.enemyPlan();
+			}
+			
+			Turn turn = commitEnemyMove(enemy, p2, moves);
+			if (turn != null) {
+				changed.set(turn.start.x * getHeight() + turn.start.y);
+				changed.set(turn.end.x * getHeight() + turn.end.y);
+				if (turn.attackPos != null) {
+					changed.set(turn.attackPos.x * getHeight() + turn.attackPos.y);
+				}
+				turns.add(turn);
+			}
+		}
+		
+		return turns;
+	}
+	
+	/**
+	 * Processes Enemy turns in initiative order until a Player is next.
+	 * @return A List of actions that were taken by enemies.
+	 */
+	private List<Turn> processInitiative() {
+		List<Turn> turns = new ArrayList<>();
+		if (actor != null) {
+			initiative.schedule(actor.getID(), actor.getSPD());
+			actor = null;
+		}
+		
+		while (!players.isEmpty()) {
+			// nothing is scheduled before the first floor
+			int id = initiative.next();
+			if (id < 0) {
+				break;
+			}
 			
-			// ask enemy for move
-			Position p2 = enemy.makeMove(this);
+			// a turn passes for every round, as in phase mode
+			while (initiative.roundPassed()) {
+				turnNumber++;
+				influence.endTurn(players);
+			}
+			
+			Entity entity = grid.byID(id);
+			
+			// a Player is next: their turn starts with full stamina
+			if (entity instanceof Player) {
+				actor = own((Player) entity);
+				actor.setSTM(actor.getSPD());
+				record(MapChange.Type.STAMINA, null, actor.getPOS(), actor.getSTM());
+				break;
+			}
 			
-			// invalid move
-			if (p2 == null || p1.equals(p2)
-					|| !possibleMovesForEnemy(p1).contains(p2)) {
+			Enemy enemy = (Enemy) entity;
+			if (!isAwake(enemy)) {
+				statistics.enemyDormant();
+				Position step = dormantStep(enemy);
+				Turn turn = step == null ? null : commitEnemyMove(enemy, step, Collections.singleton(step));
+				initiative.schedule(enemy.getID(), enemy.getSPD());
+				if (turn != null) {
+					turns.add(turn);
+				}
 				continue;
 			}
 			
-			// empty space
-			if (entities[p2.x][p2.y] == null) {
-				entities[p2.x][p2.y] = enemy;
-				entities[p1.x][p1.y] = null;
-				enemy.setPOS(p2);
-			}
-			else if (entities[p2.x][p2.y] instanceof Player) {
-				if (p1.distanceTo(p2) != 1) {
-					// move enemy next to Player
-					Position toMove = Position.NONE;
-					for (Position pos : possibleMovesForEnemy(p1)) {
-						if (pos.distanceTo(p2) == 1 && entities[pos.x][pos.y] == null
-								&& pos.distanceTo(p1) < toMove.distanceTo(p1)) {
-							toMove = pos;
-						}
-					}
-					if (!toMove.equals(Position.NONE)) {
-						entities[toMove.x][toMove.y] = entities[p1.x][p1.y];
-						entities[p1.x][p1.y] = null;
-						entities[toMove.x][toMove.y].setPOS(toMove);
-					}
+			Set<Position> moves = movesForEnemy(enemy.getPOS());
+			Position p2;
+			if (brainOf(enemy) == null) {
+				p2 = greedyMove(enemy);
+			}
+			else if (replayMoves != null) {
+				p2 = brainMove(enemy, null, moves);
+			}
+			else {
+				List<Enemy> single = Collections.singletonList(enemy);
+				long start = System.nanoTime();
+				p2 = brainMove(enemy, collectDecisions(
+						single, startDecisions(single), start)[0], moves);
+			}
+			
+			Turn turn = commitEnemyMove(enemy, p2, moves);
+			initiative.schedule(enemy.getID(), enemy.getSPD());
+			if (turn != null) {
+				turns.add(turn);
+			}
+		}
+		
+		return turns;
+	}
+	
+	/**
+	 * Starts initiative order over, with every Player acting
+	 * before the Enemies, and gives the first Player their turn.
+	 */
+	private void resetInitiative() {
+		initiative.clear();
+		actor = null;
+		if (floor == 0) {
+			return;
+		}
+		
+		for (Player player : players) {
+			initiative.scheduleNow(player.getID());
+		}
+		for (Enemy enemy : enemyList()) {
+			initiative.schedule(enemy.getID(), enemy.getSPD());
+		}
+		
+		if (!players.isEmpty()) {
+			actor = own((Player) grid.byID(initiative.next()));
+			actor.setSTM(actor.getSPD());
+		}
+	}
+	
+	/**
+	 * Checks a move decided by a brain.
+	 * @param enemy The Enemy that decided.
+	 * @param decided The move, or null if there was none in time.
+	 * @param moves The possible moves of the Enemy.
+	 * @return The move if it is possible, or else the greedy move.
+	 */
+	private Position checkDecision(Enemy enemy, Position decided, Set<Position> moves) {
+		Position p1 = enemy.getPOS();
+		if (decided != null && !decided.equals(p1) && !moves.contains(decided)) {
+			statistics.decisionFallback(brainOf(enemy).name());
+			decided = null;
+		}
+		return decided == null ? greedyMove(enemy) : decided;
+	}
+	
+	/**
+	 * Checks the move of an Enemy with a brain and records it,
+	 * or takes the recorded move while replaying.
+	 * @param enemy The Enemy that decided.
+	 * @param decided The move, or null if there was none in time.
+	 * @param moves The possible moves of the Enemy.
+	 * @return The move to make.
+	 */
+	private Position brainMove(Enemy enemy, Position decided, Set<Position> moves) {
+		Position move;
+		if (replayMoves != null) {
+			int cell = replayMoves[replayIndex++];
+			move = Position.of(cell / getHeight(), cell % getHeight());
+		}
+		else {
+			move = checkDecision(enemy, decided, moves);
+		}
+		
+		if (brainMoveCount == brainMoves.length) {
+			brainMoves = Arrays.copyOf(brainMoves, brainMoveCount * 2);
+		}
+		brainMoves[brainMoveCount++] = move.x * getHeight() + move.y;
+		return move;
+	}
+	
+	/** The tiles a Player saw from a Position. */
+	private static final class Sight {
+		final Position eye;
+		final Set<Position> tiles;
+		
+		Sight(Position eye, Set<Position> tiles) {
+			this.eye = eye;
+			this.tiles = tiles;
+		}
+	}
+	
+	/** A move decided by a brain, and the time it took. */
+	private static final class Decision {
+		final Position move;
+		final long nanos;
+		
+		Decision(Position move, long nanos) {
+			this.move = move;
+			this.nanos = nanos;
+		}
+	}
+	
+	/** @return The brain of an Enemy, or null for the greedy move. */
+	private EnemyBrain brainOf(Enemy enemy) {
+		return brains.getOrDefault(enemy.getID(), brain);
+	}
+	
+	/**
+	 * Starts a decision for every Enemy with a brain. Brains read a
+	 * fork of the Map rather than the Map itself, so that a brain
+	 * still running after its deadline reads a Map nothing changes,
+	 * and cannot fill this Map's caches from a changing grid.
+	 * The fork is shared by every decision of a turn, so in initiative
+	 * mode a brain may see the Map as it was when the turn began.
+	 * @param order The Enemies in the order they act.
+	 * @return The pending decisions in the same order,
+	 *         with null for Enemies making the greedy move.
+	 */
+	private List<Future<Decision>> startDecisions(List<Enemy> order) {
+		List<Future<Decision>> pending = new ArrayList<>(order.size());
+		for (Enemy enemy : order) {
+			EnemyBrain enemyBrain = brainOf(enemy);
+			if (enemyBrain == null) {
+				pending.add(null);
+				continue;
+			}
+			
+			// the Enemy as it was in the fork, which it may not be in yet
+			Map map = decisionSnapshot();
+			Entity forked = map.grid.byID(enemy.getID());
+			if (!(forked instanceof Enemy)) {
+				pending.add(null);
+				continue;
+			}
+			EntityView view = map.viewOf(forked);
+			pending.add(AIExecutor.shared().submit(() -> {
+				long start = System.nanoTime();
+				Position move = enemyBrain.decide(map, view);
+				return new Decision(move, System.nanoTime() - start);
+			}));
+		}
+		return pending;
+	}
+	
+	/** @return The fork brains read this turn, taken if there is none yet. */
+	private Map decisionSnapshot() {
+		if (decisionSnapshot == null || decisionSnapshot.floor != floor
+				|| decisionSnapshot.turnNumber != turnNumber) {
+			decisionSnapshot = fork();
+		}
+		return decisionSnapshot;
+	}
+	
+	/**
+	 * Waits for pending decisions until the deadline, cancelling
+	 * the ones that miss it. A decision that is cancelled may still
+	 * be reading its fork of the Map, but its move is discarded.
+	 * @param order The Enemies in the order they act.
+	 * @param pending The pending decisions in the same order.
+	 * @param start When the decisions were started, from {@code System.nanoTime()}.
+	 * @return The decided moves in the same order, with null
+	 *         for Enemies that should make the greedy move.
+	 */
+	private Position[] collectDecisions(List<Enemy> order,
+			List<Future<Decision>> pending, long start) {
+		Position[] decided = new Position[order.size()];
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(decisionDeadline);
+		
+		for (int i = 0; i < decided.length; i++) {
+			Future<Decision> future = pending.get(i);
+			if (future == null) {
+				continue;
+			}
+			
+			String name = brainOf(order.get(i)).name();
+			try {
+				Decision decision = future.get(
+						Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				statistics.decision(name, decision.nanos);
+				decided[i] = decision.move;
+			}
+			catch (TimeoutException | ExecutionException e) {
+				future.cancel(true);
+				statistics.decisionFallback(name);
+			}
+			catch (InterruptedException e) {
+				future.cancel(true);
+				statistics.decisionFallback(name);
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		return decided;
+	}
+	
+	/**
+	 * Creates the source of random combat rolls for a Player's action.
+	 * It depends only on the seed, command and Player, so replaying
+	 * the action rolls the same.
+	 * @param player The Player acting.
+	 * @return A new SplittableRandom.
+	 */
+	private SplittableRandom combatRandom(Player player) {
+		return new SplittableRandom(seed
+				^ commandCount * 0xBF58476D1CE4E5B9L
+				^ player.getID() * 0x94D049BB133111EBL);
+	}
+	
+	/**
+	 * Counts a successful action, logging it for rewinding.
+	 * @param p1 The Position of the Player.
+	 * @param p2 The destination of the action.
+	 */
+	private void commandDone(Position p1, Position p2) {
+		commandCount++;
+		if (history != null) {
+			history.action(p1.x * getHeight() + p1.y, p2.x * getHeight() + p2.y);
+		}
+	}
+	
+	/**
+	 * Snapshots the Map if it has been a while since the last snapshot.
+	 * Only called between commands, once everything they change,
+	 * including visibility, is up to date.
+	 */
+	private void checkpointIfDue() {
+		if (history != null && history.snapshotDue()) {
+			checkpoint();
+		}
+	}
+	
+	/**
+	 * Snapshots the Map, which must be done after any change
+	 * that replaying commands would not repeat.
+	 */
+	private void checkpoint() {
+		if (history != null) {
+			history.snapshot(new Map(this));
+		}
+	}
+	
+	/**
+	 * Replays a logged command.
+	 * @param cursor The cursor that read the command.
+	 */
+	private void replay(CommandLog.Cursor cursor) {
+		int height = getHeight();
+		if (cursor.op == CommandLog.ACTION) {
+			processAction(Position.of(cursor.from / height, cursor.from % height),
+					Position.of(cursor.to / height, cursor.to % height));
+		}
+		else {
+			replayMoves = cursor.moves;
+			replayIndex = 0;
+			endTurn();
+			replayMoves = null;
+		}
+	}
+	
+	/**
+	 * Takes over the state of a fork, as when rewinding.
+	 * Settings that do not affect the game are kept.
+	 * @param source The fork, which must not be used afterwards.
+	 */
+	private void adopt(Map source) {
+		grid = source.grid;
+		visibility = source.visibility;
+		ownedColumns = source.ownedColumns;
+		players = source.players;
+		enemies = source.enemies;
+		enemyOrder = null;
+		store = source.store.isFrozen()
+				? new EntityStore(players.size() + enemies.size()) : source.store;
+		perception = source.perception;
+		influence = source.influence;
+		initiative = source.initiative;
+		
+		nextID = source.nextID;
+		commandCount = source.commandCount;
+		stairs = source.stairs;
+		type = source.type;
+		floor = source.floor;
+		turnNumber = source.turnNumber;
+		turnMode = source.turnMode;
+		actor = source.actor;
+		wakeRadius = source.wakeRadius;
+		dormantInterval = source.dormantInterval;
+		difficulty = source.difficulty;
+		brain = source.brain;
+		brains.clear();
+		brains.putAll(source.brains);
+		decisionSnapshot = null;
+		
+		// the characters are the fork's: copy them before changing them
+		owner = new Object();
+		views.entrySet().removeIf(entry -> {
+			Entity entity = grid.byID(entry.getKey());
+			if (entity != null) {
+				entry.getValue().retarget(entity);
+			}
+			return entity == null;
+		});
+	}
+	
+	/**
+	 * @param enemy The Enemy to check.
+	 * @return True if the Enemy has a brain, perceives a Player,
+	 *         or is within the wake radius of one.
+	 */
+	private boolean isAwake(Enemy enemy) {
+		return isAwake(enemy, nearPlayer(enemy));
+	}
+	
+	/**
+	 * @param enemy The Enemy to check.
+	 * @param near True if the Enemy is within the wake radius of a Player.
+	 * @return True if the Enemy has a brain, perceives a Player, or is near one.
+	 */
+	private boolean isAwake(Enemy enemy, boolean near) {
+		return near || brainOf(enemy) != null || !perception.playersPerceivedBy(enemy).isEmpty();
+	}
+	
+	/** @return True if an Enemy is within the wake radius of a Player. */
+	private boolean nearPlayer(Enemy enemy) {
+		for (Player player : players) {
+			if (player.getPOS().distanceTo(enemy.getPOS()) <= wakeRadius) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds the Enemies within the wake radius of a Player in one pass
+	 * over the position column of the store. Enemies still reading the
+	 * frozen store of a fork are checked one at a time.
+	 * @param order The Enemies to check.
+	 * @return For each Enemy in order, true if it is near a Player.
+	 */
+	private boolean[] nearPlayers(List<Enemy> order) {
+		Position[] centres = new Position[players.size()];
+		for (int i = 0; i < centres.length; i++) {
+			centres[i] = players.get(i).getPOS();
+		}
+		BitSet marks = new BitSet();
+		store.markWithin(centres, wakeRadius, marks);
+		
+		boolean[] near = new boolean[order.size()];
+		for (int i = 0; i < near.length; i++) {
+			Enemy enemy = order.get(i);
+			near[i] = enemy.store() == store ? marks.get(enemy.slot()) : nearPlayer(enemy);
+		}
+		return near;
+	}
+	
+	/**
+	 * Chooses the step of a dormant Enemy, which is one tile in
+	 * a random direction on its turns to step. Nothing is searched.
+	 * @param enemy The dormant Enemy.
+	 * @return The empty tile to step to, or null to stay put.
+	 */
+	private Position dormantStep(Enemy enemy) {
+		if (dormantInterval <= 0 || (turnNumber + enemy.getID()) % dormantInterval != 0) {
+			return null;
+		}
+		Position p = enemy.getPOS().adjacentPositions()[enemyRandom(enemy).nextInt(4)];
+		return grid.inBounds(p.x, p.y) && grid.isEmpty(p.x, p.y) ? p : null;
+	}
+	
+	/** Asks an Enemy for its greedy move, timing the decision. */
+	private Position greedyMove(Enemy enemy) {
+		long start = System.nanoTime();
+		Position move = enemy.makeMove(this);
+		statistics.decision("greedy", System.nanoTime() - start);
+		return move;
+	}
+	
+	/**
+	 * @param changed The cells changed so far, indexed by {@code x * height + y}.
+	 * @param p The Position to search around.
+	 * @param range The maximum rectilinear distance, inclusive.
+	 * @return True if any cell within range of the Position changed.
+	 */
+	private boolean changedWithin(BitSet changed, Position p, int range) {
+		for (int dx = -range; dx <= range; dx++) {
+			int spread = range - Math.abs(dx);
+			for (int dy = -spread; dy <= spread; dy++) {
+				int x = p.x + dx, y = p.y + dy;
+				if (grid.inBounds(x, y) && changed.get(x * getHeight() + y)) {
+					return true;
 				}
-				
-				// attack player
-				Player player = (Player) entities[p2.x][p2.y];
-				turn.attackPos = player.getPOS();
-				double startHP = player.getHP();
-				enemy.attack(player);
-				turn.damage = (int) (startHP - player.getHP());
-				
-				// rip player
-				if (player.getHP() <= 0) {
-					players.remove(player);
-					entities[p2.x][p2.y] = null;
-					logMessage("A character has died.");
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks whether the plan of an Enemy read a cell that has changed
+	 * since. Every plan reads the cells within the Enemy's speed. A plan
+	 * to chase a Player also reads the crowding around those cells,
+	 * which is changed by Enemies moving nearby, and the cells noted
+	 * while finding its path.
+	 * @param changed The cells changed so far, indexed by {@code x * height + y}.
+	 * @param p The Position of the Enemy.
+	 * @param range The speed of the Enemy.
+	 * @param reads The cells read finding a path, or null if the Enemy is not chasing.
+	 * @return True if the Enemy should plan again.
+	 */
+	private boolean planStale(BitSet changed, Position p, int range, PositionSet reads) {
+		if (reads == null) {
+			return changedWithin(changed, p, range);
+		}
+		if (changedWithin(changed, p, range + InfluenceMap.CROWDING_RADIUS)) {
+			return true;
+		}
+		
+		int height = getHeight();
+		for (int cell = changed.nextSetBit(0); cell >= 0; cell = changed.nextSetBit(cell + 1)) {
+			if (reads.contains(cell / height, cell % height)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Carries out the move chosen by an Enemy.
+	 * @param enemy The Enemy moving.
+	 * @param p2 The Position chosen by the Enemy.
+	 * @param moves The possible moves of the Enemy.
+	 * @return The Turn taken, or null if the move was invalid.
+	 */
+	private Turn commitEnemyMove(Enemy enemy, Position p2, Set<Position> moves) {
+		Turn turn = new Turn();
+		
+		Position p1 = enemy.getPOS();
+		turn.start = p1;
+		
+		// invalid move
+		if (p2 == null || p1.equals(p2) || !moves.contains(p2)) {
+			return null;
+		}
+		enemy = own(enemy);
+		
+		// empty space
+		if (grid.isEmpty(p2.x, p2.y)) {
+			moveEntity(p1, p2);
+			perception.updateEnemy(enemy);
+		}
+		else if (grid.entityAt(p2.x, p2.y) instanceof Player) {
+			if (p1.distanceTo(p2) != 1) {
+				// move enemy next to Player
+				Position toMove = Position.NONE;
+				for (Position pos : moves) {
+					if (pos.distanceTo(p2) == 1 && grid.isEmpty(pos.x, pos.y)
+							&& pos.distanceTo(p1) < toMove.distanceTo(p1)) {
+						toMove = pos;
+					}
 				}
-				
-				if (players.isEmpty()) {
-					logMessage("Game over!");
+				if (!toMove.equals(Position.NONE)) {
+					moveEntity(p1, toMove);
+					perception.updateEnemy(enemy);
 				}
 			}
-			else {
-				// some other object: ignore
-				continue;
+			
+			// attack player
+			Player player = own((Player) grid.entityAt(p2.x, p2.y));
+			turn.attackPos = player.getPOS();
+			double startHP = player.getHP();
+			enemy.attack(player);
+			turn.damage = (int) (startHP - player.getHP());
+			record(MapChange.Type.HP, null, p2, player.getHP());
+			
+			// rip player
+			if (player.getHP() <= 0) {
+				players.remove(player);
+				views.remove(player.getID());
+				initiative.remove(player.getID());
+				perception.removePlayer(player);
+				grid.remove(p2);
+				release(player);
+				record(MapChange.Type.DEATH, null, p2, 0);
+				events.post(GameEvent.Type.DEATH, 0, "A character has died.");
 			}
 			
-			turn.end = enemy.getPOS();
-			turn.pathfind(this);
-			turns.add(turn);
+			if (players.isEmpty()) {
+				events.post(GameEvent.Type.GAME_OVER, 0, "Game over!");
+			}
+		}
+		else {
+			// some other object: ignore
+			return null;
 		}
 		
-		return turns;
+		turn.end = enemy.getPOS();
+		turn.pathfind(this);
+		return turn;
+	}
+	
+	/**
+	 * Makes sure a Player may be changed in place. A Player shared
+	 * with a fork reads the frozen store the Maps left behind, so its
+	 * slot is copied into this Map's store, and it is swapped for a
+	 * new handle over the copy. The handle takes the place of the
+	 * Player everywhere in this Map, including its view.
+	 * @param player The Player about to change.
+	 * @return The Player to change, which may be a new handle.
+	 */
+	private Player own(Player player) {
+		if (player.owner == owner) {
+			return player;
+		}
+		
+		Player copy = player.handle(store, slotFor(player));
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i) == player) {
+				players.set(i, copy);
+			}
+		}
+		if (actor == player) {
+			actor = copy;
+		}
+		return replace(copy);
+	}
+	
+	/**
+	 * Makes sure an Enemy may be changed in place,
+	 * as {@code own(Player)} does for Players.
+	 * @param enemy The Enemy about to change.
+	 * @return The Enemy to change, which may be a new handle.
+	 */
+	private Enemy own(Enemy enemy) {
+		if (enemy.owner == owner) {
+			return enemy;
+		}
+		
+		Enemy copy = enemy.handle(store, slotFor(enemy));
+		if (enemies.replace(copy.getID(), copy) != null) {
+			enemyOrder = null;
+		}
+		return replace(copy);
+	}
+	
+	/**
+	 * Finds the slot of a character in this Map's store,
+	 * copying its stats there first if it has none.
+	 * @param entity A Player or Enemy on this Map.
+	 * @return The slot.
+	 */
+	private int slotFor(Entity entity) {
+		int slot = store.slotOf(entity.getID());
+		if (slot < 0) {
+			slot = store.allocate(entity.getID());
+			store.copySlot(entity.store(), entity.slot(), slot);
+		}
+		return slot;
+	}
+	
+	/**
+	 * Puts a new handle over a character in place of
+	 * the old one in the grid and the views, and owns it.
+	 * @param copy The new handle.
+	 * @return The new handle.
+	 */
+	private <T extends Entity> T replace(T copy) {
+		copy.owner = owner;
+		copy.setEvents(events);
+		grid.replace(copy);
+		
+		ReadOnlyEntity view = views.get(copy.getID());
+		if (view != null) {
+			view.retarget(copy);
+		}
+		return copy;
+	}
+	
+	/**
+	 * Takes a new character onto this Map, moving its stats into
+	 * a slot of the store and marking it as owned.
+	 * @param entity A Player or Enemy that already has its id.
+	 */
+	private void admit(Entity entity) {
+		entity.attach(store, store.allocate(entity.getID()));
+		entity.setEvents(events);
+		entity.owner = owner;
+	}
+	
+	/**
+	 * Lets go of a character that died or was left behind on another
+	 * floor. Its stats move into a store of its own, so that the slot
+	 * can be reused without changing anyone still holding it.
+	 * @param entity A Player or Enemy leaving this Map.
+	 */
+	private void release(Entity entity) {
+		if (entity.store() == store) {
+			entity.detach();
+		}
+		store.free(entity.getID());
+	}
+	
+	/** @return The live view of a character on this Map. */
+	private EntityView viewOf(Entity entity) {
+		return views.computeIfAbsent(entity.getID(), id -> new ReadOnlyEntity(entity));
+	}
+	
+	/** @return A column of visibility, copied first if shared with a fork. */
+	private double[] writableColumn(int x) {
+		if (!ownedColumns[x]) {
+			visibility[x] = visibility[x].clone();
+			ownedColumns[x] = true;
+		}
+		return visibility[x];
+	}
+	
+	/** GridView reading straight from the Map's current Grid. */
+	private final class View implements GridView {
+		@Override
+		public int getWidth() {
+			return Map.this.getWidth();
+		}
+		
+		@Override
+		public int getHeight() {
+			return Map.this.getHeight();
+		}
+		
+		@Override
+		public EntityKind kindAt(int x, int y) {
+			switch (grid.tileAt(x, y)) {
+				case Grid.WALL: return EntityKind.WALL;
+				case Grid.STAIRS: return EntityKind.STAIRS;
+				default:
+					Entity entity = grid.entityAt(x, y);
+					return entity == null ? EntityKind.EMPTY : entity.getKind();
+			}
+		}
+		
+		@Override
+		public EntityView entityAt(int x, int y) {
+			switch (grid.tileAt(x, y)) {
+				case Grid.WALL: return Obstacle.WALL;
+				case Grid.STAIRS: return Stairs.TILE;
+				default:
+					Entity entity = grid.entityAt(x, y);
+					return entity == null ? null : viewOf(entity);
+			}
+		}
+		
+		@Override
+		public double visibilityAt(int x, int y) {
+			return visibility[x][y];
+		}
 	}
 	
 	// Interface implementation methods
@@ -506,7 +2319,7 @@ public final class Map implements Pathfinding.Delegate {
 			return false;
 		}
 		
-		return entities[p.x][p.y] == null;
+		return grid.isEmpty(p.x, p.y);
 	}
 	
 	@Override
@@ -515,6 +2328,6 @@ public final class Map implements Pathfinding.Delegate {
 			return false;
 		}
 		
-		return !(entities[p.x][p.y] instanceof Obstacle);
+		return grid.tileAt(p.x, p.y) != Grid.WALL;
 	}
 }
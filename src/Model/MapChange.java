@@ -0,0 +1,64 @@
+package Model;
+
+/**
+ * A single cell-level change made to a Map.
+ * <p></p>
+ * Every change is stamped with the version of the Map it produced,
+ * so clients can keep their own copy of the Map up to date by
+ * applying the changes since the last version they saw, instead of
+ * reading every cell again. A FLOOR change replaces the whole Map,
+ * and should be handled by reading it again from scratch.
+ */
+public final class MapChange {
+    /** Types of changes. */
+    public enum Type {
+        /** An Entity moved from {@code from} to {@code pos}. */
+        MOVE,
+        /** The Entity at {@code pos} died and was removed. */
+        DEATH,
+        /** The HP of the Entity at {@code pos} changed to {@code value}. */
+        HP,
+        /** The stamina of the Player at {@code pos} changed to {@code value}. */
+        STAMINA,
+        /** A new Entity was placed at {@code pos}. */
+        SPAWN,
+        /** The visibility of {@code pos} changed to {@code value}. */
+        VISIBILITY,
+        /** The Map moved to floor {@code value} and was regenerated. */
+        FLOOR,
+        /**
+         * The Map was rewound to command {@code value}. Like a floor
+         * change, the whole Map should be read again.
+         */
+        REWIND
+    }
+
+    /** The version of the Map after this change. */
+    public final long version;
+
+    /** The type of the change. */
+    public final Type type;
+
+    /** The starting Position of a move. Null for other changes. */
+    public final Position from;
+
+    /** The Position that changed. Null for floor changes. */
+    public final Position pos;
+
+    /** The new value for HP, stamina, visibility and floor changes. */
+    public final double value;
+
+    MapChange(long version, Type type, Position from, Position pos, double value) {
+        this.version = version;
+        this.type = type;
+        this.from = from;
+        this.pos = pos;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + type + " "
+                + (from == null ? "" : from + " -> ") + pos + " = " + value;
+    }
+}
@@ -7,35 +7,27 @@ import java.util.*;
 /**
  * A class containing a collection of
  * static methods related to Map generation.
+ * <p></p>
+ * Every random choice is drawn from the SplittableRandom passed in,
+ * and there is no shared state, so the same stream always generates
+ * the same floor, and several floors may be generated at once.
  */
 public final class MapGenerator {
     private MapGenerator() { }
     
-    private static Random rand = new Random();
-    
-    // helper methods to avoid infinite loops
-    private static int count = 0;
-    private static void resetCount() {
-        count = 0;
-    }
-    private static int count() {
-        count++;
-        return count;
-    }
-    
     /** Generates one of the possible map types. */
-    static Entity[][] randomMap(int width, int height) {
+    static Grid randomMap(int width, int height, SplittableRandom rand) {
         switch (rand.nextInt(3)) {
-            case 0: return generateCave(width, height);
-            case 1: return generateCircle(width, height);
-            case 2: return generateDungeonHallway(width, height);
-            default: return new Entity[width][height];
+            case 0: return generateCave(width, height, rand);
+            case 1: return generateCircle(width, height, rand);
+            case 2: return generateDungeonHallway(width, height, rand);
+            default: return new Grid(width, height);
         }
     }
     
     /** Generates an entirely random Map. */
-    static Entity[][] generateRandom(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    static Grid generateRandom(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -43,7 +35,7 @@ public final class MapGenerator {
                 int tileChance = rand.nextInt(3);
                 
                 if (tileChance <= 1) {
-                    map[x][y] = null;
+                    map.setTile(x, y, Grid.FLOOR);
                 }
                 else {
                     newWall(map, x, y);
@@ -61,8 +53,8 @@ public final class MapGenerator {
      * Uses the ellipse equation [(x/w)^2 + (y/h)^2 < 1]
      * to check whether a tile is a wall or not.
      */
-    static Entity[][] generateCircle(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    static Grid generateCircle(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         
         // calculate circle dimensions
         double centerX = (double) width / 2;
@@ -78,7 +70,7 @@ public final class MapGenerator {
             
                 // inside ellipse, empty space
                 if (Math.pow(dx / w, 2) + Math.pow(dy / h, 2) < 1) {
-                    map[x][y] = null;
+                    map.setTile(x, y, Grid.FLOOR);
                 }
                 else {
                     newWall(map, x, y);
@@ -105,19 +97,19 @@ public final class MapGenerator {
             int missingDoor = rand.nextInt(4);
             if (missingDoor != 0) {
                 int offset = rand.nextInt(cy - 2) + 1;
-                map[cx][offset] = null;
+                map.setTile(cx, offset, Grid.FLOOR);
             }
             if (missingDoor != 1) {
                 int offset = rand.nextInt(cy - 2) + 1;
-                map[cx][cy + offset] = null;
+                map.setTile(cx, cy + offset, Grid.FLOOR);
             }
             if (missingDoor != 2) {
                 int offset = rand.nextInt(cx - 2) + 1;
-                map[offset][cy] = null;
+                map.setTile(offset, cy, Grid.FLOOR);
             }
             if (missingDoor != 3) {
                 int offset = rand.nextInt(cx - 2) + 1;
-                map[cx + offset][cy] = null;
+                map.setTile(cx + offset, cy, Grid.FLOOR);
             }
         }
         // center pillar (donut)
@@ -142,17 +134,17 @@ public final class MapGenerator {
     }
     
     /** Generates a dungeon-like map. */
-    static Entity[][] generateDungeon(int width, int height) {
+    static Grid generateDungeon(int width, int height, SplittableRandom rand) {
         switch (rand.nextInt(2)) {
-            case 0: return generateDungeonRooms(width, height);
-            case 1: return generateDungeonHallway(width, height);
-            default: return new Entity[0][0];
+            case 0: return generateDungeonRooms(width, height, rand);
+            case 1: return generateDungeonHallway(width, height, rand);
+            default: return new Grid(0, 0);
         }
     }
     
     /** Generates a hallway surrounded by rooms. */
-    private static Entity[][] generateDungeonHallway(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    private static Grid generateDungeonHallway(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         wallBorder(map);
         
         int topY = rand.nextInt(height/2 - 4) + 3;
@@ -168,7 +160,7 @@ public final class MapGenerator {
         int x = rand.nextInt(5) + 2;
         do {
             if (door) {
-                map[x][topY] = null;
+                map.setTile(x, topY, Grid.FLOOR);
             }
             else {
                 for (int y = 0; y < topY; y++) {
@@ -181,7 +173,7 @@ public final class MapGenerator {
         } while (x < width - 2);
         
         if (door) {
-            map[width-2][topY] = null;
+            map.setTile(width-2, topY, Grid.FLOOR);
         }
         
         // bottom rooms
@@ -189,7 +181,7 @@ public final class MapGenerator {
         x = rand.nextInt(5) + 2;
         do {
             if (door) {
-                map[x][botY] = null;
+                map.setTile(x, botY, Grid.FLOOR);
             }
             else {
                 for (int y = height-1; y > botY; y--) {
@@ -203,15 +195,15 @@ public final class MapGenerator {
         } while (x < width - 2);
     
         if (door) {
-            map[width-2][botY] = null;
+            map.setTile(width-2, botY, Grid.FLOOR);
         }
         
         return map;
     }
     
     /** Generates a number of rooms connected by hallways. */
-    private static Entity[][] generateDungeonRooms(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    private static Grid generateDungeonRooms(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         
         /**
          * Convenience class for room representation.
@@ -260,10 +252,9 @@ public final class MapGenerator {
         fillWalls(map);
         
         List<Room> rooms = new ArrayList<>();
-        resetCount();
         
         // fill with as many rooms as possible
-        while (count() < 1000) {
+        for (int tries = 0; tries < 1000; tries++) {
             // generate dimensions
             Position pos = new Position(
                     rand.nextInt(width - 6) + 1,
@@ -286,7 +277,7 @@ public final class MapGenerator {
             for (int x = pos.x; x < pos.x + roomW; x++) {
                 for (int y = pos.y; y < pos.y + roomH; y++) {
                     if (x >= 0 && x < width && y >= 0 && y < height) {
-                        map[x][y] = null;
+                        map.setTile(x, y, Grid.FLOOR);
                     }
                 }
             }
@@ -310,7 +301,7 @@ public final class MapGenerator {
             
             // find path and clear
             for (Position pos : Pathfinding.shortestPath(p -> true, start, end)) {
-                map[pos.x][pos.y] = null;
+                map.setTile(pos.x, pos.y, Grid.FLOOR);
             }
         }
         
@@ -318,17 +309,17 @@ public final class MapGenerator {
     }
     
     /** Generates a cave-like map. */
-    static Entity[][] generateCave(int width, int height) {
+    static Grid generateCave(int width, int height, SplittableRandom rand) {
         switch (rand.nextInt(2)) {
-            case 0: return generateMessyCave(width, height);
-            case 1: return generateMine(width, height);
-            default: return new Entity[0][0];
+            case 0: return generateMessyCave(width, height, rand);
+            case 1: return generateMine(width, height, rand);
+            default: return new Grid(0, 0);
         }
     }
     
     /** Generates a number of lines with random cleared out near them. */
-    private static Entity[][] generateMessyCave(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    private static Grid generateMessyCave(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         
         // all walls to begin
         fillWalls(map);
@@ -340,13 +331,13 @@ public final class MapGenerator {
                 rand.nextInt(height-2)+1);
         do {
             // random end position
-            resetCount();
+            int tries = 0;
             Position end;
             do {
                 end = new Position(
                         rand.nextInt(width-2)+1,
                         rand.nextInt(height-2)+1);
-            } while (start.distanceTo(end) <= 8 && count() < 1000);
+            } while (start.distanceTo(end) <= 8 && ++tries < 1000);
             
             // find random line to end position
             // (Pathfinding A* is too linear)
@@ -377,9 +368,9 @@ public final class MapGenerator {
                 while (!toClear.isEmpty()) {
                     Position newPos = toClear.removeFirst();
                     if (positionInRange(newPos, width, height)
-                            && map[newPos.x][newPos.y] != null
+                            && !map.isEmpty(newPos.x, newPos.y)
                             && rand.nextInt(newPos.distanceTo(pos) + 1) == 0) {
-                        map[newPos.x][newPos.y] = null;
+                        map.setTile(newPos.x, newPos.y, Grid.FLOOR);
                         toClear.addAll(Arrays.asList(newPos.adjacentPositions()));
                     }
                 }
@@ -398,8 +389,8 @@ public final class MapGenerator {
     }
     
     /** Generates long, connected, fixed size lines. */
-    private static Entity[][] generateMine(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    private static Grid generateMine(int width, int height, SplittableRandom rand) {
+        Grid map = new Grid(width, height);
         
         // all walls to begin
         fillWalls(map);
@@ -408,13 +399,13 @@ public final class MapGenerator {
         int minDist = (width + height) / 5;
         int nLines = rand.nextInt(3) + 4;
         List<Position> points = new ArrayList<>();
-        resetCount();
+        int tries = 0;
         for (int i = 0; i < nLines; i++) {
             Position pos = new Position(
                     rand.nextInt(width-2)+1,
                     rand.nextInt(height-2)+1);
             
-            if (count() > 1000) {
+            if (++tries > 1000) {
                 points.add(pos);
             }
             else if (points.stream().anyMatch(p -> p.distanceTo(pos) < minDist)) {
@@ -451,10 +442,10 @@ public final class MapGenerator {
             
             // clear around line
             for (Position pos : line) {
-                map[pos.x][pos.y] = null;
+                map.setTile(pos.x, pos.y, Grid.FLOOR);
                 for (Position pos2: pos.adjacentPositions()) {
                     if (positionInRange(pos2, width, height)) {
-                        map[pos2.x][pos2.y] = null;
+                        map.setTile(pos2.x, pos2.y, Grid.FLOOR);
                     }
                 }
             }
@@ -469,13 +460,13 @@ public final class MapGenerator {
     }
     
     /** Generates a boss room. */
-    static Entity[][] generateBossRoom(int width, int height) {
-        Entity[][] map = new Entity[width][height];
+    static Grid generateBossRoom(int width, int height) {
+        Grid map = new Grid(width, height);
         
         // double bordered walls
-        for (int x = 0; x < map.length; x++) {
-            for (int y = 0; y < map[0].length; y++) {
-                if (x < 2 || x > map.length - 3 || y < 2 || y > map[0].length - 3) {
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                if (x < 2 || x > map.getWidth() - 3 || y < 2 || y > map.getHeight() - 3) {
                     newWall(map, x, y);
                 }
             }
@@ -494,18 +485,18 @@ public final class MapGenerator {
         }
         
         // marker for placement functions
-        map[0][0] = null;
+        map.setTile(0, 0, Grid.FLOOR);
         return map;
     }
     
     /** Places player(s) on the Map. */
-    static void placePlayers(Entity[][] map, List<Player> players) {
-        int width = map.length;
-        int height = map[0].length;
+    static void placePlayers(Grid map, List<Player> players, SplittableRandom rand) {
+        int width = map.getWidth();
+        int height = map.getHeight();
         Position start;
         
         // special case: boss room
-        if (!(map[0][0] instanceof Obstacle)) {
+        if (map.tileAt(0, 0) != Grid.WALL) {
             start = new Position(width - 4, height/2);
         }
         else {
@@ -514,12 +505,12 @@ public final class MapGenerator {
                 start = new Position(
                         rand.nextInt(width),
                         rand.nextInt(height));
-            } while (map[start.x][start.y] != null);
+            } while (!map.isEmpty(start.x, start.y));
         }
     
         // place new player
         if (players.isEmpty()) {
-            players.add(newPlayer(map, start));
+            players.add(newPlayer(map, start, rand));
         }
         // place existing players nearby
         else {
@@ -534,38 +525,36 @@ public final class MapGenerator {
                             rand.nextInt(iDist*2+1)-iDist);
                     dist += 0.1;
                 }
-                while (!positionInRange(pos, width, height) || map[pos.x][pos.y] != null);
+                while (!positionInRange(pos, width, height) || !map.isEmpty(pos.x, pos.y));
                 
                 // empty space, place player
-                map[pos.x][pos.y] = player;
                 player.setPOS(pos);
+                map.add(player);
             }
         }
     }
     
-    /** Places stairs on the Map. */
-    static Stairs placeStairs(Entity[][] map, List<Player> players) {
+    /** Places stairs on the Map, returning their Position. */
+    static Position placeStairs(Grid map, List<Player> players, SplittableRandom rand) {
         // special case: boss room
-        if (map[0][0] == null) {
+        if (map.isEmpty(0, 0)) {
             return newStairs(map, Position.ORIGIN);
         }
     
-        Stairs stairs;
-        int minDist = (map.length + map[0].length) / 6;
-        resetCount();
+        int minDist = (map.getWidth() + map.getHeight()) / 6;
         
         // random starting point
-        while (true) {
+        for (int tries = 1; ; tries++) {
             Position pos = new Position(
-                    rand.nextInt(map.length),
-                    rand.nextInt(map[0].length));
+                    rand.nextInt(map.getWidth()),
+                    rand.nextInt(map.getHeight()));
             
             // too many tries, allow any position
-            if (count() > 1000 && map[pos.x][pos.y] == null) {
+            if (tries > 1000 && map.isEmpty(pos.x, pos.y)) {
                 return newStairs(map, pos);
             }
             // not covered and far enough away from players
-            if (map[pos.x][pos.y] == null && players.stream()
+            if (map.isEmpty(pos.x, pos.y) && players.stream()
                     .allMatch(player -> player.getPOS().distanceTo(pos) > minDist)) {
                 return newStairs(map, pos);
             }
@@ -573,44 +562,121 @@ public final class MapGenerator {
     }
     
     /** Places and returns enemies on the Map. */
-    static List<Enemy> placeEnemies(Entity[][] map, List<Player> players, int floor) {
+    static List<Enemy> placeEnemies(Grid map, List<Player> players, int floor,
+            Difficulty difficulty, SplittableRandom rand) {
         List<Enemy> enemies = new ArrayList<>();
-        int minDist = (map.length + map[0].length) / 8;
-        resetCount();
     
         // special case: boss room
-        if (!(map[0][0] instanceof Obstacle)) {
+        if (map.tileAt(0, 0) != Grid.WALL) {
             // place STRONK enemy
-            Enemy boss = Enemy.randomEnemy(floor + 4);
+            Enemy boss = Enemy.randomEnemy(floor + 4, difficulty, rand);
             boss.setSPD(5);
-            boss.setPOS(new Position(4, map[0].length/2));
-            map[4][map[0].length/2] = boss;
+            boss.setPOS(new Position(4, map.getHeight()/2));
+            map.add(boss);
             enemies.add(boss);
         }
         
         // random number of enemies
-        int num = rand.nextInt(5) + 3;
-        for (int i = 0; i < num && count() < 1000; i++) {
+        enemies.addAll(addEnemies(map, players, floor, difficulty.enemyCount(rand), difficulty, rand));
+        
+        return enemies;
+    }
+    
+    /**
+     * Places a number of random enemies on empty tiles away from the players.
+     * Gives up after a bounded number of attempts on crowded grids.
+     * @return The List of enemies placed, which may be shorter than num.
+     */
+    static List<Enemy> addEnemies(Grid map, List<Player> players, int floor, int num,
+            Difficulty difficulty, SplittableRandom rand) {
+        List<Enemy> enemies = new ArrayList<>();
+        int minDist = (map.getWidth() + map.getHeight()) / 8;
+        int tries = 0;
+        
+        for (int i = 0; i < num && ++tries < 1000 + 100 * num; i++) {
             // find position away from player
             Position pos = new Position(
-                    rand.nextInt(map.length),
-                    rand.nextInt(map[0].length));
+                    rand.nextInt(map.getWidth()),
+                    rand.nextInt(map.getHeight()));
             
-            if (map[pos.x][pos.y] != null ||
+            if (!map.isEmpty(pos.x, pos.y) ||
                     players.stream().anyMatch(
                             player -> player.getPOS().distanceTo(pos) < minDist)) {
                 i--;
             }
             else {
-                enemies.add(newEnemy(map, pos, floor));
+                enemies.add(newEnemy(map, pos, floor, difficulty, rand));
             }
         }
         
         return enemies;
     }
     
-    /** @param path The path of the file to read from. */
-    static Entity[][] readMapFromFile(String path) {
+    /**
+     * Generates the tiles of one chunk of an unbounded cave floor.
+     * Tiles only depend on the seed and their global coordinates,
+     * so chunks line up with their neighbours no matter which order
+     * they are generated in, and can be generated again at any time.
+     * @param seed The seed of the floor.
+     * @param cx The x coordinate of the chunk, in chunks.
+     * @param cy The y coordinate of the chunk, in chunks.
+     * @param size The side length of the chunk.
+     * @return The tile kinds of the chunk, at index {@code x * size + y}.
+     */
+    static byte[] generateChunk(long seed, int cx, int cy, int size) {
+        byte[] tiles = new byte[size * size];
+        
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int gx = cx * size + x, gy = cy * size + y;
+                
+                // keep the starting area open
+                boolean start = Math.abs(gx) + Math.abs(gy) <= 4;
+                double noise = 0.7 * valueNoise(seed, gx, gy, 12)
+                        + 0.3 * valueNoise(~seed, gx, gy, 4);
+                tiles[x * size + y] = !start && noise > 0.68 ? Grid.WALL : Grid.FLOOR;
+            }
+        }
+        
+        return tiles;
+    }
+    
+    /**
+     * Smoothly interpolated random values on a lattice.
+     * @return A value from 0 to 1 for the global coordinates.
+     */
+    private static double valueNoise(long seed, int x, int y, int scale) {
+        int x0 = Math.floorDiv(x, scale), y0 = Math.floorDiv(y, scale);
+        double fx = (x - x0 * scale) / (double) scale;
+        double fy = (y - y0 * scale) / (double) scale;
+        
+        // smoothstep
+        fx = fx * fx * (3 - 2 * fx);
+        fy = fy * fy * (3 - 2 * fy);
+        
+        double top = lerp(hash(seed, x0, y0), hash(seed, x0 + 1, y0), fx);
+        double bottom = lerp(hash(seed, x0, y0 + 1), hash(seed, x0 + 1, y0 + 1), fx);
+        return lerp(top, bottom, fy);
+    }
+    
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+    
+    /** @return A random value from 0 to 1 fixed by the seed and lattice point. */
+    private static double hash(long seed, int x, int y) {
+        long h = seed ^ x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h = h ^ (h >>> 31);
+        return (h >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * @param path The path of the file to read from.
+     * @param rand The source of the stats of the players in the file.
+     */
+    static Grid readMapFromFile(String path, SplittableRandom rand) {
         try {
             // get all lines
             Scanner in = new Scanner(new File(path));
@@ -621,27 +687,27 @@ public final class MapGenerator {
             in.close();
             
             if (lines.isEmpty()) {
-                return new Entity[0][0];
+                return new Grid(0, 0);
             }
             
             // form grid
             int width = lines.get(0).length();
             int height = lines.size();
             
-            Entity[][] map = new Entity[width][height];
+            Grid map = new Grid(width, height);
             
             // read information
             for (int y = 0; y < height; y++) {
                 String line = lines.get(y);
                 for (int x = 0; x < width; x++) {
                     if (line.charAt(x) == ' ') { // empty space
-                        map[x][y] = null;
+                        map.setTile(x, y, Grid.FLOOR);
                     }
                     else if (line.charAt(x) == 'W') { // wall
                         newWall(map, x, y);
                     }
                     else if (line.charAt(x) == 'C') { // some character
-                        newPlayer(map, new Position(x, y));
+                        newPlayer(map, new Position(x, y), rand);
                     }
                 }
             }
@@ -652,23 +718,19 @@ public final class MapGenerator {
             e.printStackTrace();
         }
     
-        return new Entity[0][0];
+        return new Grid(0, 0);
     }
     
     /** Convenience function to fill the map with walls. */
-    private static void fillWalls(Entity[][] map) {
-        for (int x = 0; x < map.length; x++) {
-            for (int y = 0; y < map[0].length; y++) {
-                newWall(map, x, y);
-            }
-        }
+    private static void fillWalls(Grid map) {
+        map.fill(Grid.WALL);
     }
     
     /** Convenience function to fill the border of the map with walls. */
-    private static void wallBorder(Entity[][] map) {
-        for (int x = 0; x < map.length; x++) {
-            for (int y = 0; y < map[0].length; y++) {
-                if (x == 0 || x == map.length-1 || y == 0 || y == map[0].length-1) {
+    private static void wallBorder(Grid map) {
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                if (x == 0 || x == map.getWidth()-1 || y == 0 || y == map.getHeight()-1) {
                     newWall(map, x, y);
                 }
             }
@@ -676,34 +738,30 @@ public final class MapGenerator {
     }
     
     /** Function to place stairs. */
-    private static Stairs newStairs(Entity[][] map, Position position) {
-        Stairs stairs = new Stairs();
-        stairs.setPOS(position);
-        map[position.x][position.y] = stairs;
-        return stairs;
+    private static Position newStairs(Grid map, Position position) {
+        map.setTile(position.x, position.y, Grid.STAIRS);
+        return position;
     }
     
     /** Function to place a wall. */
-    private static Obstacle newWall(Entity[][] map, int x, int y) {
-        Obstacle obstacle = new Obstacle();
-        obstacle.setPOS(new Position(x, y));
-        map[x][y] = obstacle;
-        return obstacle;
+    private static void newWall(Grid map, int x, int y) {
+        map.setTile(x, y, Grid.WALL);
     }
     
     /** Function to place a player. */
-    private static Player newPlayer(Entity[][] map, Position position) {
-        Player player = Player.randomPlayer();
+    private static Player newPlayer(Grid map, Position position, SplittableRandom rand) {
+        Player player = Player.randomPlayer(rand);
         player.setPOS(position);
-        map[position.x][position.y] = player;
+        map.add(player);
         return player;
     }
     
     /** Function to place an enemy. */
-    private static Enemy newEnemy(Entity[][] map, Position position, int floor) {
-        Enemy enemy = Enemy.randomEnemy(floor);
+    private static Enemy newEnemy(Grid map, Position position, int floor,
+            Difficulty difficulty, SplittableRandom rand) {
+        Enemy enemy = Enemy.randomEnemy(floor, difficulty, rand);
         enemy.setPOS(position);
-        map[position.x][position.y] = enemy;
+        map.add(enemy);
         return enemy;
     }
     
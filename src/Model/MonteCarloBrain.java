@@ -0,0 +1,670 @@
+package Model;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EnemyBrain choosing moves with Monte Carlo tree search.
+ * <p></p>
+ * An Enemy that perceives a Player copies the area around it into a
+ * small simulated state, and plays the next few rounds out many times
+ * over with the combat rules of {@link Player#attack} and
+ * {@link Enemy#attack}. The first move of the search is one of the
+ * Enemy's possible moves. Later moves are open-loop tactics, namely
+ * attacking, holding or retreating, and every other character follows
+ * a quick rollout policy. Playouts are scored by the share of Player
+ * HP lost against the share of Enemy HP lost.
+ * <p></p>
+ * Each decision searches until its budget runs out, with independent
+ * trees on several threads whose root statistics are added together.
+ * The Map's decision deadline should be longer than the budget.
+ * Enemies that perceive no Player return null for the greedy move.
+ */
+public final class MonteCarloBrain implements EnemyBrain {
+    /** The distance around the Enemy copied into the simulated state. */
+    private static final int RADIUS = 10;
+
+    /** The number of rounds played out. */
+    private static final int HORIZON = 4;
+
+    /** The range at which simulated Enemies notice Players. */
+    private static final int SIGHT_RANGE = 7;
+
+    /** The weight of exploration in UCB1. */
+    private static final double EXPLORATION = 0.5;
+
+    /** The tactics searched after the first move. */
+    private static final int ATTACK = 0, HOLD = 1, RETREAT = 2, TACTICS = 3;
+
+    private final long budgetMillis;
+    private final int parallelism;
+
+    private final LongAdder playouts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /**
+     * Creates a brain searching on every available processor.
+     * @param budgetMillis The time each decision searches for.
+     */
+    public MonteCarloBrain(long budgetMillis) {
+        this(budgetMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a brain.
+     * @param budgetMillis The time each decision searches for.
+     * @param parallelism The number of trees searched at once.
+     */
+    public MonteCarloBrain(long budgetMillis, int parallelism) {
+        this.budgetMillis = budgetMillis;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** @return The time each decision searches for, in milliseconds. */
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /** @return The number of trees searched at once. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /** @return The number of playouts run so far. */
+    public long getPlayouts() {
+        return playouts.sum();
+    }
+
+    /** @return The playouts run per second of each searching thread. */
+    public double getPlayoutsPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : playouts.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public String name() {
+        return "mcts";
+    }
+
+    @Override
+    public Position decide(Map map, EntityView enemy) throws InterruptedException {
+        Position start = enemy.getPOS();
+        List<EntityView> near = map.entitiesWithin(start, RADIUS);
+        boolean perceived = near.stream().anyMatch(entity ->
+                entity.getKind() == EntityKind.PLAYER
+                && map.enemiesPerceiving(entity.getPOS()).contains(start));
+        if (!perceived) {
+            return null;
+        }
+
+        List<Position> moves = new ArrayList<>(map.possibleMovesForEnemy(start));
+        if (moves.size() <= 1) {
+            return start;
+        }
+        moves.sort(Comparator.comparingInt((Position p) -> p.x).thenComparingInt(p -> p.y));
+
+        Sim root = Sim.capture(map, enemy, near);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        SplittableRandom rand = new SplittableRandom(map.getSeed()
+                ^ map.getTurnNumber() * 0x9E3779B97F4A7C15L
+                ^ enemy.getID() * 0xC2B2AE3D27D4EB4FL);
+
+        // root parallelism: independent trees, added together at the end
+        List<Future<Node>> helpers = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            SplittableRandom split = rand.split();
+            helpers.add(AIExecutor.shared().submit(
+                    () -> search(root, moves, deadline, split)));
+        }
+
+        Node total = search(root, moves, deadline, rand);
+        try {
+            for (Future<Node> helper : helpers) {
+                total.add(helper.get());
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            helpers.forEach(helper -> helper.cancel(true));
+        }
+
+        return moves.get(total.mostVisited());
+    }
+
+    /**
+     * Searches one tree until the deadline.
+     * @return The root of the tree.
+     */
+    private Node search(Sim root, List<Position> moves, long deadline, SplittableRandom rand) {
+        long start = System.nanoTime();
+        Node tree = new Node(moves.size());
+        Sim sim = root.copy();
+        int count = 0;
+
+        do {
+            for (int i = 0; i < 16; i++) {
+                sim.reset(root);
+                playout(sim, tree, moves, rand);
+                count++;
+            }
+        } while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+
+        playouts.add(count);
+        searchNanos.add(System.nanoTime() - start);
+        return tree;
+    }
+
+    /** Plays the rounds out once, expanding at most one Node. */
+    private static void playout(Sim sim, Node tree, List<Position> moves, SplittableRandom rand) {
+        Node[] path = new Node[HORIZON];
+        int[] chosen = new int[HORIZON];
+        int depth = 0;
+        boolean expanded = false;
+        Node node = tree;
+
+        for (int round = 0; round < HORIZON && sim.alive(sim.self) && sim.playersLeft(); round++) {
+            int action;
+            if (node != null) {
+                action = node.select(rand);
+                path[depth] = node;
+                chosen[depth++] = action;
+
+                Node next = node.children[action];
+                if (next == null && !expanded && round + 1 < HORIZON) {
+                    next = node.children[action] = new Node(TACTICS);
+                    expanded = true;
+                }
+                node = next;
+            }
+            else {
+                action = rand.nextInt(TACTICS);
+            }
+
+            if (round == 0) {
+                sim.moveOrAttack(sim.self, moves.get(action));
+            }
+            else {
+                sim.tactic(sim.self, action, rand);
+            }
+            sim.enemiesAct(rand);
+            sim.playersAct(rand);
+        }
+
+        double reward = sim.score();
+        for (int i = 0; i < depth; i++) {
+            path[i].update(chosen[i], reward);
+        }
+    }
+
+    /** The statistics of the actions taken from one point of the search. */
+    private static final class Node {
+        final int[] visits;
+        final double[] rewards;
+        final Node[] children;
+        int total;
+
+        Node(int actions) {
+            visits = new int[actions];
+            rewards = new double[actions];
+            children = new Node[actions];
+        }
+
+        /** @return The action to try next, by UCB1. */
+        int select(SplittableRandom rand) {
+            if (total < visits.length) {
+                // try every action once, in a random order
+                int offset = rand.nextInt(visits.length);
+                for (int i = 0; i < visits.length; i++) {
+                    int a = (i + offset) % visits.length;
+                    if (visits[a] == 0) {
+                        return a;
+                    }
+                }
+            }
+
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double log = Math.log(total);
+            for (int a = 0; a < visits.length; a++) {
+                double value = rewards[a] / visits[a]
+                        + EXPLORATION * Math.sqrt(log / visits[a]);
+                if (value > bestValue) {
+                    best = a;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        void update(int action, double reward) {
+            visits[action]++;
+            rewards[action] += reward;
+            total++;
+        }
+
+        /** Adds the root statistics of another tree to this one. */
+        void add(Node other) {
+            for (int a = 0; a < visits.length; a++) {
+                visits[a] += other.visits[a];
+                rewards[a] += other.rewards[a];
+            }
+            total += other.total;
+        }
+
+        /** @return The action visited most, ties going to the better reward. */
+        int mostVisited() {
+            int best = 0;
+            for (int a = 1; a < visits.length; a++) {
+                if (visits[a] > visits[best]
+                        || visits[a] == visits[best] && rewards[a] > rewards[best]) {
+                    best = a;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A simulated copy of the area around an Enemy.
+     * <p></p>
+     * Cells are indexed by {@code x * height + y} relative to the
+     * corner of the area, and characters by their index in the unit
+     * arrays. Terrain and stats never change, so they are shared
+     * between copies, and resetting a copy only copies positions and HP.
+     */
+    private static final class Sim {
+        /** The steps to the four adjacent cells. */
+        private static final int[][] SIDES = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+
+        final int ox, oy, width, height;
+        final boolean[] open;
+        final int[] occupant;
+
+        final int units;
+        final int self;
+        final boolean[] player;
+        final double[] atk, def, startHP;
+        final int[] spd;
+        final int[] x, y;
+        final double[] hp;
+
+        /** Search scratch: distances, valid for the current stamp. */
+        final int[] dist, stamp, queue;
+        int epoch;
+
+        /** The range of the latest {@code reach()}. */
+        int searched;
+
+        private Sim(int ox, int oy, int width, int height, int units, int self,
+                    boolean[] open, boolean[] player, double[] atk, double[] def,
+                    double[] startHP, int[] spd) {
+            this.ox = ox;
+            this.oy = oy;
+            this.width = width;
+            this.height = height;
+            this.units = units;
+            this.self = self;
+            this.open = open;
+            this.player = player;
+            this.atk = atk;
+            this.def = def;
+            this.startHP = startHP;
+            this.spd = spd;
+            occupant = new int[width * height];
+            x = new int[units];
+            y = new int[units];
+            hp = new double[units];
+            dist = new int[width * height];
+            stamp = new int[width * height];
+            queue = new int[width * height];
+        }
+
+        /** Copies the area around an Enemy from a Map. */
+        static Sim capture(Map map, EntityView enemy, List<EntityView> near) {
+            Position c = enemy.getPOS();
+            int size = 2 * RADIUS + 1;
+            int units = near.size();
+            int self = 0;
+
+            boolean[] player = new boolean[units];
+            double[] atk = new double[units], def = new double[units], hp = new double[units];
+            int[] spd = new int[units];
+            for (int i = 0; i < units; i++) {
+                EntityView entity = near.get(i);
+                player[i] = entity.getKind() == EntityKind.PLAYER;
+                atk[i] = entity.getATK();
+                def[i] = entity.getDEF();
+                hp[i] = entity.getHP();
+                spd[i] = entity.getSPD();
+                if (entity.getID() == enemy.getID()) {
+                    self = i;
+                }
+            }
+
+            Sim sim = new Sim(c.x - RADIUS, c.y - RADIUS, size, size, units, self,
+                    new boolean[size * size], player, atk, def, hp, spd);
+            for (int i = 0; i < units; i++) {
+                Position p = near.get(i).getPOS();
+                sim.x[i] = p.x - sim.ox;
+                sim.y[i] = p.y - sim.oy;
+                sim.hp[i] = hp[i];
+                sim.occupant[sim.x[i] * size + sim.y[i]] = i + 1;
+            }
+
+            // characters outside the search range are left as walls
+            for (int dx = 0; dx < size; dx++) {
+                for (int dy = 0; dy < size; dy++) {
+                    EntityKind kind = map.entityKindAt(Position.of(sim.ox + dx, sim.oy + dy));
+                    int cell = dx * size + dy;
+                    sim.open[cell] = kind == EntityKind.EMPTY
+                            || (kind == EntityKind.PLAYER || kind == EntityKind.ENEMY)
+                            && sim.occupant[cell] != 0;
+                }
+            }
+            return sim;
+        }
+
+        /** @return A copy with its own positions, HP and scratch space. */
+        Sim copy() {
+            Sim copy = new Sim(ox, oy, width, height, units, self,
+                    open, player, atk, def, startHP, spd);
+            copy.reset(this);
+            return copy;
+        }
+
+        /** Sets the positions and HP back to those of another copy. */
+        void reset(Sim source) {
+            System.arraycopy(source.occupant, 0, occupant, 0, occupant.length);
+            System.arraycopy(source.x, 0, x, 0, units);
+            System.arraycopy(source.y, 0, y, 0, units);
+            System.arraycopy(source.hp, 0, hp, 0, units);
+        }
+
+        boolean alive(int unit) {
+            return hp[unit] > 0;
+        }
+
+        boolean playersLeft() {
+            for (int i = 0; i < units; i++) {
+                if (player[i] && alive(i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Scores the state from the Enemies' side.
+         * @return 0.5 plus half the difference between the share of
+         *         Player HP lost and the share of Enemy HP lost.
+         */
+        double score() {
+            double playerLost = 0, playerHP = 0, enemyLost = 0, enemyHP = 0;
+            for (int i = 0; i < units; i++) {
+                double lost = startHP[i] - Math.max(0, hp[i]);
+                if (player[i]) {
+                    playerLost += lost;
+                    playerHP += startHP[i];
+                }
+                else {
+                    enemyLost += lost;
+                    enemyHP += startHP[i];
+                }
+            }
+            return 0.5 + 0.5 * (playerLost / Math.max(1e-9, playerHP)
+                    - enemyLost / Math.max(1e-9, enemyHP));
+        }
+
+        /** Every other Enemy makes a move like {@link Enemy#chooseMove}. */
+        void enemiesAct(SplittableRandom rand) {
+            for (int i = 0; i < units; i++) {
+                if (i != self && !player[i] && alive(i)) {
+                    int target = nearest(i, true, SIGHT_RANGE - 1);
+                    if (target < 0) {
+                        moveRandomly(i, rand);
+                    }
+                    else if (!attack(i, target)) {
+                        approach(i, target, rand);
+                    }
+                }
+            }
+        }
+
+        /** Every Player attacks the weakest Enemy in reach, or closes in. */
+        void playersAct(SplittableRandom rand) {
+            for (int i = 0; i < units; i++) {
+                if (!player[i] || !alive(i)) {
+                    continue;
+                }
+
+                reach(i);
+                int weakest = -1;
+                for (int j = 0; j < units; j++) {
+                    if (!player[j] && alive(j) && canAttack(j)
+                            && (weakest < 0 || hp[j] < hp[weakest])) {
+                        weakest = j;
+                    }
+                }
+
+                if (weakest >= 0) {
+                    attack(i, weakest);
+                }
+                else if (rand.nextInt(5) != 0) {
+                    int target = nearest(i, false, Integer.MAX_VALUE);
+                    if (target >= 0) {
+                        approach(i, target, rand);
+                    }
+                }
+                else {
+                    moveRandomly(i, rand);
+                }
+            }
+        }
+
+        /** Carries out one of the Enemy's possible moves on the Map. */
+        void moveOrAttack(int unit, Position move) {
+            int mx = move.x - ox, my = move.y - oy;
+            int cell = mx * height + my;
+            if (occupant[cell] != 0 && occupant[cell] != unit + 1) {
+                attack(unit, occupant[cell] - 1);
+            }
+            else if (occupant[cell] == 0) {
+                place(unit, cell);
+            }
+        }
+
+        /** Carries out a tactic for the Enemy. */
+        void tactic(int unit, int tactic, SplittableRandom rand) {
+            int target = nearest(unit, true, Integer.MAX_VALUE);
+            if (target < 0) {
+                return;
+            }
+
+            if (tactic == ATTACK) {
+                if (!attack(unit, target)) {
+                    approach(unit, target, rand);
+                }
+            }
+            else if (tactic == HOLD) {
+                if (distance(unit, target) == 1) {
+                    attack(unit, target);
+                }
+            }
+            else {
+                reach(unit);
+                int best = cellOf(unit);
+                for (int cell = 0; cell < occupant.length; cell++) {
+                    if (reached(cell) && farther(cell, best, target)) {
+                        best = cell;
+                    }
+                }
+                place(unit, best);
+            }
+        }
+
+        /**
+         * Attacks a character if it can be reached this turn,
+         * first moving next to it by the shortest path.
+         * @return True if the attack was made.
+         */
+        boolean attack(int unit, int target) {
+            reach(unit);
+            int from = nextTo(unit, target);
+            if (from < 0) {
+                return false;
+            }
+
+            place(unit, from);
+            hp[target] -= (atk[unit] * 10) / (def[target] + 5);
+            if (!alive(target)) {
+                occupant[cellOf(target)] = 0;
+            }
+            return true;
+        }
+
+        /** @return True if the character can be attacked, after {@code reach()}. */
+        private boolean canAttack(int target) {
+            int tx = x[target], ty = y[target];
+            return reachedNear(tx + 1, ty) || reachedNear(tx - 1, ty)
+                    || reachedNear(tx, ty + 1) || reachedNear(tx, ty - 1);
+        }
+
+        /** @return The closest reached cell next to a character, or -1. */
+        private int nextTo(int unit, int target) {
+            int best = -1;
+            for (int[] side : SIDES) {
+                int cx = x[target] + side[0], cy = y[target] + side[1];
+                if (reachedNear(cx, cy)) {
+                    int cell = cx * height + cy;
+                    if (best < 0 || dist[cell] < dist[best]) {
+                        best = cell;
+                    }
+                }
+            }
+            return best;
+        }
+
+        /** Returns true if a cell was reached with a step left to attack. */
+        private boolean reachedNear(int cx, int cy) {
+            if (cx < 0 || cy < 0 || cx >= width || cy >= height) {
+                return false;
+            }
+            int cell = cx * height + cy;
+            return reached(cell) && dist[cell] < searched;
+        }
+
+        /** Moves a character to the reached cell closest to a target. */
+        private void approach(int unit, int target, SplittableRandom rand) {
+            reach(unit);
+            int best = cellOf(unit);
+            int ties = 1;
+            for (int cell = 0; cell < occupant.length; cell++) {
+                if (!reached(cell)) {
+                    continue;
+                }
+                int d = cellDistance(cell, target), b = cellDistance(best, target);
+                if (d < b) {
+                    best = cell;
+                    ties = 1;
+                }
+                else if (d == b && cell != best && rand.nextInt(++ties) == 0) {
+                    best = cell;
+                }
+            }
+            place(unit, best);
+        }
+
+        /** Moves a character to a random reached cell. */
+        private void moveRandomly(int unit, SplittableRandom rand) {
+            int count = reach(unit);
+            int pick = rand.nextInt(count);
+            for (int cell = 0; cell < occupant.length; cell++) {
+                if (reached(cell) && pick-- == 0) {
+                    place(unit, cell);
+                    return;
+                }
+            }
+        }
+
+        /** @return The closest living opponent within a distance, or -1. */
+        private int nearest(int unit, boolean players, int range) {
+            int best = -1;
+            for (int j = 0; j < units; j++) {
+                if (player[j] == players && alive(j)
+                        && distance(unit, j) <= range
+                        && (best < 0 || distance(unit, j) < distance(unit, best))) {
+                    best = j;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Finds the empty cells a character can move to this turn.
+         * @return The number of cells reached, including its own.
+         */
+        private int reach(int unit) {
+            epoch++;
+            searched = spd[unit];
+            int start = cellOf(unit);
+            int head = 0, tail = 0, count = 0;
+            queue[tail++] = start;
+            stamp[start] = epoch;
+            dist[start] = 0;
+
+            while (head < tail) {
+                int cell = queue[head++];
+                count++;
+                if (dist[cell] == searched) {
+                    continue;
+                }
+
+                int cx = cell / height, cy = cell % height;
+                for (int[] side : SIDES) {
+                    int nx = cx + side[0], ny = cy + side[1];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                        continue;
+                    }
+                    int next = nx * height + ny;
+                    if (open[next] && occupant[next] == 0 && stamp[next] != epoch) {
+                        stamp[next] = epoch;
+                        dist[next] = dist[cell] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private boolean reached(int cell) {
+            return stamp[cell] == epoch;
+        }
+
+        private void place(int unit, int cell) {
+            occupant[cellOf(unit)] = 0;
+            x[unit] = cell / height;
+            y[unit] = cell % height;
+            occupant[cell] = unit + 1;
+        }
+
+        private int cellOf(int unit) {
+            return x[unit] * height + y[unit];
+        }
+
+        private int distance(int unit, int other) {
+            return Math.abs(x[unit] - x[other]) + Math.abs(y[unit] - y[other]);
+        }
+
+        /** @return The distance from a cell to a character. */
+        private int cellDistance(int cell, int unit) {
+            return Math.abs(cell / height - x[unit]) + Math.abs(cell % height - y[unit]);
+        }
+
+        private boolean farther(int cell, int than, int target) {
+            return cellDistance(cell, target) > cellDistance(than, target);
+        }
+    }
+}
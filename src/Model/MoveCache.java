@@ -0,0 +1,59 @@
+package Model;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the possible moves of characters on a Map.
+ * <p></p>
+ * Entries are keyed by the id and remaining stamina of a character,
+ * and are only valid for one layout version of the Map. The Map bumps
+ * its layout version whenever a character moves or dies, or the floor
+ * changes, so any lookup after such a change clears the cache.
+ * HP, stamina and visibility changes leave cached moves intact.
+ * <p></p>
+ * Lookups are synchronized, as Enemy brains may call them at once.
+ */
+final class MoveCache {
+    /** The cached moves, keyed by id and stamina. */
+    private final HashMap<Long, Set<Position>> entries = new HashMap<>();
+
+    /** The layout version the entries are valid for. */
+    private long version = -1;
+
+    /** Where hits and misses are counted. */
+    private final Statistics statistics;
+
+    MoveCache(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the cached moves of a character,
+     * computing and caching them if needed.
+     * @param version The current layout version of the Map.
+     * @param id The id of the character.
+     * @param stamina The remaining stamina of the character.
+     * @param compute Calculates the moves on a miss.
+     * @return An unmodifiable Set of moves.
+     */
+    synchronized Set<Position> get(long version, int id, int stamina,
+                      Supplier<Set<Position>> compute) {
+        if (version != this.version) {
+            entries.clear();
+            this.version = version;
+        }
+
+        long key = ((long) id << 32) | (stamina & 0xffffffffL);
+        Set<Position> moves = entries.get(key);
+        if (moves != null) {
+            statistics.moveCacheHit();
+            return moves;
+        }
+
+        statistics.moveCacheMiss();
+        moves = Collections.unmodifiableSet(compute.get());
+        entries.put(key, moves);
+        return moves;
+    }
+}
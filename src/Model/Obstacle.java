@@ -5,6 +5,14 @@ package Model;
  * Is used for defining an entity that takes up its own space and may not be destructable.
  */
 public class Obstacle extends Entity {
+	
+	/**
+	 * The wall tile shared by every wall on a Map.
+	 * Walls carry no per-cell state, so this single immutable
+	 * instance stands in for all of them. Its Position is the
+	 * cell it is found in, and {@code getPOS()} returns null.
+	 */
+	public static final Obstacle WALL = sharedTile(new Obstacle());
 
 	/**
 	 * An Obstacle contructor that allows the object to be initiated as desired
@@ -20,6 +28,11 @@ public class Obstacle extends Entity {
 		super(1000, 0, 1000, 0, null, 1);
 	}
 	
+	@Override
+	public EntityKind getKind() {
+		return EntityKind.WALL;
+	}
+	
 	/**
 	 * copy() method allows an Obstacle object be class typed to the parent class Entity
 	 * Parameters: none
@@ -27,6 +40,9 @@ public class Obstacle extends Entity {
 	 */
 	@Override
 	public Entity copy() {
+		if (isSharedTile()) {
+			return this;
+		}
 		Obstacle Obstacle = new Obstacle();
 		Obstacle.setHP(getHP());
 		return Obstacle;
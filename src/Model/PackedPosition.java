@@ -0,0 +1,107 @@
+package Model;
+
+/**
+ * Static helpers for Positions packed into a single int, for hot
+ * loops that should not create or look up Position objects.
+ * <p></p>
+ * The x coordinate is kept in the high 16 bits and the y coordinate
+ * in the low 16 bits, both signed, so each must lie between -32768
+ * and 32767. This covers every Map, but not the whole of a
+ * ChunkedWorld, which should keep using Positions or PositionSet.
+ * <p></p>
+ * The class itself cannot be instantiated.
+ */
+public final class PackedPosition {
+    /** The packed value of no position, matching {@code Position.NONE}. */
+    public static final int NONE = pack(-1, -1);
+
+    /** The number of neighbours returned by {@code neighbour()}. */
+    public static final int NEIGHBOURS = 4;
+
+    /** The smallest and largest coordinates that can be packed. */
+    public static final int MIN = Short.MIN_VALUE, MAX = Short.MAX_VALUE;
+
+    /** Disallow instantiation. */
+    private PackedPosition() { }
+
+    /**
+     * @param x The x coordinate, from MIN to MAX.
+     * @param y The y coordinate, from MIN to MAX.
+     * @return The coordinates packed into an int.
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    /**
+     * @param pos The Position to pack.
+     * @return The coordinates of the Position packed into an int.
+     */
+    public static int pack(Position pos) {
+        return pack(pos.x, pos.y);
+    }
+
+    /** @return The x coordinate of a packed value. */
+    public static int x(int packed) {
+        return packed >> 16;
+    }
+
+    /** @return The y coordinate of a packed value. */
+    public static int y(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * @param packed A packed value.
+     * @return The Position of the packed value, shared if possible.
+     */
+    public static Position toPosition(int packed) {
+        return Position.of(x(packed), y(packed));
+    }
+
+    /**
+     * Returns one of the four adjacent packed values, in the same
+     * order as {@code Position.adjacentPositions()}.
+     * @param packed A packed value.
+     * @param direction The neighbour, from 0 to {@code NEIGHBOURS - 1}.
+     * @return The packed value of the neighbour.
+     */
+    public static int neighbour(int packed, int direction) {
+        int x = x(packed), y = y(packed);
+        switch (direction) {
+            case 0: return pack(x + 1, y);
+            case 1: return pack(x - 1, y);
+            case 2: return pack(x, y + 1);
+            case 3: return pack(x, y - 1);
+            default: throw new IllegalArgumentException("No neighbour " + direction);
+        }
+    }
+
+    /**
+     * @param a A packed value.
+     * @param b Another packed value.
+     * @return The rectilinear distance between the two.
+     */
+    public static int distance(int a, int b) {
+        return Math.abs(x(a) - x(b)) + Math.abs(y(a) - y(b));
+    }
+
+    /**
+     * @param packed A packed value.
+     * @param width The width of the area.
+     * @param height The height of the area.
+     * @return True if the value lies within an area starting at the origin.
+     */
+    public static boolean inBounds(int packed, int width, int height) {
+        int x = x(packed), y = y(packed);
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * @param packed A packed value.
+     * @return A String in the same form as {@code Position.toString()}.
+     */
+    public static String toString(int packed) {
+        return "P(" + x(packed) + "," + y(packed) + ")";
+    }
+}
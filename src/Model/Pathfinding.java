@@ -126,12 +126,27 @@ public final class Pathfinding {
      */
     public static Set<Position> movementForPosition(
             Delegate delegate, Position start, int range) {
+        return movementForPosition(delegate, start, range, new PositionIntMap(reachable(range)));
+    }
+    
+    /**
+     * Calculates all possible movement options, as
+     * {@code movementForPosition(delegate, start, range)} does,
+     * keeping the distance to each of them.
+     * @param delegate The pathfinding delegate.
+     * @param start The starting position.
+     * @param range The range of movement.
+     * @param distances An empty map, which is given the number of
+     *                  steps to each of the positions returned.
+     * @return A Set of Positions containing legal positions.
+     */
+    public static Set<Position> movementForPosition(
+            Delegate delegate, Position start, int range, PositionIntMap distances) {
         // prep for search
-        Set<Position> positions = new HashSet<>();
+        PositionSet positions = new PositionSet(reachable(range));
         Deque<Position> frontier = new ArrayDeque<>();
-        HashMap<Position, Integer> distances = new HashMap<>();
         frontier.add(start);
-        distances.put(start, 0);
+        distances.put(start.x, start.y, 0);
         
         // loop until frontier exhausted
         while (!frontier.isEmpty()) {
@@ -142,7 +157,7 @@ public final class Pathfinding {
             positions.add(pos);
             
             // hit max distance
-            int dist = distances.get(pos);
+            int dist = distances.get(pos.x, pos.y, 0);
             if (dist == range) {
                 continue;
             }
@@ -151,10 +166,10 @@ public final class Pathfinding {
             for (Position newPos : pos.adjacentPositions()) {
                 // ignore invalid and already visited positions
                 // (BFS always finds the shortest path)
-                if (delegate.validPosition(newPos)
-                        && !distances.containsKey(newPos)) {
+                if (!distances.containsKey(newPos.x, newPos.y)
+                        && delegate.validPosition(newPos)) {
                     // update distance, add to frontier queue
-                    distances.put(newPos, dist + 1);
+                    distances.put(newPos.x, newPos.y, dist + 1);
                     frontier.addFirst(newPos);
                 }
             }
@@ -163,6 +178,15 @@ public final class Pathfinding {
         return positions;
     }
     
+    /**
+     * @param range The range of movement.
+     * @return The most Positions that may be reached, which is
+     *         the diamond of cells within range, for sizing tables.
+     */
+    static int reachable(int range) {
+        return range < 64 ? 2 * range * (range + 1) + 1 : 8192;
+    }
+    
     /**
      * Searches for the shortest path from one Position
      * to another using A* pathfinding.
@@ -175,13 +199,17 @@ public final class Pathfinding {
     public static List<Position> shortestPath(
             Delegate delegate, Position start, Position end) {
         // setup
+        // history maps each Position to the index of its predecessor in expanded
         TreeSet<PathPosition> frontier = new TreeSet<>();
-        HashMap<Position, PathPosition> history = new HashMap<>();
+        List<PathPosition> expanded = new ArrayList<>();
+        PositionIntMap history = new PositionIntMap();
         frontier.add(new PathPosition(start, 0, start.distanceTo(end)));
     
         // populate until goal reached
         while (!frontier.isEmpty()) {
             PathPosition pos = frontier.pollFirst();
+            int index = expanded.size();
+            expanded.add(pos);
         
             // reached goal, finish
             if (end.equals(pos.position)) {
@@ -190,7 +218,7 @@ public final class Pathfinding {
                 List<Position> path = new ArrayList<>();
                 while (!track.equals(start)) {
                     path.add(track);
-                    track = history.get(track).position;
+                    track = expanded.get(history.get(track.x, track.y, -1)).position;
                 }
             
                 // faster to append then reverse: O(2n)
@@ -203,12 +231,13 @@ public final class Pathfinding {
                 PathPosition newPathPos = new PathPosition(newPos,
                         pos.cost + 1, newPos.distanceTo(end));
                 // ignore invalid positions and better paths
+                int previous = history.get(newPos.x, newPos.y, -1);
                 if (delegate.validPosition(newPos)
-                        && (!history.containsKey(newPos)
-                        || history.get(newPos).priority()
+                        && (previous < 0
+                        || expanded.get(previous).priority()
                         > pos.priority())) {
                     // add to backtracking and frontier
-                    history.put(newPos, pos);
+                    history.put(newPos.x, newPos.y, index);
                     frontier.add(newPathPos);
                 }
             }
@@ -218,12 +247,13 @@ public final class Pathfinding {
         // find tile closest to destination
         Position closest = start;
         int lowestCost = 0;
-        for (HashMap.Entry<Position, PathPosition> e : history.entrySet()) {
+        for (java.util.Map.Entry<Position, Integer> e : history.entrySet()) {
+            int cost = expanded.get(e.getValue()).cost;
             if (e.getKey().distanceTo(end) < closest.distanceTo(end)
                     || (e.getKey().distanceTo(end) == closest.distanceTo(end)
-                    && e.getValue().cost < lowestCost)) {
+                    && cost < lowestCost)) {
                 closest = e.getKey();
-                lowestCost = e.getValue().cost;
+                lowestCost = cost;
             }
         }
     
@@ -261,8 +291,8 @@ public final class Pathfinding {
      */
     public static Set<Position> visibility(
             Delegate delegate, Position p, int range) {
-        Set<Position> positions = new HashSet<>();
-        positions.add(new Position(p));
+        PositionSet positions = new PositionSet(range > 0 ? 2 * range * (range + 1) + 1 : 64);
+        positions.add(p.x, p.y);
         
         // shadow cast for each octant
         for (int i = 0; i < 8; i++) {
@@ -288,7 +318,7 @@ public final class Pathfinding {
      * @param bot The lower Slope.
      */
     private static void shadowCast(
-            Delegate delegate, Set<Position> positions, int octant,
+            Delegate delegate, PositionSet positions, int octant,
             Position p, int range, int x, Position top, Position bot) {
         for (; x <= range || range < 0; x++) {
             // calculate enter and exit vectors
@@ -314,11 +344,11 @@ public final class Pathfinding {
                 }
                 
                 // add to positions if in range
-                Position newPos = new Position(tx, ty);
+                Position newPos = Position.of(tx, ty);
                 boolean inRange = range <= 0 ||
                         p.distanceTo(newPos) <= range;
                 if (inRange) {
-                    positions.add(newPos);
+                    positions.add(tx, ty);
                 }
                 
                 // check opacity with delegate
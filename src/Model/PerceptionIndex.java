@@ -0,0 +1,187 @@
+package Model;
+
+import java.util.*;
+
+/**
+ * Reverse perception index maintained by a Map.
+ * <p></p>
+ * For every Player, the index holds the tiles the Player can see
+ * within sight range, along with the Enemies close enough to
+ * perceive that Player. Because only walls block sight, an Enemy
+ * moving never changes what a Player can see: moving an Enemy only
+ * needs a lookup in each Player's sight, and shadow casting is only
+ * redone when a Player moves.
+ * <p></p>
+ * Characters are tracked by id rather than by object, so the index
+ * stays valid when a forked Map copies a character before changing it.
+ */
+final class PerceptionIndex {
+    /** The range at which tiles are visible. */
+    private final int range;
+
+    /** The tiles visible to each Player. The Sets are never modified. */
+    private final HashMap<Integer, Set<Position>> sight;
+
+    /** The Position each Player's sight was computed from. */
+    private final HashMap<Integer, Position> eyes;
+
+    /** The ids of the Enemies that perceive each Player. */
+    private final HashMap<Integer, Set<Integer>> perceivedBy;
+
+    /** The ids of the Players that each Enemy perceives. */
+    private final HashMap<Integer, Set<Integer>> perceives;
+
+    /**
+     * Creates an empty PerceptionIndex.
+     * @param range The sight range of Players. Enemies must be
+     *              strictly closer than this to perceive a Player.
+     */
+    PerceptionIndex(int range) {
+        this.range = range;
+        sight = new HashMap<>();
+        eyes = new HashMap<>();
+        perceivedBy = new HashMap<>();
+        perceives = new HashMap<>();
+    }
+
+    /** Creates an independent copy of an index. */
+    private PerceptionIndex(PerceptionIndex source) {
+        range = source.range;
+        sight = new HashMap<>(source.sight);
+        eyes = new HashMap<>(source.eyes);
+        perceivedBy = deepCopy(source.perceivedBy);
+        perceives = deepCopy(source.perceives);
+    }
+
+    /**
+     * Copies the index. Sight is shared, as it is never modified,
+     * so the copy only costs as much as the perception links.
+     * @return An independent copy of the index.
+     */
+    PerceptionIndex copy() {
+        return new PerceptionIndex(this);
+    }
+
+    /**
+     * Rebuilds the whole index, as after a floor change.
+     * @param delegate The delegate used for shadow casting.
+     * @param players The Players on the Map.
+     * @param enemies The Enemies on the Map.
+     */
+    void rebuild(Pathfinding.Delegate delegate,
+                 Collection<Player> players, Collection<Enemy> enemies) {
+        sight.clear();
+        eyes.clear();
+        perceivedBy.clear();
+        perceives.clear();
+
+        for (Player player : players) {
+            updatePlayer(delegate, player, enemies);
+        }
+    }
+
+    /**
+     * Recomputes the sight of a Player that has moved.
+     * @param delegate The delegate used for shadow casting.
+     * @param player The Player to update.
+     * @param enemies The Enemies on the Map.
+     */
+    void updatePlayer(Pathfinding.Delegate delegate,
+                      Player player, Collection<Enemy> enemies) {
+        removePlayer(player);
+
+        int id = player.getID();
+        Set<Position> visible = Pathfinding.visibility(
+                delegate, player.getPOS(), range);
+        sight.put(id, visible);
+        eyes.put(id, player.getPOS());
+        perceivedBy.put(id, new HashSet<>());
+
+        for (Enemy enemy : enemies) {
+            if (canPerceive(enemy.getPOS(), id)) {
+                link(enemy.getID(), id);
+            }
+        }
+    }
+
+    /**
+     * Rechecks which Players an Enemy perceives after it moved.
+     * @param enemy The Enemy to update.
+     */
+    void updateEnemy(Enemy enemy) {
+        removeEnemy(enemy);
+
+        for (int player : sight.keySet()) {
+            if (canPerceive(enemy.getPOS(), player)) {
+                link(enemy.getID(), player);
+            }
+        }
+    }
+
+    /** @param player The Player to remove from the index. */
+    void removePlayer(Player player) {
+        int id = player.getID();
+        sight.remove(id);
+        eyes.remove(id);
+        Set<Integer> enemies = perceivedBy.remove(id);
+        if (enemies != null) {
+            for (int enemy : enemies) {
+                perceives.get(enemy).remove(id);
+            }
+        }
+    }
+
+    /** @param enemy The Enemy to remove from the index. */
+    void removeEnemy(Enemy enemy) {
+        Set<Integer> players = perceives.remove(enemy.getID());
+        if (players != null) {
+            for (int player : players) {
+                perceivedBy.get(player).remove(enemy.getID());
+            }
+        }
+    }
+
+    /**
+     * @param player The Player to check.
+     * @return The tiles visible to the Player, or an empty Set.
+     */
+    Set<Position> sightOf(Player player) {
+        return sight.getOrDefault(player.getID(), Collections.emptySet());
+    }
+
+    /**
+     * @param player The Player to check.
+     * @return The ids of the Enemies perceiving the Player, or an empty Set.
+     */
+    Set<Integer> enemiesPerceiving(Player player) {
+        return perceivedBy.getOrDefault(player.getID(), Collections.emptySet());
+    }
+
+    /**
+     * @param enemy The Enemy to check.
+     * @return The ids of the Players perceived by the Enemy, or an empty Set.
+     */
+    Set<Integer> playersPerceivedBy(Enemy enemy) {
+        return perceives.getOrDefault(enemy.getID(), Collections.emptySet());
+    }
+
+    /** Returns true if an Enemy at a Position is close enough to see the Player. */
+    private boolean canPerceive(Position pos, int player) {
+        return pos.distanceTo(eyes.get(player)) < range
+                && sight.get(player).contains(pos);
+    }
+
+    /** Records that the Enemy perceives the Player. */
+    private void link(int enemy, int player) {
+        perceivedBy.get(player).add(enemy);
+        perceives.computeIfAbsent(enemy, e -> new HashSet<>()).add(player);
+    }
+
+    private static HashMap<Integer, Set<Integer>> deepCopy(HashMap<Integer, Set<Integer>> links) {
+        HashMap<Integer, Set<Integer>> copy = new HashMap<>();
+        for (java.util.Map.Entry<Integer, Set<Integer>> entry : links.entrySet()) {
+            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+}
@@ -1,15 +1,12 @@
 package Model;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Player class inherits from entity class.
  * Defines an entity that the user can control on a map.
  */
 public class Player extends Entity {
-	//Defines extra stats for a player entity
-	private double EXP;
-	private double LVLlimit = 150; 
-	private int STM;
+	//Extra stats for a player entity are kept in the store with the others
 	private String name;
 
 	/**
@@ -17,15 +14,30 @@ public class Player extends Entity {
 	 */
 	public Player(double HP, double ATK, double DEF, int SPD, Position POS, int LVL, double EXP, double LVLlimit, int STM, String name) {
 		super(HP, ATK, DEF, SPD, POS, LVL);
-		this.EXP = EXP;
-		this.LVLlimit = LVLlimit;
-		this.STM = SPD;
+		store().exp[0] = EXP;
+		store().lvlLimit[0] = LVLlimit;
+		store().stm[0] = SPD;
+		this.name = name;
+	}
+	
+	/**
+	 * Player handle over stats already in a store.
+	 */
+	Player(EntityStore store, int slot, int ID, String name) {
+		super(store, slot, ID);
+		this.name = name;
 	}
 	/** 
 	 * Generate a new player with random stats ranging between 1-10 
 	 */
 	public static Player randomPlayer() {
-		Random rand = new Random();
+		return randomPlayer(new SplittableRandom());
+	}
+	/**
+	 * Generate a new player with random stats rolled from a given source,
+	 * so that the same stream always generates the same player.
+	 */
+	public static Player randomPlayer(SplittableRandom rand) {
 		double HP = (rand.nextInt(10) + 10);
 		double ATK = (rand.nextInt(5) + 5);
 		int SPD = rand.nextInt(2) + 4;
@@ -38,22 +50,41 @@ public class Player extends Entity {
 	 * Set stamina to an amount, given as an integer. 
 	 */
 	public void setSTM(int STM) {
-		this.STM = STM;
+		writable().stm[slot()] = STM;
 	}
 	/**
 	 * Return stamina of player as an integer.
 	 */
 	public int getSTM() {
-		return STM;
+		return store().stm[slot()];
+	}
+	/**
+	 * Return the EXP pool of the player.
+	 */
+	public double getEXP() {
+		return store().exp[slot()];
+	}
+	/**
+	 * Return the EXP needed for the next level.
+	 */
+	double getLVLlimit() {
+		return store().lvlLimit[slot()];
+	}
+	/**
+	 * Set the EXP needed for the next level.
+	 */
+	private void setLVLlimit(double LVLlimit) {
+		writable().lvlLimit[slot()] = LVLlimit;
 	}
 	/** 
 	 * Add EXP to the EXP pool of the player, and levels them up
 	 * if their EXP surpasses their EXP limit for their current level.
 	 */
 	public void addEXP(double EXP) {
-		this.EXP += EXP;
-		if(this.EXP >= this.LVLlimit) {
-			this.LVLup(this.EXP);
+		double total = getEXP() + EXP;
+		writable().exp[slot()] = total;
+		if(total >= getLVLlimit()) {
+			this.LVLup(total);
 		}
 	}
 	/** 
@@ -67,27 +98,39 @@ public class Player extends Entity {
 			this.setATK((this.getATK()/ (this.getLVL() -1)) * this.getLVL());
 			this.setDEF((this.getDEF()/ (this.getLVL() - 1)) * this.getLVL());
 			this.setmaxHP((this.getmaxHP()/ (this.getLVL()-1)) * this.getLVL());
-			this.LVLlimit = this.getLVL() * 150;
-			Map.logMessage("Level up! You are now level " + this.getLVL() + ".");
+			setLVLlimit(this.getLVL() * 150);
+			post(GameEvent.Type.LEVEL_UP, this.getLVL(), "Level up! You are now level " + this.getLVL() + ".");
 		}
 	/**
 	 * Attack an enemy, dealing damage to HP depending on the player's 
 	 * attack stat and the enemy's defense stat, and add EXP if the enemy is killed.
 	 */
 	public void attack(Enemy e) {
-		Random rand = new Random();
+		attack(e, new SplittableRandom());
+	}
+	
+	/**
+	 * Attack an enemy, rolling the EXP gained from a given source,
+	 * so that a Map can replay the attack exactly.
+	 */
+	void attack(Enemy e, SplittableRandom rand) {
 		double ATK = this.getATK();
 		double damage = (ATK * 10)/(e.getDEF() + 5);
 		e.setHP(e.getHP() - damage);
-		Map.logMessage("Dealt " + (int) damage + " damage!");
+		post(GameEvent.Type.DAMAGE_DEALT, damage, "Dealt " + (int) damage + " damage!");
 		if (e.getHP() < 0) {
-			Map.logMessage("The enemy was defeated!");
+			post(GameEvent.Type.ENEMY_DEFEATED, 0, "The enemy was defeated!");
 			int EXPgained = rand.nextInt(21) + 30;
 			this.addEXP(EXPgained);
-			Map.logMessage("Player gained " + EXPgained + " experience points!");
+			post(GameEvent.Type.EXPERIENCE, EXPgained, "Player gained " + EXPgained + " experience points!");
 		}
 	}
 	
+	@Override
+	public EntityKind getKind() {
+		return EntityKind.PLAYER;
+	}
+	
 	/**
 	 * copy() method type casts this Player object into the parent Entity class
 	 * Parameters: none
@@ -95,11 +138,23 @@ public class Player extends Entity {
 	 */
 	@Override
 	public Entity copy() {
-		Player Player = new Player(getmaxHP(), getATK(), getDEF(), getSPD(), getPOS(), getLVL(), EXP, LVLlimit, STM, "Placeholder");
+		Player Player = new Player(getmaxHP(), getATK(), getDEF(), getSPD(), getPOS(), getLVL(), getEXP(), getLVLlimit(), getSTM(), name);
 		Player.setHP(getHP());
 		Player.setSTM(getSTM());
+		Player.setID(getID());
 		return Player;
 	}
+	
+	/**
+	 * Creates another handle over the stats of this Player,
+	 * which have been copied into a slot of another store.
+	 * @param target The store holding the stats.
+	 * @param slot The slot of the stats in the store.
+	 * @return A Player with the same id.
+	 */
+	Player handle(EntityStore target, int slot) {
+		return new Player(target, slot, getID(), name);
+	}
 }
 	
 
@@ -1,5 +1,7 @@
 package Model;
 
+import java.util.Arrays;
+
 /**
  * Represents an integer point on a 2D grid.
  * <p></p>
@@ -21,6 +23,58 @@ public final class Position implements Comparable<Position> {
         this.y = y;
     }
     
+    /**
+     * Returns the Position at coordinates, which is a shared instance
+     * for coordinates within the largest Map created so far, so that
+     * code running over a Map can look Positions up instead of creating
+     * them. Positions are immutable, so sharing them is safe, but they
+     * must still be compared with {@code equals()}.
+     * @param x The x coordinate of the Position.
+     * @param y The y coordinate of the Position.
+     * @return The canonical Position, or a new one outside the cache.
+     */
+    public static Position of(int x, int y) {
+        Position[][] columns = cache;
+        if ((x | y) < 0 || x >= columns.length || y >= columns[x].length) {
+            return new Position(x, y);
+        }
+        
+        // racing threads may both create the Position, which is harmless
+        Position[] column = columns[x];
+        Position pos = column[y];
+        if (pos == null) {
+            pos = new Position(x, y);
+            column[y] = pos;
+        }
+        return pos;
+    }
+    
+    /**
+     * Grows the cache of {@code of()} to cover a Map, unless the Map
+     * is too large to cache. Positions already shared stay shared.
+     * @param width The width of the Map.
+     * @param height The height of the Map.
+     */
+    static synchronized void reserve(int width, int height) {
+        Position[][] columns = cache;
+        int oldHeight = columns[0].length;
+        if (width <= columns.length && height <= oldHeight) {
+            return;
+        }
+        int newWidth = Math.max(width, columns.length);
+        int newHeight = Math.max(height, oldHeight);
+        if ((long) newWidth * newHeight > CACHE_LIMIT) {
+            return;
+        }
+        
+        Position[][] grown = new Position[newWidth][];
+        for (int x = 0; x < newWidth; x++) {
+            grown[x] = x < columns.length
+                    ? Arrays.copyOf(columns[x], newHeight) : new Position[newHeight];
+        }
+        cache = grown;
+    }
+    
     /**
      * Creates a new Position using information from another Position.
      * @param other The position to copy coordinates from.
@@ -38,13 +92,13 @@ public final class Position implements Comparable<Position> {
     }
     
     /**
-     * Returns a new Position offset from this Position.
+     * Returns a Position offset from this Position.
      * @param x The x-offset of the new Position.
      * @param y The y-offset of the new Position.
-     * @return A new Position relative to this Position.
+     * @return The Position relative to this Position.
      */
     public Position moved(int x, int y) {
-        return new Position(this.x + x, this.y + y);
+        return of(this.x + x, this.y + y);
     }
     
     /**
@@ -52,10 +106,10 @@ public final class Position implements Comparable<Position> {
      */
     public Position[] adjacentPositions() {
         return new Position[] {
-                new Position(x + 1, y),
-                new Position(x - 1, y),
-                new Position(x, y + 1),
-                new Position(x, y - 1)
+                of(x + 1, y),
+                of(x - 1, y),
+                of(x, y + 1),
+                of(x, y - 1)
         };
     }
     
@@ -91,6 +145,19 @@ public final class Position implements Comparable<Position> {
         return Integer.compare(y, o.y);
     }
     
+    /**
+     * The most cells of Positions shared by {@code of()}, so that the
+     * cache stays within a few megabytes of references.
+     */
+    private static final int CACHE_LIMIT = 1 << 22;
+    
+    /**
+     * The shared Positions, by column, created as needed. The cache
+     * starts at 256 by 256 and is replaced by a larger one as larger
+     * Maps are created.
+     */
+    private static volatile Position[][] cache = new Position[256][256];
+    
     /**
      * A Position representing no position.
      */
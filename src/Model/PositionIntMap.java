@@ -0,0 +1,261 @@
+package Model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A Map from Positions to ints, stored as packed coordinates and
+ * primitive values in an open-addressing table, with no node or
+ * boxing per entry.
+ * <p></p>
+ * The table is laid out as in PositionSet. The Map interface is
+ * there for compatibility and boxes every value it returns, so hot
+ * code should use {@code get(int, int, int)} and {@code put(int, int, int)}.
+ */
+public final class PositionIntMap extends AbstractMap<Position, Integer> {
+    private static final byte EMPTY = 0, FULL = 1, REMOVED = 2;
+
+    private long[] keys;
+    private int[] values;
+    private byte[] states;
+    private int size;
+    /** The number of slots that are not EMPTY. */
+    private int used;
+    /** The number of bits of a hash used as an index. */
+    private int bits;
+    private int modCount;
+
+    /** Creates an empty PositionIntMap. */
+    public PositionIntMap() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty PositionIntMap.
+     * @param expected The number of entries expected, to size the table.
+     */
+    public PositionIntMap(int expected) {
+        bits = Math.max(3, 32 - Integer.numberOfLeadingZeros(Math.max(1, expected * 2 - 1)));
+        keys = new long[1 << bits];
+        values = new int[1 << bits];
+        states = new byte[1 << bits];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return True if there is a value for the Position at the coordinates.
+     */
+    public boolean containsKey(int x, int y) {
+        return find(PositionSet.pack(x, y)) >= 0;
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param missing The value to return if there is none.
+     * @return The value for the Position at the coordinates, or the missing value.
+     */
+    public int get(int x, int y, int missing) {
+        int slot = find(PositionSet.pack(x, y));
+        return slot < 0 ? missing : values[slot];
+    }
+
+    /**
+     * Sets the value for the Position at coordinates, without creating it.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param value The value to set.
+     */
+    public void put(int x, int y, int value) {
+        long key = PositionSet.pack(x, y);
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if ((used + 1) * 2 > keys.length) {
+            rehash(size + 1);
+        }
+
+        int mask = keys.length - 1;
+        slot = PositionSet.slotOf(key, bits);
+        while (states[slot] == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        if (states[slot] == EMPTY) {
+            used++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        states[slot] = FULL;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Position && containsKey(((Position) key).x, ((Position) key).y);
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof Position)) {
+            return null;
+        }
+        int slot = find(PositionSet.pack(((Position) key).x, ((Position) key).y));
+        return slot < 0 ? null : values[slot];
+    }
+
+    @Override
+    public Integer put(Position key, Integer value) {
+        Integer previous = get(key);
+        put(key.x, key.y, value);
+        return previous;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        if (!(key instanceof Position)) {
+            return null;
+        }
+        int slot = find(PositionSet.pack(((Position) key).x, ((Position) key).y));
+        if (slot < 0) {
+            return null;
+        }
+        removeSlot(slot);
+        return values[slot];
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0 && used == 0) {
+            return;
+        }
+        java.util.Arrays.fill(states, EMPTY);
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<Position, Integer>> entrySet() {
+        return new AbstractSet<Entry<Position, Integer>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                PositionIntMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Entry<Position, Integer>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /** Iterates over the entries, creating each entry as it is returned. */
+    private final class EntryIterator implements Iterator<Entry<Position, Integer>> {
+        private int next = advance(0);
+        private int last = -1;
+        private int expected = modCount;
+
+        private int advance(int slot) {
+            while (slot < states.length && states[slot] != FULL) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < states.length;
+        }
+
+        @Override
+        public Entry<Position, Integer> next() {
+            if (expected != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= states.length) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            Position pos = Position.of(PositionSet.unpackX(keys[last]), PositionSet.unpackY(keys[last]));
+            return new SimpleImmutableEntry<>(pos, values[last]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (expected != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(last);
+            expected = modCount;
+            last = -1;
+        }
+    }
+
+    /** @return The slot holding a key, or -1. */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = PositionSet.slotOf(key, bits);
+        while (states[slot] != EMPTY) {
+            if (states[slot] == FULL && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Leaves a tombstone in a slot, so that probing continues past it. */
+    private void removeSlot(int slot) {
+        states[slot] = REMOVED;
+        size--;
+        modCount++;
+    }
+
+    /** Rebuilds the table for a number of entries, dropping tombstones. */
+    private void rehash(int expected) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+
+        bits = Math.max(3, 32 - Integer.numberOfLeadingZeros(expected * 2 - 1) + 1);
+        keys = new long[1 << bits];
+        values = new int[1 << bits];
+        states = new byte[1 << bits];
+        used = size;
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = PositionSet.slotOf(oldKeys[i], bits);
+                while (states[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                states[slot] = FULL;
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package Model;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Set of Positions stored as packed coordinates in an
+ * open-addressing table, with no node or boxing per element.
+ * <p></p>
+ * Each Position is packed into a long, x in the high half and y in
+ * the low half, so every coordinate fits, including the negative
+ * ones of a ChunkedWorld. Keys are spread with Fibonacci hashing
+ * and probed linearly, and the table is kept at most half full.
+ * Removed elements leave a tombstone until the table is rebuilt.
+ * <p></p>
+ * Iteration returns Positions from {@code Position.of()}, so code that
+ * only needs coordinates should use {@code contains(int, int)} and
+ * {@code add(int, int)}. The order of iteration depends only on
+ * the elements added and removed, and in what order.
+ */
+public final class PositionSet extends AbstractSet<Position> {
+    private static final byte EMPTY = 0, FULL = 1, REMOVED = 2;
+
+    private long[] keys;
+    private byte[] states;
+    private int size;
+    /** The number of slots that are not EMPTY. */
+    private int used;
+    /** The number of bits of a hash used as an index. */
+    private int bits;
+    private int modCount;
+
+    /** Creates an empty PositionSet. */
+    public PositionSet() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty PositionSet.
+     * @param expected The number of Positions expected, to size the table.
+     */
+    public PositionSet(int expected) {
+        bits = Math.max(3, 32 - Integer.numberOfLeadingZeros(Math.max(1, expected * 2 - 1)));
+        keys = new long[1 << bits];
+        states = new byte[1 << bits];
+    }
+
+    /**
+     * Creates a PositionSet holding the Positions of a Collection.
+     * @param positions The Positions to add.
+     */
+    public PositionSet(Collection<? extends Position> positions) {
+        this(positions.size());
+        addAll(positions);
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The coordinates packed into a long.
+     */
+    static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int unpackY(long key) {
+        return (int) key;
+    }
+
+    /** @return The first slot to probe for a key. */
+    static int slotOf(long key, int bits) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position pos = (Position) o;
+        return contains(pos.x, pos.y);
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return True if the Set holds the Position at the coordinates.
+     */
+    public boolean contains(int x, int y) {
+        return find(pack(x, y)) >= 0;
+    }
+
+    @Override
+    public boolean add(Position pos) {
+        return add(pos.x, pos.y);
+    }
+
+    /**
+     * Adds the Position at coordinates, without creating it.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return True if the Position was not already in the Set.
+     */
+    public boolean add(int x, int y) {
+        long key = pack(x, y);
+        if (find(key) >= 0) {
+            return false;
+        }
+        if ((used + 1) * 2 > keys.length) {
+            rehash(size + 1);
+        }
+
+        int mask = keys.length - 1;
+        int slot = slotOf(key, bits);
+        while (states[slot] == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        if (states[slot] == EMPTY) {
+            used++;
+        }
+        keys[slot] = key;
+        states[slot] = FULL;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position pos = (Position) o;
+        int slot = find(pack(pos.x, pos.y));
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0 && used == 0) {
+            return;
+        }
+        java.util.Arrays.fill(states, EMPTY);
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Position> iterator() {
+        return new Iterator<Position>() {
+            private int next = advance(0);
+            private int last = -1;
+            private int expected = modCount;
+
+            private int advance(int slot) {
+                while (slot < states.length && states[slot] != FULL) {
+                    slot++;
+                }
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < states.length;
+            }
+
+            @Override
+            public Position next() {
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= states.length) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return Position.of(unpackX(keys[last]), unpackY(keys[last]));
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeSlot(last);
+                expected = modCount;
+                last = -1;
+            }
+        };
+    }
+
+    /** @return The slot holding a key, or -1. */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, bits);
+        while (states[slot] != EMPTY) {
+            if (states[slot] == FULL && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Leaves a tombstone in a slot, so that probing continues past it. */
+    private void removeSlot(int slot) {
+        states[slot] = REMOVED;
+        size--;
+        modCount++;
+    }
+
+    /** Rebuilds the table for a number of elements, dropping tombstones. */
+    private void rehash(int expected) {
+        long[] oldKeys = keys;
+        byte[] oldStates = states;
+
+        bits = Math.max(3, 32 - Integer.numberOfLeadingZeros(expected * 2 - 1) + 1);
+        keys = new long[1 << bits];
+        states = new byte[1 << bits];
+        used = size;
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = slotOf(oldKeys[i], bits);
+                while (states[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                states[slot] = FULL;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package Model;
+
+/**
+ * Live, read-only EntityView of a Player or Enemy.
+ * Wrapping keeps the Entity itself from being cast
+ * back out of the view and modified.
+ */
+final class ReadOnlyEntity implements EntityView {
+    /** The Entity viewed, swapped when a Map copies it before a change. */
+    private volatile Entity entity;
+
+    ReadOnlyEntity(Entity entity) {
+        this.entity = entity;
+    }
+
+    /** @param entity The copy of the Entity to view from now on. */
+    void retarget(Entity entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public EntityKind getKind() {
+        return entity.getKind();
+    }
+
+    @Override
+    public int getID() {
+        return entity.getID();
+    }
+
+    @Override
+    public double getHP() {
+        return entity.getHP();
+    }
+
+    @Override
+    public double getmaxHP() {
+        return entity.getmaxHP();
+    }
+
+    @Override
+    public double getATK() {
+        return entity.getATK();
+    }
+
+    @Override
+    public double getDEF() {
+        return entity.getDEF();
+    }
+
+    @Override
+    public int getSPD() {
+        return entity.getSPD();
+    }
+
+    @Override
+    public int getLVL() {
+        return entity.getLVL();
+    }
+
+    @Override
+    public Position getPOS() {
+        return entity.getPOS();
+    }
+
+    @Override
+    public int getSTM() {
+        return entity.getSTM();
+    }
+
+    @Override
+    public String toString() {
+        return getKind() + "@" + getPOS();
+    }
+}
@@ -6,6 +6,14 @@ package Model;
  * allow the User to progress to new or old floors.
  */
 public class Stairs extends Entity{
+	
+	/**
+	 * The stairs tile shared by every Map.
+	 * Like walls, stairs carry no per-cell state, so this
+	 * immutable instance is used wherever stairs are found,
+	 * and {@code getPOS()} returns null.
+	 */
+	public static final Stairs TILE = sharedTile(new Stairs());
 
   /**
    * Default settings when creating a stairway.
@@ -14,6 +22,11 @@ public class Stairs extends Entity{
 		super(1000, 0, 1000, 0, null, 1);
 	}
 
+	@Override
+	public EntityKind getKind() {
+		return EntityKind.STAIRS;
+	}
+
   /**
    * copy() method that will type cast Stair object into parent Entity
    * no parameters
@@ -21,6 +34,9 @@ public class Stairs extends Entity{
    */
   @Override
   public Entity copy() {
+		if (isSharedTile()) {
+			return this;
+		}
 		Stairs Stairs = new Stairs();
 		Stairs.setHP(getHP());
 		return Stairs;
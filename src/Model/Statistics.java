@@ -0,0 +1,117 @@
+package Model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+/**
+ * Counters describing the work done by a Map, for profiling
+ * and tuning. The counters are updated by the Map as it runs,
+ * and only read by clients.
+ */
+public final class Statistics {
+    private long moveCacheHits;
+    private long moveCacheMisses;
+    private long enemyPlans;
+    private long enemyReplans;
+    private long dormantEnemyTurns;
+    private final LinkedHashMap<String, Histogram> decisionTimes = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> decisionFallbacks = new LinkedHashMap<>();
+
+    Statistics() { }
+
+    /** Counts a possible-moves lookup answered from the cache. */
+    void moveCacheHit() {
+        moveCacheHits++;
+    }
+
+    /** Counts a possible-moves lookup that had to be computed. */
+    void moveCacheMiss() {
+        moveCacheMisses++;
+    }
+
+    /** Counts an Enemy move planned in parallel and committed as planned. */
+    void enemyPlan() {
+        enemyPlans++;
+    }
+
+    /** Counts a parallel Enemy plan that conflicted and was planned again. */
+    void enemyReplan() {
+        enemyReplans++;
+    }
+
+    /** Counts the turn of an Enemy that was dormant, and did not plan. */
+    void enemyDormant() {
+        dormantEnemyTurns++;
+    }
+
+    /** Times an Enemy decision made by a brain. */
+    void decision(String brain, long nanos) {
+        decisionTimes.computeIfAbsent(brain, name -> new Histogram()).record(nanos);
+    }
+
+    /** Counts a brain decision replaced by the greedy move. */
+    void decisionFallback(String brain) {
+        decisionFallbacks.merge(brain, 1L, Long::sum);
+    }
+
+    /** @return The number of possible-moves lookups answered from the cache. */
+    public long getMoveCacheHits() {
+        return moveCacheHits;
+    }
+
+    /** @return The number of possible-moves lookups that were computed. */
+    public long getMoveCacheMisses() {
+        return moveCacheMisses;
+    }
+
+    /** @return The fraction of possible-moves lookups answered from the cache. */
+    public double getMoveCacheHitRate() {
+        long total = moveCacheHits + moveCacheMisses;
+        return total == 0 ? 0 : (double) moveCacheHits / total;
+    }
+
+    /** @return The number of parallel Enemy plans committed as planned. */
+    public long getEnemyPlans() {
+        return enemyPlans;
+    }
+
+    /** @return The number of parallel Enemy plans that had to be planned again. */
+    public long getEnemyReplans() {
+        return enemyReplans;
+    }
+
+    /** @return The number of Enemy turns that were dormant, and not planned. */
+    public long getDormantEnemyTurns() {
+        return dormantEnemyTurns;
+    }
+
+    /**
+     * Enemies using the built-in greedy move are timed under "greedy".
+     * Decisions that missed their deadline are not timed.
+     * @return The timings of Enemy decisions, by brain name.
+     */
+    public java.util.Map<String, Histogram> getDecisionTimes() {
+        return Collections.unmodifiableMap(decisionTimes);
+    }
+
+    /**
+     * @param brain The name of the brain.
+     * @return The number of the brain's decisions that timed out,
+     *         failed or were impossible, and fell back to the greedy move.
+     */
+    public long getDecisionFallbacks(String brain) {
+        return decisionFallbacks.getOrDefault(brain, 0L);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format(
+                "move cache: %d hits, %d misses (%.1f%%), "
+                + "enemy plans: %d kept, %d replanned, %d dormant",
+                moveCacheHits, moveCacheMisses, getMoveCacheHitRate() * 100,
+                enemyPlans, enemyReplans, dormantEnemyTurns));
+        decisionTimes.forEach((brain, times) -> text.append(String.format(
+                "%n%s: %s, %d fallbacks", brain, times, getDecisionFallbacks(brain))));
+        return text.toString();
+    }
+}
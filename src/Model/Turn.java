@@ -30,13 +30,31 @@ public final class Turn {
     
     /**
      * Connects start and end using a delegate.
+     * The path stops next to end, which is not included.
      * @param delegate The Pathfinding.Delegate to use for Pathfinding.
      */
     public void pathfind(Pathfinding.Delegate delegate) {
         if (start == null || end == null) {
             return;
         }
-        path = Pathfinding.shortestPath(delegate, start, end);
+        
+        // the Entity already stands on end, so let the search step
+        // onto it rather than exhaust the map looking for a way in
+        path = Pathfinding.shortestPath(new Pathfinding.Delegate() {
+            @Override
+            public boolean validPosition(Position p) {
+                return p.equals(end) || delegate.validPosition(p);
+            }
+            
+            @Override
+            public boolean transparentPosition(Position p) {
+                return delegate.transparentPosition(p);
+            }
+        }, start, end);
+        
+        if (!path.isEmpty() && path.get(path.size() - 1).equals(end)) {
+            path.remove(path.size() - 1);
+        }
     }
     
     @Override
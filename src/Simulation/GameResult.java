@@ -0,0 +1,58 @@
+package Simulation;
+
+import Model.Histogram;
+
+/**
+ * The outcome of one simulated game. Everything but the
+ * latency depends only on the seed and the settings it was
+ * played with, so it can be compared across runs.
+ */
+public final class GameResult {
+    /** The seed of the game's Map. */
+    public final long seed;
+
+    /** The deepest floor reached. */
+    public final int floor;
+
+    /** The number of turns played before the Players died or time ran out. */
+    public final int turns;
+
+    /** The number of Players alive at the end. */
+    public final int survivors;
+
+    /** The damage dealt by the Players. */
+    public final long damageDealt;
+
+    /** The damage taken by the Players. */
+    public final long damageTaken;
+
+    /** The time the Map took for each turn, not counting the bot. */
+    public final Histogram latency;
+
+    /**
+     * Creates a GameResult.
+     * @param seed The seed of the game's Map.
+     * @param floor The deepest floor reached.
+     * @param turns The number of turns played.
+     * @param survivors The number of Players alive at the end.
+     * @param damageDealt The damage dealt by the Players.
+     * @param damageTaken The damage taken by the Players.
+     * @param latency The time the Map took for each turn.
+     */
+    public GameResult(long seed, int floor, int turns, int survivors,
+                      long damageDealt, long damageTaken, Histogram latency) {
+        this.seed = seed;
+        this.floor = floor;
+        this.turns = turns;
+        this.survivors = survivors;
+        this.damageDealt = damageDealt;
+        this.damageTaken = damageTaken;
+        this.latency = latency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("seed %d: floor %d, %d turns, %d survivors, %d dealt, %d taken",
+                seed, floor, turns, survivors, damageDealt, damageTaken);
+    }
+}
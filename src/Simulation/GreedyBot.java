@@ -0,0 +1,83 @@
+package Simulation;
+
+import Model.EntityKind;
+import Model.EntityView;
+import Model.GridView;
+import Model.Map;
+import Model.Position;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * PlayerBot playing like a hasty user, only from what the Players see.
+ * <p></p>
+ * A Player attacks the weakest Enemy within reach, unless it is badly
+ * hurt and the stairs are within reach, in which case it escapes down
+ * them. Otherwise it takes the stairs if it can, heads for the stairs
+ * if they have been seen, and explores as far as it can move if not.
+ */
+public final class GreedyBot implements PlayerBot {
+    /** The share of health below which a Player would rather escape than fight. */
+    private static final double HURT = 0.3;
+
+    @Override
+    public Position decide(Map map, EntityView player, SplittableRandom rand) {
+        Set<Position> moves = map.possibleMovesForCharacter(player.getPOS());
+        if (moves.isEmpty()) {
+            return null;
+        }
+
+        Position stairs = null;
+        EntityView target = null;
+        for (Position pos : moves) {
+            EntityKind kind = map.entityKindAt(pos);
+            if (kind == EntityKind.STAIRS) {
+                stairs = pos;
+            }
+            else if (kind == EntityKind.ENEMY) {
+                EntityView enemy = map.entitySnapshotAt(pos);
+                if (target == null || enemy.getHP() < target.getHP()) {
+                    target = enemy;
+                }
+            }
+        }
+
+        boolean hurt = player.getHP() < player.getmaxHP() * HURT;
+        if (stairs != null && (hurt || target == null)) {
+            return stairs;
+        }
+        if (target != null) {
+            return target.getPOS();
+        }
+
+        // head for the stairs if seen, or explore as far as possible
+        Position seen = seenStairs(map.view());
+        Position best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (Position pos : moves) {
+            if (map.entityKindAt(pos) != EntityKind.EMPTY) {
+                continue;
+            }
+            int score = seen != null
+                    ? -pos.distanceTo(seen) : pos.distanceTo(player.getPOS());
+            if (score > bestScore || score == bestScore && rand.nextBoolean()) {
+                best = pos;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /** @return The Position of the stairs if a Player has seen them, or null. */
+    private static Position seenStairs(GridView view) {
+        for (int x = 0; x < view.getWidth(); x++) {
+            for (int y = 0; y < view.getHeight(); y++) {
+                if (view.kindAt(x, y) == EntityKind.STAIRS && view.visibilityAt(x, y) > 0) {
+                    return new Position(x, y);
+                }
+            }
+        }
+        return null;
+    }
+}
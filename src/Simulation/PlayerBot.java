@@ -0,0 +1,32 @@
+package Simulation;
+
+import Model.EntityView;
+import Model.Map;
+import Model.Position;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays the Players of a Map in place of a user, for simulations.
+ * <p></p>
+ * A bot is asked for one action at a time, for as long as the Player
+ * has stamina and the bot returns possible actions. One bot plays
+ * every game of a run at once, so it should keep no state of its own,
+ * and draw random choices from the stream it is given, so that a game
+ * played again with the same seed plays the same.
+ */
+public interface PlayerBot {
+    /**
+     * Chooses the next action of a Player.
+     * @param map The Map to read from.
+     * @param player A read-only view of the Player acting.
+     * @param rand The source of random choices.
+     * @return One of the Player's possible moves, or null to end its turn.
+     */
+    Position decide(Map map, EntityView player, SplittableRandom rand);
+
+    /** @return The name the bot is reported under. */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,22 @@
+package Simulation;
+
+import Model.EntityView;
+import Model.Map;
+import Model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * PlayerBot making a random possible move, attack or descent.
+ * A baseline for other bots: any difficulty should be beatable
+ * by a bot that does better than this one.
+ */
+public final class RandomBot implements PlayerBot {
+    @Override
+    public Position decide(Map map, EntityView player, SplittableRandom rand) {
+        List<Position> moves = new ArrayList<>(map.possibleMovesForCharacter(player.getPOS()));
+        return moves.isEmpty() ? null : moves.get(rand.nextInt(moves.size()));
+    }
+}
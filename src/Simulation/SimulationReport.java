@@ -0,0 +1,136 @@
+package Simulation;
+
+import Model.Histogram;
+
+import java.util.Arrays;
+
+/**
+ * Totals over the games of a simulation run.
+ * <p></p>
+ * Each thread of a run adds its games to a report of its own, and the
+ * reports are merged at the end, so nothing is shared while games run.
+ * Every total is a whole number, so the result does not depend on how
+ * the games were split between threads, except for the timings.
+ */
+public final class SimulationReport {
+    private long games;
+    private long survived;
+    private long turns;
+    private long damageDealt;
+    private long damageTaken;
+    /** The number of games that reached each floor as their deepest. */
+    private long[] floors = new long[16];
+    private final Histogram latency = new Histogram();
+    private long elapsedNanos;
+
+    /** Creates an empty report. */
+    public SimulationReport() { }
+
+    /** @param result A game to add to the totals. */
+    public void add(GameResult result) {
+        games++;
+        if (result.survivors > 0) {
+            survived++;
+        }
+        turns += result.turns;
+        damageDealt += result.damageDealt;
+        damageTaken += result.damageTaken;
+        if (result.floor >= floors.length) {
+            floors = Arrays.copyOf(floors, Math.max(result.floor + 1, floors.length * 2));
+        }
+        floors[result.floor]++;
+        latency.add(result.latency);
+    }
+
+    /** @param other A report whose games to add to this one. */
+    public void merge(SimulationReport other) {
+        games += other.games;
+        survived += other.survived;
+        turns += other.turns;
+        damageDealt += other.damageDealt;
+        damageTaken += other.damageTaken;
+        if (other.floors.length > floors.length) {
+            floors = Arrays.copyOf(floors, other.floors.length);
+        }
+        for (int i = 0; i < other.floors.length; i++) {
+            floors[i] += other.floors[i];
+        }
+        latency.add(other.latency);
+    }
+
+    /** @param elapsedNanos The wall-clock time the run took. */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return The number of games played. */
+    public long getGames() {
+        return games;
+    }
+
+    /** @return The share of games in which a Player was still alive at the end. */
+    public double getSurvivalRate() {
+        return games == 0 ? 0 : (double) survived / games;
+    }
+
+    /** @return The mean number of turns played per game. */
+    public double getMeanTurns() {
+        return games == 0 ? 0 : (double) turns / games;
+    }
+
+    /** @return The mean deepest floor reached per game. */
+    public double getMeanFloor() {
+        long sum = 0;
+        for (int i = 0; i < floors.length; i++) {
+            sum += i * floors[i];
+        }
+        return games == 0 ? 0 : (double) sum / games;
+    }
+
+    /**
+     * @param floor The floor number.
+     * @return The number of games whose deepest floor was the floor.
+     */
+    public long getGamesEndingOn(int floor) {
+        return floor >= 0 && floor < floors.length ? floors[floor] : 0;
+    }
+
+    /** @return The mean damage dealt by the Players per game. */
+    public double getMeanDamageDealt() {
+        return games == 0 ? 0 : (double) damageDealt / games;
+    }
+
+    /** @return The mean damage taken by the Players per game. */
+    public double getMeanDamageTaken() {
+        return games == 0 ? 0 : (double) damageTaken / games;
+    }
+
+    /** @return The time the Maps took for each turn of every game. */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /** @return The number of games played per minute of wall-clock time. */
+    public double getGamesPerMinute() {
+        return elapsedNanos == 0 ? 0 : games * 60e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format(
+                "%d games in %.1f s (%.0f games/min)%n"
+                + "survived: %.1f%%, turns: %.1f, floor: %.2f%n"
+                + "damage dealt: %.1f, taken: %.1f%n"
+                + "turn latency: %s%n"
+                + "deepest floor:",
+                games, elapsedNanos / 1e9, getGamesPerMinute(),
+                getSurvivalRate() * 100, getMeanTurns(), getMeanFloor(),
+                getMeanDamageDealt(), getMeanDamageTaken(), latency));
+        for (int i = 0; i < floors.length; i++) {
+            if (floors[i] > 0) {
+                text.append(String.format(" %d: %d", i, floors[i]));
+            }
+        }
+        return text.toString();
+    }
+}
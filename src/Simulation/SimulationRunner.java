@@ -0,0 +1,153 @@
+package Simulation;
+
+import Model.Difficulty;
+import Model.EntityView;
+import Model.Histogram;
+import Model.Map;
+import Model.Position;
+import Model.Turn;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Plays many games without a display, with a PlayerBot in place of
+ * the user, to see how a Difficulty plays out.
+ * <p></p>
+ * Every game has a Map of its own, seeded from the seed of the run and
+ * the number of the game, and the bot draws from a stream derived from
+ * the same seed. Games share nothing while they run, so they are spread
+ * over every processor, and a run played again with the same seed and
+ * settings has the same outcome, however the games were scheduled.
+ * <p></p>
+ * To run, from /src:
+ * <pre>
+ * javac Simulation/SimulationRunner.java
+ * java Simulation.SimulationRunner [games] [greedy|random] [strength] [seed]
+ * </pre>
+ */
+public final class SimulationRunner {
+    private final PlayerBot bot;
+    private int width = 20;
+    private int height = 30;
+    private int maxTurns = 300;
+    private Difficulty difficulty = Difficulty.NORMAL;
+
+    /**
+     * Creates a runner playing on Maps the size of the GUI's.
+     * @param bot The bot playing every game.
+     */
+    public SimulationRunner(PlayerBot bot) {
+        this.bot = bot;
+    }
+
+    /**
+     * @param width The width of the Maps.
+     * @param height The height of the Maps.
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /** @param maxTurns The number of turns after which a game stops. */
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    /** @param difficulty The Difficulty every game is played at. */
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Plays games on every processor and adds up their outcomes.
+     * @param games The number of games to play.
+     * @param seed The seed the seeds of the games are derived from.
+     * @return The report of the games.
+     */
+    public SimulationReport run(int games, long seed) {
+        long start = System.nanoTime();
+        SimulationReport report = IntStream.range(0, games).parallel()
+                .mapToObj(game -> play(gameSeed(seed, game)))
+                .collect(SimulationReport::new, SimulationReport::add, SimulationReport::merge);
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * @param seed The seed of a run.
+     * @param game The number of a game in the run.
+     * @return The seed of the game.
+     */
+    public static long gameSeed(long seed, int game) {
+        return new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    /**
+     * Plays one game, until every Player is dead or the turns run out.
+     * Each turn, the bot acts for every Player in turn until it ends
+     * the Player's turn, and then the Enemies act.
+     * @param seed The seed of the game's Map.
+     * @return The outcome of the game.
+     */
+    public GameResult play(long seed) {
+        Map map = new Map(width, height, seed);
+        map.setLegacyLogging(false);
+        map.setDifficulty(difficulty);
+        map.nextFloor();
+
+        SplittableRandom rand = new SplittableRandom(seed ^ 0x94D049BB133111EBL);
+        Histogram latency = new Histogram();
+        long dealt = 0, taken = 0;
+        int turns = 0;
+
+        while (turns < maxTurns && !map.getPlayerViews().isEmpty()) {
+            long nanos = 0;
+            int floor = map.getFloor();
+            for (EntityView player : map.getPlayerViews().toArray(new EntityView[0])) {
+                while (map.getFloor() == floor) {
+                    Position move = bot.decide(map, player, rand);
+                    if (move == null) {
+                        break;
+                    }
+
+                    long start = System.nanoTime();
+                    Turn turn = map.processAction(player.getPOS(), move);
+                    nanos += System.nanoTime() - start;
+                    if (turn == null) {
+                        break;
+                    }
+                    if (turn.attackPos != null) {
+                        dealt += turn.damage;
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            for (Turn turn : map.endTurn()) {
+                if (turn.attackPos != null) {
+                    taken += turn.damage;
+                }
+            }
+            latency.record(nanos + System.nanoTime() - start);
+            turns++;
+        }
+
+        return new GameResult(seed, map.getFloor(), turns, map.getPlayerViews().size(),
+                dealt, taken, latency);
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        PlayerBot bot = args.length > 1 && args[1].equals("random") ? new RandomBot() : new GreedyBot();
+        double strength = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        SimulationRunner runner = new SimulationRunner(bot);
+        runner.setDifficulty(Difficulty.NORMAL.withStrength(strength));
+        System.out.println(games + " games, " + bot.name() + ", " + runner.difficulty + ", seed " + seed
+                + ", " + Runtime.getRuntime().availableProcessors() + " cpus");
+        System.out.println(runner.run(games, seed));
+    }
+}
@@ -0,0 +1,56 @@
+package Tests;
+
+import Model.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChunkedWorldTest {
+    @Test
+    public void test_generation_sameSeed() {
+        ChunkedWorld world1 = new ChunkedWorld(3);
+        ChunkedWorld world2 = new ChunkedWorld(3);
+        Position corner = new Position(-70, -70);
+        
+        assertArrayEquals("Worlds with the same seed should have the same caves",
+                world1.kindsIn(corner, 140, 140), world2.kindsIn(corner, 140, 140));
+    }
+    
+    @Test
+    public void test_movement_acrossChunks() {
+        ChunkedWorld world = new ChunkedWorld(7);
+        EntityView player = world.getPlayerViews().get(0);
+        Random rand = new Random(1);
+        
+        // wander east until the starting chunks are evicted
+        for (int turn = 0; turn < 2000 && world.getStoredChunks() == 0; turn++) {
+            Set<Position> moves = world.possibleMovesForCharacter(player.getPOS());
+            moves.remove(player.getPOS());
+            if (!moves.isEmpty()) {
+                List<Position> list = new ArrayList<>(moves);
+                Position move = rand.nextInt(3) == 0
+                        ? list.get(rand.nextInt(list.size()))
+                        : list.stream().max(Comparator.comparingInt(p -> p.x)).get();
+                Position start = player.getPOS();
+                assertNotNull("Possible moves should be accepted", world.processAction(start, move));
+                assertEquals("Players should move", move, player.getPOS());
+            }
+            world.endTurn();
+            
+            assertTrue("Loaded chunks should stay bounded", world.getLoadedChunks() <= 27);
+            assertEquals("Players should always stand on loaded cells",
+                    EntityKind.PLAYER, world.entityKindAt(player.getPOS()));
+        }
+        
+        assertTrue("Explored chunks should be compressed when left behind", world.getStoredChunks() > 0);
+        assertTrue("Compressed chunks should be compact",
+                world.getStoredBytes() < world.getStoredChunks() * ChunkedWorld.CHUNK_SIZE * ChunkedWorld.CHUNK_SIZE);
+        assertTrue("Seen cells should be visible", world.visibilityAt(player.getPOS()) > 0);
+    }
+}
@@ -42,6 +42,18 @@ public class EntityTest {
         assertNotSame("Entity of copy should not be the same reference", copy, entity);
     }
     
+    @Test
+    public void test_sharedTiles_immutable() {
+        for (Entity tile : new Entity[] { Obstacle.WALL, Stairs.TILE }) {
+            assertSame("Copy of a shared tile should be the tile", tile, tile.copy());
+            try {
+                tile.setHP(0);
+                fail("Shared tiles should not be modifiable");
+            }
+            catch (UnsupportedOperationException expected) { }
+        }
+    }
+    
     @Test
     public void test_player_random() {
         Player player = Player.randomPlayer();
@@ -127,4 +139,76 @@ public class EntityTest {
         enemy.attack(player);
         assertTrue("Enemy attacking Player should reduce HP", player.getHP() < copy.getHP());
     }
-}
+    
+    @Test
+    public void test_entityStore_copyIndependent() {
+        EntityStore store = new EntityStore(1);
+        store.setHP(0, 10);
+        store.setPOS(40, new Position(2, 3));
+        assertTrue("Writing a slot should grow the store", store.getCapacity() > 40);
+        
+        EntityStore copy = store.copy();
+        copy.setHP(0, 5);
+        copy.copySlot(store, 40, 7);
+        assertEquals("Copy of store should not change the source", 10, store.getHP(0), 0.0001);
+        assertEquals("Copied slot should have equal stats", new Position(2, 3), copy.getPOS(7));
+        assertNull("Copying into a copy should not change the source", store.getPOS(7));
+    }
+    
+    @Test
+    public void test_entityStore_reusesFreedSlots() {
+        EntityStore store = new EntityStore(1);
+        int first = store.allocate(500);
+        store.setHP(first, 10);
+        store.allocate(900);
+        store.free(500);
+        
+        int reused = store.allocate(1200);
+        assertEquals("A freed slot should be reused", first, reused);
+        assertEquals("A reused slot should be cleared", 0, store.getHP(reused), 0.0001);
+        assertEquals("Slots should be found by id", reused, store.slotOf(1200));
+        assertEquals("Freed ids should have no slot", -1, store.slotOf(500));
+        assertEquals("Slots should not grow with ids", 2, store.size());
+        
+        store.freeze();
+        try {
+            store.allocate(1300);
+            fail("Frozen stores should not change");
+        }
+        catch (IllegalStateException expected) { }
+    }
+    
+    @Test
+    public void test_entityStore_duplicateKeepsSlots() {
+        EntityStore store = new EntityStore(1);
+        store.allocate(7);
+        try {
+            store.allocate(7);
+            fail("A character should have one slot");
+        }
+        catch (IllegalStateException expected) { }
+        
+        assertEquals("A rejected id should not take a slot", 1, store.allocate(8));
+        for (int id = 100; id < 1100; id++) {
+            store.allocate(id);
+            store.free(id - 1 == 99 ? 7 : id - 1);
+        }
+        assertEquals("Slots should be found by id", 2, store.size());
+        assertEquals("Slots should be found by id", 1, store.slotOf(8));
+        assertEquals("Freed ids should have no slot", -1, store.slotOf(7));
+        assertTrue("Freed slots should be reused", store.getCapacity() <= 4);
+    }
+    
+    @Test
+    public void test_entityStore_markWithin() {
+        EntityStore store = new EntityStore(4);
+        for (int id = 1; id <= 4; id++) {
+            store.setPOS(store.allocate(id), new Position(id * 5, 0));
+        }
+        store.free(2);
+        
+        java.util.BitSet marks = new java.util.BitSet();
+        store.markWithin(new Position[] { new Position(0, 0), new Position(20, 1) }, 11, marks);
+        assertEquals("Slots near any Position should be marked, but not freed ones", "{0, 2, 3}", marks.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package Tests;
+
+import Model.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventRingTest {
+    @Test
+    public void test_poll_inOrder() {
+        EventRing ring = new EventRing(8);
+        EventRing.Reader reader = ring.newReader();
+        EventRecord record = new EventRecord();
+        
+        for (int i = 0; i < 5; i++) {
+            ring.publish(GameEvent.Type.MESSAGE, i, "event " + i);
+        }
+        
+        for (int i = 0; i < 5; i++) {
+            assertTrue("Published events should be readable", reader.poll(record));
+            assertEquals("Events should be numbered in order", i, record.getSequence());
+            assertEquals("Events should keep their message", "event " + i, record.getMessage());
+        }
+        assertFalse("There should be nothing left to read", reader.poll(record));
+        assertEquals("Nothing should be missed", 0, reader.getMissed());
+    }
+    
+    @Test
+    public void test_poll_countsMissed() {
+        EventRing ring = new EventRing(8);
+        EventRing.Reader reader = ring.newReader();
+        EventRecord record = new EventRecord();
+        
+        for (int i = 0; i < 20; i++) {
+            ring.publish(GameEvent.Type.MESSAGE, i, "event " + i);
+        }
+        
+        long read = 0;
+        while (reader.poll(record)) {
+            assertEquals("Records should match their sequence", record.getSequence(), (long) record.getValue());
+            read++;
+        }
+        assertEquals("Every event should be read or missed", 20, read + reader.getMissed());
+        assertEquals("The newest event should be read last", 19, record.getSequence());
+    }
+    
+    @Test
+    public void test_poll_concurrentWriter() throws InterruptedException {
+        EventRing ring = new EventRing(64);
+        int total = 200_000;
+        String[] messages = new String[total];
+        for (int i = 0; i < total; i++) {
+            messages[i] = "event " + i;
+        }
+        
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                ring.publish(GameEvent.Type.MESSAGE, i, messages[i]);
+            }
+        });
+        
+        EventRing.Reader reader = ring.newReader();
+        EventRecord record = new EventRecord();
+        long read = 0, last = -1;
+        writer.start();
+        while (writer.isAlive() || reader.available() > 0) {
+            while (reader.poll(record)) {
+                assertTrue("Sequence numbers should increase", record.getSequence() > last);
+                assertSame("Records should never be torn", messages[(int) record.getSequence()], record.getMessage());
+                assertEquals("Records should never be torn", record.getSequence(), (long) record.getValue());
+                last = record.getSequence();
+                read++;
+            }
+        }
+        writer.join();
+        
+        assertEquals("Every event should be read or missed", total, read + reader.getMissed());
+    }
+    
+    @Test
+    public void test_eventBus_historyFromRing() {
+        EventBus bus = new EventBus(3);
+        EventRing.Reader reader = bus.newReader();
+        for (int i = 0; i < 5; i++) {
+            bus.post("message " + i);
+        }
+        
+        assertEquals("History should be bounded", 3, bus.getHistory().size());
+        assertEquals("History should be newest first", "message 4", bus.getHistory().get(0).message);
+        
+        EventRecord record = new EventRecord();
+        int read = 0;
+        while (reader.poll(record)) {
+            read++;
+        }
+        assertEquals("Readers should see every event", 5, read);
+    }
+}
@@ -0,0 +1,67 @@
+package Tests;
+
+import Model.InitiativeScheduler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InitiativeSchedulerTest {
+    @Test
+    public void test_next_fasterActsMoreOften() {
+        InitiativeScheduler scheduler = new InitiativeScheduler();
+        int[] speeds = new int[5001];
+        for (int id = 1; id <= 5000; id++) {
+            speeds[id] = id % 5 + 1;
+            scheduler.schedule(id, speeds[id]);
+        }
+        
+        int[] actions = new int[6];
+        for (int i = 0; i < 1_000_000; i++) {
+            int id = scheduler.next();
+            actions[speeds[id]]++;
+            scheduler.schedule(id, speeds[id]);
+        }
+        
+        for (int speed = 2; speed <= 5; speed++) {
+            double ratio = actions[speed] / (double) actions[1];
+            assertEquals("Speed " + speed + " should act " + speed + "x as often", speed, ratio, 0.05 * speed);
+        }
+    }
+    
+    @Test
+    public void test_next_deterministic() {
+        List<Integer> order1 = new ArrayList<>();
+        List<Integer> order2 = new ArrayList<>();
+        
+        for (List<Integer> order : Arrays.asList(order1, order2)) {
+            InitiativeScheduler scheduler = new InitiativeScheduler();
+            for (int id = 100; id >= 1; id--) {
+                scheduler.schedule(id, id % 3 + 1);
+            }
+            for (int i = 0; i < 1000; i++) {
+                int id = scheduler.next();
+                order.add(id);
+                scheduler.schedule(id, id % 3 + 1);
+            }
+        }
+        
+        assertEquals("Same speeds should give the same order", order1, order2);
+        assertEquals("Ties should go to the lower id", 2, (int) order1.get(0));
+    }
+    
+    @Test
+    public void test_remove_skipped() {
+        InitiativeScheduler scheduler = new InitiativeScheduler();
+        scheduler.schedule(1, 1);
+        scheduler.schedule(2, 2);
+        scheduler.remove(2);
+        
+        assertEquals("Removed characters should not act", 1, scheduler.next());
+        assertEquals("The scheduler should be empty", -1, scheduler.next());
+        assertEquals("Time should advance to the last action", InitiativeScheduler.TICKS, scheduler.now());
+    }
+}
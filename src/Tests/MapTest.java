@@ -5,6 +5,11 @@ import org.junit.Test;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -32,9 +37,12 @@ public class MapTest {
         
         for (int x = 0; x < grid1.length; x++) {
             for (int y = 0; y < grid1[0].length; y++) {
-                if (grid1[x][y] != null) {
+                if (grid1[x][y] instanceof Player || grid1[x][y] instanceof Enemy) {
                     assertNotSame("Grid returned by getGrid should not reference same entities", grid1[x][y], grid2[x][y]);
                 }
+                else if (grid1[x][y] != null) {
+                    assertSame("Walls and stairs should be shared tiles", grid1[x][y], grid2[x][y]);
+                }
             }
         }
     }
@@ -102,4 +110,734 @@ public class MapTest {
         map.nextFloor();
         assertEquals("nextFloor should increment floor ", expected, map.getFloor());
     }
+    
+    @Test
+    public void test_enemiesPerceiving_matchesLineOfSight() {
+        Map map = new Map(20, 30);
+        for (int i = 0; i < 5; i++) {
+            map.nextFloor();
+            map.endTurn();
+            
+            for (Player player : map.getPlayers()) {
+                Position pos = player.getPOS();
+                Set<Position> expected = map.getEnemies().stream().map(Enemy::getPOS)
+                        .filter(pos2 -> pos2.distanceTo(pos) < 7
+                                && Pathfinding.lineOfSight(map, pos, pos2))
+                        .collect(Collectors.toSet());
+                assertEquals("Perceiving enemies should match line of sight",
+                        expected, new HashSet<>(map.enemiesPerceiving(pos)));
+            }
+        }
+    }
+    
+    @Test
+    public void test_getGrid_matchesCharacters() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        Entity[][] grid = map.getGrid();
+        
+        int stairs = 0, players = 0, enemies = 0;
+        for (Entity[] column : grid) {
+            for (Entity entity : column) {
+                if (entity instanceof Stairs) stairs++;
+                if (entity instanceof Player) players++;
+                if (entity instanceof Enemy) enemies++;
+            }
+        }
+        
+        assertEquals("Grid should contain one set of stairs", 1, stairs);
+        assertEquals("Grid should contain every player", map.getPlayers().size(), players);
+        assertEquals("Grid should contain every enemy", map.getEnemies().size(), enemies);
+        for (Player player : map.getPlayers()) {
+            Position pos = player.getPOS();
+            assertTrue("Player should be in the grid at its position", grid[pos.x][pos.y] instanceof Player);
+        }
+    }
+    
+    @Test
+    public void test_view_matchesGetGrid() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        Entity[][] grid = map.getGrid();
+        GridView view = map.view();
+        
+        for (int x = 0; x < grid.length; x++) {
+            for (int y = 0; y < grid[0].length; y++) {
+                EntityKind expected = grid[x][y] == null ? EntityKind.EMPTY : grid[x][y].getKind();
+                assertEquals("View should match grid at " + x + "," + y, expected, view.kindAt(x, y));
+                assertEquals("Visibility should match", map.getVisibility()[x][y], view.visibilityAt(x, y), 0.0001);
+            }
+        }
+    }
+    
+    @Test
+    public void test_playerViews_liveAndReadOnly() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        List<EntityView> views = map.getPlayerViews();
+        
+        assertEquals("Views should cover every player", map.getPlayers().size(), views.size());
+        for (EntityView view : views) {
+            assertFalse("Views should not expose the Entity", view instanceof Entity);
+            assertEquals("Views should be players", EntityKind.PLAYER, view.getKind());
+        }
+        
+        Position before = views.get(0).getPOS();
+        map.nextFloor();
+        assertSame("Views should be reused", views, map.getPlayerViews());
+        assertEquals("Views should follow the player", map.getPlayers().get(0).getPOS(), views.get(0).getPOS());
+        assertNotNull("Player should have had a position", before);
+    }
+    
+    @Test
+    public void test_pointQueries_offMap() {
+        Map map = new Map();
+        map.nextFloor();
+        Position pos = new Position(-1, 3);
+        assertNull("Kind off the map should be null", map.entityKindAt(pos));
+        assertNull("Snapshot off the map should be null", map.entitySnapshotAt(pos));
+        assertEquals("Visibility off the map should be 0", 0, map.visibilityAt(pos), 0.0001);
+    }
+    
+    @Test
+    public void test_entitySnapshotAt_frozen() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        Position pos = map.getPlayerViews().get(0).getPOS();
+        EntityView snapshot = map.entitySnapshotAt(pos);
+        
+        assertEquals("Snapshot should be of the player", EntityKind.PLAYER, snapshot.getKind());
+        map.nextFloor();
+        assertEquals("Snapshot should not follow the player", pos, snapshot.getPOS());
+    }
+    
+    @Test
+    public void test_kindsIn_clipsToMap() {
+        Map map = new Map();
+        map.nextFloor();
+        EntityKind[][] kinds = map.kindsIn(new Position(-2, -2), 4, 4);
+        
+        assertNull("Cells off the map should be null", kinds[0][0]);
+        assertEquals("Cells on the map should match", map.entityKindAt(Position.ORIGIN), kinds[2][2]);
+        assertEquals("Cells on the map should match", map.entityKindAt(new Position(1, 1)), kinds[3][3]);
+    }
+    
+    @Test
+    public void test_changesSince_replaysMoves() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        long version = map.getVersion();
+        EntityKind[][] kinds = map.kindsIn(Position.ORIGIN, map.getWidth(), map.getHeight());
+        
+        for (int i = 0; i < 5; i++) {
+            map.endTurn();
+        }
+        
+        for (MapChange change : map.changesSince(version)) {
+            assertTrue("Changes should be newer than the version", change.version > version);
+            if (change.type == MapChange.Type.MOVE) {
+                kinds[change.pos.x][change.pos.y] = kinds[change.from.x][change.from.y];
+                kinds[change.from.x][change.from.y] = EntityKind.EMPTY;
+            }
+            else if (change.type == MapChange.Type.DEATH) {
+                kinds[change.pos.x][change.pos.y] = EntityKind.EMPTY;
+            }
+        }
+        
+        EntityKind[][] expected = map.kindsIn(Position.ORIGIN, map.getWidth(), map.getHeight());
+        assertArrayEquals("Replaying changes should give the current Map", expected, kinds);
+    }
+    
+    @Test
+    public void test_changesSince_listenerAndHistory() {
+        Map map = new Map(20, 30);
+        List<MapChange> heard = new ArrayList<>();
+        map.addChangeListener(heard::add);
+        
+        map.nextFloor();
+        assertEquals("Listener should hear every change", map.getVersion(), heard.size());
+        assertEquals("First change should be the floor", MapChange.Type.FLOOR, heard.get(0).type);
+        assertEquals("No changes since the current version", 0, map.changesSince(map.getVersion()).size());
+        
+        for (int i = 0; i < 100; i++) {
+            map.nextFloor();
+        }
+        assertNull("Old changes should be dropped", map.changesSince(0));
+    }
+    
+    @Test
+    public void test_entityIDs_stableAndUnique() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        List<Integer> playerIDs = map.getPlayerViews().stream()
+                .map(EntityView::getID).collect(Collectors.toList());
+        map.nextFloor();
+        
+        Set<Integer> ids = new HashSet<>();
+        for (EntityView view : map.getPlayerViews()) {
+            assertTrue("Players should keep their ids", playerIDs.contains(view.getID()));
+            assertTrue("Ids should be unique", ids.add(view.getID()));
+            assertEquals("Lookup by id should find the player", view.getPOS(), map.entityByID(view.getID()).getPOS());
+        }
+        for (EntityView view : map.getEnemyViews()) {
+            assertTrue("Ids should be unique", ids.add(view.getID()));
+            assertEquals("Lookup by id should find the enemy", view.getPOS(), map.entityByID(view.getID()).getPOS());
+        }
+    }
+    
+    @Test
+    public void test_entitiesWithin_matchesBruteForce() {
+        Map map = new Map(40, 40);
+        for (int i = 0; i < 3; i++) {
+            map.nextFloor();
+            map.endTurn();
+            
+            for (int range : new int[] { 0, 3, 9, 100 }) {
+                Position center = new Position(17, 22);
+                Set<Integer> expected = new HashSet<>();
+                map.getPlayerViews().stream().filter(v -> v.getPOS().distanceTo(center) <= range)
+                        .forEach(v -> expected.add(v.getID()));
+                map.getEnemyViews().stream().filter(v -> v.getPOS().distanceTo(center) <= range)
+                        .forEach(v -> expected.add(v.getID()));
+                
+                Set<Integer> found = map.entitiesWithin(center, range).stream()
+                        .map(EntityView::getID).collect(Collectors.toSet());
+                assertEquals("Spatial query should match a scan, range " + range, expected, found);
+            }
+        }
+    }
+    
+    @Test
+    public void test_possibleMoves_cached() {
+        Map map = new Map(20, 30);
+        map.nextFloor();
+        Position pos = map.getPlayerViews().get(0).getPOS();
+        Statistics stats = map.getStatistics();
+        
+        Set<Position> moves1 = map.possibleMovesForCharacter(pos);
+        long misses = stats.getMoveCacheMisses();
+        moves1.clear();
+        Set<Position> moves2 = map.possibleMovesForCharacter(pos);
+        
+        assertFalse("Modifying returned moves should not affect the cache", moves2.isEmpty());
+        assertEquals("Second lookup should not recompute", misses, stats.getMoveCacheMisses());
+        assertTrue("Second lookup should hit the cache", stats.getMoveCacheHits() > 0);
+        assertTrue("Hit rate should be a fraction", stats.getMoveCacheHitRate() > 0 && stats.getMoveCacheHitRate() <= 1);
+        
+        map.nextFloor();
+        map.possibleMovesForCharacter(map.getPlayerViews().get(0).getPOS());
+        assertEquals("Changing floor should invalidate the cache", misses + 1, stats.getMoveCacheMisses());
+    }
+    
+    @Test
+    public void test_parallelPlanning_keepsMapConsistent() {
+        Map map = new Map(60, 60, 42);
+        map.nextFloor();
+        int added = map.addEnemies(40);
+        assertEquals("Seed should be kept", 42, map.getSeed());
+        assertTrue("Enemies should fit on the floor", added > 0);
+        
+        map.setParallelPlanning(true);
+        for (int i = 0; i < 20 && map.getFloor() == 1; i++) {
+            map.endTurn();
+            
+            Set<Position> occupied = new HashSet<>();
+            for (EntityView enemy : map.getEnemyViews()) {
+                assertTrue("Enemies should not share a cell", occupied.add(enemy.getPOS()));
+                assertEquals("Enemies should be where they think they are",
+                        EntityKind.ENEMY, map.entityKindAt(enemy.getPOS()));
+            }
+        }
+        
+        Statistics stats = map.getStatistics();
+        assertTrue("Every Enemy should have been planned for",
+                stats.getEnemyPlans() + stats.getEnemyReplans() > 0);
+    }
+    
+    @Test
+    public void test_parallelPlanning_sameMovesAsSerial() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Map serial = new Map(40, 40, seed);
+            Map parallel = new Map(40, 40, seed);
+            parallel.setParallelPlanning(true);
+            for (Map map : new Map[] { serial, parallel }) {
+                map.setLegacyLogging(false);
+                map.nextFloor();
+                map.addEnemies(30);
+            }
+            
+            for (int turn = 0; turn < 30 && !serial.getPlayerViews().isEmpty(); turn++) {
+                serial.endTurn();
+                parallel.endTurn();
+                assertEquals("Planning in parallel should make the same moves, seed " + seed + " turn " + turn,
+                        describe(serial), describe(parallel));
+            }
+        }
+    }
+    
+    @Test
+    public void test_enemyBrain_decisionsUsedAndTimed() {
+        Map map = new Map(40, 40);
+        map.nextFloor();
+        map.addEnemies(10);
+        List<Position> before = map.getEnemyViews().stream()
+                .map(EntityView::getPOS).collect(Collectors.toList());
+        
+        // a brain that always stays put
+        map.setEnemyBrain((m, enemy) -> enemy.getPOS());
+        List<Turn> turns = map.endTurn();
+        
+        List<Position> after = map.getEnemyViews().stream()
+                .map(EntityView::getPOS).collect(Collectors.toList());
+        assertTrue("Enemies should follow their brain", turns.isEmpty());
+        assertEquals("Enemies should follow their brain", before, after);
+        
+        Histogram times = map.getStatistics().getDecisionTimes().values().iterator().next();
+        assertEquals("Every decision should be timed", after.size(), times.getCount());
+    }
+    
+    @Test
+    public void test_enemyBrain_deadlineFallsBack() {
+        Map map = new Map(40, 40);
+        map.nextFloor();
+        map.addEnemies(10);
+        int enemies = map.getEnemyViews().size();
+        
+        EnemyBrain slow = new EnemyBrain() {
+            @Override
+            public Position decide(Map m, EntityView enemy) throws InterruptedException {
+                Thread.sleep(10_000);
+                return enemy.getPOS();
+            }
+            
+            @Override
+            public String name() {
+                return "slow";
+            }
+        };
+        map.setEnemyBrain(slow);
+        map.setDecisionDeadline(20);
+        
+        long start = System.nanoTime();
+        map.endTurn();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertTrue("The phase should end soon after the deadline, took " + millis, millis < 2_000);
+        assertEquals("Every decision should fall back", enemies, map.getStatistics().getDecisionFallbacks("slow"));
+        assertEquals("Fallbacks should make the greedy move", enemies,
+                map.getStatistics().getDecisionTimes().get("greedy").getCount());
+    }
+    
+    @Test
+    public void test_enemyBrain_overrunReadsFork() throws InterruptedException {
+        Map map = new Map(40, 40);
+        map.nextFloor();
+        map.addEnemies(10);
+        int id = map.getEnemyViews().get(0).getID();
+        
+        // a brain that ignores the deadline, and reads the Map a turn later
+        CountDownLatch resume = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Object> seen = new ArrayList<>();
+        map.setEnemyBrain(id, (m, enemy) -> {
+            while (resume.getCount() > 0) {
+                try {
+                    resume.await();
+                }
+                catch (InterruptedException ignored) { }
+            }
+            seen.add(m);
+            seen.add(m.getTurnNumber());
+            seen.add(m.possibleMovesForEnemy(enemy.getPOS()));
+            done.countDown();
+            return enemy.getPOS();
+        });
+        map.setDecisionDeadline(20);
+        
+        map.endTurn();
+        int turn = map.getTurnNumber();
+        map.setEnemyBrain(id, null);
+        map.endTurn();
+        resume.countDown();
+        assertTrue("The brain should finish", done.await(5, TimeUnit.SECONDS));
+        
+        assertNotSame("Brains should read a fork", map, seen.get(0));
+        assertEquals("The fork should not change after the deadline", turn, seen.get(1));
+        assertEquals("The Map should go on without the brain", turn + 1, map.getTurnNumber());
+    }
+    
+    @Test
+    public void test_enemyBrain_oneForkPerRound() {
+        Map map = new Map(40, 40, 5L);
+        map.setLegacyLogging(false);
+        map.setTurnMode(Map.TurnMode.INITIATIVE);
+        map.nextFloor();
+        map.addEnemies(10);
+        
+        // brains act one at a time in initiative mode, but should share a fork
+        Set<Object> forks = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        List<Integer> turns = new ArrayList<>();
+        map.setEnemyBrain((m, enemy) -> {
+            synchronized (forks) {
+                forks.add(m);
+                turns.add(m.getTurnNumber());
+            }
+            return enemy.getPOS();
+        });
+        for (int i = 0; i < 10; i++) {
+            map.endTurn();
+        }
+        
+        synchronized (forks) {
+            assertTrue("Brains should have decided", turns.size() > 1);
+            assertEquals("Each round should fork once",
+                    new HashSet<>(turns).size(), forks.size());
+        }
+    }
+    
+    @Test
+    public void test_events_scopedToMap() {
+        Map map1 = new Map(20, 20);
+        Map map2 = new Map(20, 20);
+        map1.setLegacyLogging(false);
+        map2.setLegacyLogging(false);
+        List<GameEvent> heard = new ArrayList<>();
+        map1.events().subscribe(heard::add);
+        List<String> log = Map.getLog();
+        
+        for (int i = 0; i < 30; i++) {
+            map1.events().post("message " + i);
+        }
+        map2.events().post("other map");
+        
+        assertEquals("Subscribers should hear every event of their Map", 30, heard.size());
+        assertEquals("History should be bounded", 20, map1.events().getHistory().size());
+        assertEquals("History should be newest first", "message 29", map1.events().getHistory().get(0).message);
+        assertEquals("Maps should not share events", 1, map2.events().getHistory().size());
+        assertEquals("The static log should be left alone", log, Map.getLog());
+    }
+    
+    @Test
+    public void test_events_postedByEntities() {
+        Map map = new Map(30, 30);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        List<GameEvent> heard = new ArrayList<>();
+        map.events().subscribe(heard::add);
+        
+        for (int i = 0; i < 50 && map.getPlayerViews().size() == 3; i++) {
+            map.endTurn();
+        }
+        
+        for (GameEvent event : heard) {
+            assertNotNull("Events should have a type", event.type);
+            assertNotNull("Events should have a message", event.message);
+        }
+        assertTrue("Damage should be posted with its value", heard.stream()
+                .filter(event -> event.type == GameEvent.Type.DAMAGE_TAKEN)
+                .allMatch(event -> event.message.equals("Took " + (int) event.value + " damage!")));
+    }
+    
+    @Test
+    public void test_initiative_onlyActorActs() {
+        Map map = new Map(30, 30);
+        map.setTurnMode(Map.TurnMode.INITIATIVE);
+        map.nextFloor();
+        
+        for (int i = 0; i < 20 && map.getFloor() == 1 && map.getActor() != null; i++) {
+            EntityView actor = map.getActor();
+            assertEquals("Only Players should wait for input", EntityKind.PLAYER, actor.getKind());
+            
+            for (EntityView player : map.getPlayerViews()) {
+                if (player.getID() != actor.getID()) {
+                    Set<Position> moves = map.possibleMovesForCharacter(player.getPOS());
+                    if (!moves.isEmpty()) {
+                        assertNull("Players should wait for their turn",
+                                map.processAction(player.getPOS(), moves.iterator().next()));
+                    }
+                }
+            }
+            
+            map.endTurn();
+        }
+    }
+    
+    @Test
+    public void test_initiative_beforeFirstFloor() {
+        Map map = new Map(30, 20, 1L);
+        map.setTurnMode(Map.TurnMode.INITIATIVE);
+        assertTrue("Nothing should act before the first floor", map.endTurn().isEmpty());
+        assertNull("No Player should have a turn before the first floor", map.getActor());
+        
+        map.nextFloor();
+        assertNotNull("A Player should have the first turn", map.getActor());
+    }
+    
+    @Test
+    public void test_initiative_turnsCountRounds() {
+        Map map = new Map(30, 30, 3L);
+        map.setLegacyLogging(false);
+        map.setTurnMode(Map.TurnMode.INITIATIVE);
+        map.nextFloor();
+        
+        // every Player acts several times a round
+        int ended = 0;
+        for (; ended < 30 && map.getFloor() == 1 && map.getActor() != null; ended++) {
+            map.endTurn();
+        }
+        assertTrue("Turns should pass once per round, not per Player turn: "
+                + map.getTurnNumber() + " turns in " + ended + " Player turns",
+                map.getTurnNumber() <= ended / Math.max(1, map.getPlayerViews().size()));
+    }
+    
+    @Test
+    public void test_fork_independent() {
+        Map map = new Map(30, 20, 7);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(10);
+        EntityView player = map.getPlayerViews().get(0);
+        String start = describe(map);
+        
+        Map fork = map.fork();
+        assertEquals("A fork should start identical", start, describe(fork));
+        assertEquals("A fork should continue the version", map.getVersion(), fork.getVersion());
+        
+        for (int i = 0; i < 10 && !fork.getPlayerViews().isEmpty(); i++) {
+            fork.endTurn();
+        }
+        assertNotEquals("The fork should have changed", start, describe(fork));
+        assertEquals("Changes to a fork should not reach the Map", start, describe(map));
+        
+        String forked = describe(fork);
+        Map twin = map.fork();
+        map.endTurn();
+        twin.endTurn();
+        assertEquals("Changes to the Map should not reach a fork", forked, describe(fork));
+        assertEquals("Forks should play out the same as the Map", describe(map), describe(twin));
+        if (!map.getPlayers().isEmpty()) {
+            assertEquals("Views should stay live after a fork",
+                    map.getPlayers().get(0).getPOS(), player.getPOS());
+        }
+    }
+    
+    @Test
+    public void test_rewindTo_replaysExactly() {
+        Map map = new Map(30, 20, 11);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(6);
+        
+        // a brain that cannot be replayed, as it is random
+        map.setEnemyBrain(map.getEnemyViews().get(0).getID(), (m, enemy) -> {
+            List<Position> moves = new ArrayList<>(m.possibleMovesForEnemy(enemy.getPOS()));
+            return moves.get(java.util.concurrent.ThreadLocalRandom.current().nextInt(moves.size()));
+        });
+        
+        List<String> states = new ArrayList<>();
+        java.util.Random rand = new java.util.Random(11);
+        int start = map.getCommandCount();
+        states.add(describe(map));
+        for (int turn = 0; turn < 40 && map.getFloor() == 1 && !map.getPlayerViews().isEmpty(); turn++) {
+            for (EntityView player : map.getPlayerViews().toArray(new EntityView[0])) {
+                List<Position> moves = new ArrayList<>(map.possibleMovesForCharacter(player.getPOS()));
+                moves.removeIf(pos -> map.entityKindAt(pos) == EntityKind.STAIRS);
+                moves.sort(java.util.Comparator.comparingInt((Position pos) -> pos.x).thenComparingInt(pos -> pos.y));
+                if (!moves.isEmpty() && map.processAction(player.getPOS(), moves.get(rand.nextInt(moves.size()))) != null) {
+                    states.add(describe(map));
+                }
+            }
+            map.endTurn();
+            states.add(describe(map));
+        }
+        
+        int end = map.getCommandCount();
+        assertEquals("Every command should be counted", states.size() - 1, end - start);
+        assertTrue("Commands should take a few bytes each", map.getCommandBytes() < 8 * end);
+        
+        for (int index : new int[] { end - 1, start + 5, end, start, start + 33 }) {
+            if (index <= map.getCommandCount()) {
+                map.rewindTo(index);
+                assertEquals("Rewinding should restore command " + index,
+                        states.get(index - start), describe(map));
+                assertEquals("Later commands should be forgotten", index, map.getCommandCount());
+            }
+        }
+        
+        List<MapChange> changes = new ArrayList<>();
+        map.addChangeListener(changes::add);
+        long version = map.getVersion();
+        map.rewindTo(start);
+        assertEquals("Listeners should hear of rewinds", MapChange.Type.REWIND, changes.get(0).type);
+        assertNull("Changes before a rewind should be forgotten", map.changesSince(version - 1));
+    }
+    
+    @Test
+    public void test_processActions_matchesOneAtATime() {
+        Map map = new Map(30, 20, 13);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        Map single = map.fork();
+        Map batch = map.fork();
+        
+        List<Action> actions = new ArrayList<>();
+        List<Turn> expected = new ArrayList<>();
+        for (int round = 0; round < 2; round++) {
+            for (EntityView player : single.getPlayerViews()) {
+                List<Position> moves = new ArrayList<>(single.possibleMovesForCharacter(player.getPOS()));
+                moves.removeIf(pos -> single.entityKindAt(pos) == EntityKind.STAIRS);
+                moves.sort(java.util.Comparator.comparingInt((Position pos) -> pos.x).thenComparingInt(pos -> pos.y));
+                Action action = new Action(player.getPOS(),
+                        moves.isEmpty() ? player.getPOS() : moves.get(moves.size() / 2));
+                actions.add(action);
+                expected.add(single.processAction(action.start, action.end));
+            }
+        }
+        actions.add(new Action(new Position(-1, -1), new Position(0, 0)));
+        expected.add(null);
+        
+        List<Turn> turns = batch.processActions(actions);
+        assertEquals("Every action should have a result", actions.size(), turns.size());
+        for (int i = 0; i < turns.size(); i++) {
+            assertEquals("Batches should accept the same actions", expected.get(i) == null, turns.get(i) == null);
+        }
+        assertEquals("Batches should end in the same state", describe(single), describe(batch));
+    }
+
+    @Test
+    public void test_seed_identicalGames() {
+        List<String> games = new ArrayList<>();
+        for (long seed : new long[] { 17, 17, 18 }) {
+            Map map = new Map(30, 20, seed);
+            map.setLegacyLogging(false);
+            StringBuilder game = new StringBuilder(describe(map));
+
+            // every kind of floor, with a few scripted turns on each
+            for (int floor = 1; floor <= 10; floor++) {
+                map.nextFloor();
+                map.addEnemies(3);
+                game.append(describe(map));
+                for (int turn = 0; turn < 3 && !map.getPlayerViews().isEmpty(); turn++) {
+                    for (EntityView player : map.getPlayerViews().toArray(new EntityView[0])) {
+                        List<Position> moves = new ArrayList<>(map.possibleMovesForCharacter(player.getPOS()));
+                        moves.removeIf(pos -> map.entityKindAt(pos) == EntityKind.STAIRS);
+                        moves.sort(java.util.Comparator.comparingInt((Position pos) -> pos.x).thenComparingInt(pos -> pos.y));
+                        if (!moves.isEmpty()) {
+                            map.processAction(player.getPOS(), moves.get(0));
+                        }
+                    }
+                    map.endTurn();
+                    game.append(describe(map));
+                }
+            }
+            games.add(game.toString());
+        }
+
+        assertEquals("Maps with the same seed should play the same game", games.get(0), games.get(1));
+        assertNotEquals("Maps with other seeds should play other games", games.get(0), games.get(2));
+    }
+
+    @Test
+    public void test_influence_followsCharacters() {
+        Map map = new Map(30, 20, 19);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(8);
+        Map fork = map.fork();
+        String forked = influence(fork);
+
+        // long enough for the threat to be rescaled
+        for (int i = 0; i < 30 && !map.getPlayerViews().isEmpty(); i++) {
+            map.endTurn();
+        }
+
+        // an Enemy adds 3 on its tile, and one less for every step away
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                Position p = new Position(x, y);
+                int expected = 0;
+                for (EntityView enemy : map.getEnemyViews()) {
+                    expected += Math.max(0, 3 - enemy.getPOS().distanceTo(p));
+                }
+                assertEquals("Crowding should follow the Enemies", expected, map.crowdingAt(p));
+            }
+        }
+        for (EntityView player : map.getPlayerViews()) {
+            double threat = map.threatAt(player.getPOS());
+            assertTrue("Players should be a threat where they stand", threat > 0 && threat < 10);
+        }
+        assertEquals("Changes to the Map should not reach a fork", forked, influence(fork));
+    }
+
+    @Test
+    public void test_dormant_farEnemiesStep() {
+        Map map = new Map(60, 60, 23);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(60);
+        map.setWakeRadius(10);
+        map.setDormantInterval(2);
+
+        for (int turn = 0; turn < 6 && map.getFloor() == 1 && !map.getPlayerViews().isEmpty(); turn++) {
+            List<Position> players = map.getPlayerViews().stream()
+                    .map(EntityView::getPOS).collect(Collectors.toList());
+            java.util.Map<Integer, Position> far = new java.util.HashMap<>();
+            for (EntityView enemy : map.getEnemyViews()) {
+                if (players.stream().allMatch(pos -> pos.distanceTo(enemy.getPOS()) > 10)) {
+                    far.put(enemy.getID(), enemy.getPOS());
+                }
+            }
+
+            map.endTurn();
+            for (EntityView enemy : map.getEnemyViews()) {
+                Position before = far.get(enemy.getID());
+                if (before != null) {
+                    assertTrue("Dormant Enemies should step at most one tile",
+                            before.distanceTo(enemy.getPOS()) <= 1);
+                }
+            }
+        }
+        assertTrue("Far Enemies should be dormant", map.getStatistics().getDormantEnemyTurns() > 0);
+
+        Map awake = new Map(60, 60, 23);
+        awake.setLegacyLogging(false);
+        awake.setWakeRadius(Integer.MAX_VALUE);
+        awake.nextFloor();
+        awake.addEnemies(60);
+        awake.endTurn();
+        assertEquals("No Enemy should be dormant with an unbounded radius",
+                0, awake.getStatistics().getDormantEnemyTurns());
+    }
+
+    /** @return The crowding and threat of every tile of a Map, for comparisons. */
+    private static String influence(Map map) {
+        StringBuilder sb = new StringBuilder();
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                Position p = new Position(x, y);
+                sb.append(map.crowdingAt(p)).append('/').append(map.threatAt(p)).append(',');
+            }
+        }
+        return sb.toString();
+    }
+    
+    /** @return Everything visible about a Map, for comparisons. */
+    private static String describe(Map map) {
+        StringBuilder sb = new StringBuilder();
+        for (int x = 0; x < map.getWidth(); x++) {
+            for (int y = 0; y < map.getHeight(); y++) {
+                Position p = new Position(x, y);
+                sb.append(map.entityKindAt(p)).append(map.visibilityAt(p));
+            }
+        }
+        for (EntityView entity : map.getPlayerViews()) {
+            sb.append(entity.getID()).append(entity.getPOS()).append(entity.getHP())
+                    .append(entity.getATK()).append(entity.getLVL());
+        }
+        for (EntityView entity : map.getEnemyViews()) {
+            sb.append(entity.getID()).append(entity.getPOS()).append(entity.getHP())
+                    .append(entity.getATK()).append(entity.getLVL());
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,59 @@
+package Tests;
+
+import Model.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloBrainTest {
+    @Test
+    public void test_decide_possibleMoves() throws InterruptedException {
+        MonteCarloBrain brain = new MonteCarloBrain(2, 2);
+        int decided = 0;
+        
+        for (long seed = 0; seed < 10; seed++) {
+            Map map = new Map(30, 20, seed);
+            map.setLegacyLogging(false);
+            map.nextFloor();
+            map.addEnemies(8);
+            
+            for (EntityView enemy : map.getEnemyViews()) {
+                Position move = brain.decide(map, enemy);
+                if (move != null) {
+                    decided++;
+                    assertTrue("Moves should be possible moves",
+                            map.possibleMovesForEnemy(enemy.getPOS()).contains(move));
+                }
+            }
+        }
+        
+        if (decided > 0) {
+            assertTrue("Decisions should run playouts", brain.getPlayouts() > 0);
+            assertTrue("Playouts should be timed", brain.getPlayoutsPerSecond() > 0);
+        }
+    }
+    
+    @Test
+    public void test_endTurn_withinBudget() {
+        Map map = new Map(30, 20, 5);
+        map.setLegacyLogging(false);
+        map.nextFloor();
+        map.addEnemies(8);
+        map.setEnemyBrain(new MonteCarloBrain(5, 2));
+        map.setDecisionDeadline(1_000);
+        
+        for (int i = 0; i < 10 && !map.getPlayerViews().isEmpty() && map.getFloor() == 1; i++) {
+            long start = System.nanoTime();
+            map.endTurn();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("Enemy phases should keep to the budget, took " + millis, millis < 500);
+        }
+        
+        // decisions planned at the start of the phase may still fall back
+        // when an earlier Enemy takes their cell, so only timing is checked
+        Histogram times = map.getStatistics().getDecisionTimes().get("mcts");
+        assertNotNull("Decisions should be made in time", times);
+        assertTrue("Decisions should keep to the budget, took " + times.getMaxMicros() + " us",
+                times.getMaxMicros() < 200_000);
+    }
+}
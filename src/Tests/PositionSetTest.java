@@ -0,0 +1,90 @@
+package Tests;
+
+import Model.Position;
+import Model.PositionIntMap;
+import Model.PositionSet;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PositionSetTest {
+    @Test
+    public void test_positionSet_matchesHashSet() {
+        PositionSet set = new PositionSet();
+        Set<Position> expected = new HashSet<>();
+        Random rand = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            Position pos = new Position(rand.nextInt(60) - 30, rand.nextInt(60) - 30);
+            if (rand.nextInt(3) == 0) {
+                assertEquals("Removing should match a HashSet", expected.remove(pos), set.remove(pos));
+            }
+            else {
+                assertEquals("Adding should match a HashSet", expected.add(pos), set.add(pos));
+            }
+        }
+        assertEquals("PositionSet should hold the same Positions", expected, set);
+        assertEquals("PositionSet should hash like other Sets", expected.hashCode(), set.hashCode());
+        assertTrue("Lookups by coordinates should match", set.contains(
+                expected.iterator().next().x, expected.iterator().next().y));
+    }
+
+    @Test
+    public void test_positionSet_extremeCoordinates() {
+        PositionSet set = new PositionSet();
+        Position[] positions = {
+                new Position(Integer.MIN_VALUE, 0), new Position(0, Integer.MIN_VALUE),
+                new Position(Integer.MAX_VALUE, -1), new Position(-1, -1), Position.ORIGIN
+        };
+        for (Position pos : positions) {
+            assertTrue("Every coordinate should fit", set.add(pos));
+        }
+        for (Position pos : positions) {
+            assertTrue("Every coordinate should be found", set.contains(pos));
+        }
+        assertEquals("No Positions should collide", positions.length, set.size());
+    }
+
+    @Test
+    public void test_positionSet_iteratorRemove() {
+        PositionSet set = new PositionSet();
+        for (int x = 0; x < 10; x++) {
+            set.add(x, x);
+        }
+        set.removeIf(pos -> pos.x % 2 == 0);
+        assertEquals("Removing while iterating should remove", 5, set.size());
+
+        Iterator<Position> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            assertEquals("Only odd Positions should remain", 1, iterator.next().x % 2);
+        }
+    }
+
+    @Test
+    public void test_positionIntMap_matchesHashMap() {
+        PositionIntMap map = new PositionIntMap();
+        HashMap<Position, Integer> expected = new HashMap<>();
+        Random rand = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            Position pos = new Position(rand.nextInt(40), rand.nextInt(40));
+            if (rand.nextInt(4) == 0) {
+                assertEquals("Removing should match a HashMap", expected.remove(pos), map.remove(pos));
+            }
+            else {
+                int value = rand.nextInt();
+                assertEquals("Putting should match a HashMap", expected.put(pos, value), map.put(pos, value));
+            }
+        }
+        assertEquals("PositionIntMap should hold the same entries", expected, map);
+
+        Position any = expected.keySet().iterator().next();
+        assertEquals("Lookups by coordinates should match",
+                (int) expected.get(any), map.get(any.x, any.y, -1));
+        assertEquals("Missing keys should give the missing value", -1, map.get(100, 100, -1));
+    }
+}
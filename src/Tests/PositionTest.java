@@ -1,5 +1,7 @@
 package Tests;
 
+import Model.Map;
+import Model.PackedPosition;
 import Model.Position;
 import org.junit.Test;
 
@@ -83,4 +85,45 @@ public class PositionTest {
         Position pos1 = new Position(-6, 7);
         assertEquals("toString of (-6,7)", "P(-6,7)", pos1.toString());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void test_of_interned() {
+        assertSame("Positions on a Map should be shared", Position.of(3, 4), Position.of(3, 4));
+        assertEquals("Shared Positions should equal new ones", new Position(3, 4), Position.of(3, 4));
+        assertEquals("Positions outside the cache should still be created", new Position(-2, 9000), Position.of(-2, 9000));
+    }
+    
+    @Test
+    public void test_of_coversLargeMaps() {
+        new Map(700, 20);
+        assertSame("Positions on a large Map should be shared", Position.of(650, 10), Position.of(650, 10));
+        assertSame("Positions shared before should stay shared", Position.of(3, 4), Position.of(3, 4));
+    }
+    
+    @Test
+    public void test_packed_roundTrip() {
+        int[][] coordinates = { {0, 0}, {-1, -1}, {5, -7}, {PackedPosition.MIN, PackedPosition.MAX}, {PackedPosition.MAX, PackedPosition.MIN} };
+        for (int[] c : coordinates) {
+            int packed = PackedPosition.pack(c[0], c[1]);
+            assertEquals("Packing should keep x", c[0], PackedPosition.x(packed));
+            assertEquals("Packing should keep y", c[1], PackedPosition.y(packed));
+        }
+        assertEquals("NONE should pack Position.NONE", Position.NONE, PackedPosition.toPosition(PackedPosition.NONE));
+    }
+    
+    @Test
+    public void test_packed_matchesPosition() {
+        Position pos = new Position(4, -3);
+        int packed = PackedPosition.pack(pos);
+        Position[] adjacent = pos.adjacentPositions();
+        for (int i = 0; i < PackedPosition.NEIGHBOURS; i++) {
+            assertEquals("Neighbours should match adjacentPositions()", adjacent[i],
+                    PackedPosition.toPosition(PackedPosition.neighbour(packed, i)));
+        }
+        Position other = new Position(-6, 10);
+        assertEquals("Distance should match distanceTo()", pos.distanceTo(other),
+                PackedPosition.distance(packed, PackedPosition.pack(other)));
+        assertTrue("Positions inside an area should be in bounds", PackedPosition.inBounds(PackedPosition.pack(2, 3), 5, 4));
+        assertFalse("Negative coordinates should be out of bounds", PackedPosition.inBounds(packed, 10, 10));
+    }
+}
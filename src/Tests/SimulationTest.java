@@ -0,0 +1,52 @@
+package Tests;
+
+import Model.*;
+import Simulation.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimulationTest {
+    @Test
+    public void test_run_sameSeedSameOutcome() {
+        SimulationRunner runner = new SimulationRunner(new GreedyBot());
+        runner.setMaxTurns(60);
+
+        SimulationReport first = runner.run(24, 7);
+        SimulationReport second = runner.run(24, 7);
+
+        assertEquals("Every game should be played", 24, first.getGames());
+        assertEquals("Survival should repeat", first.getSurvivalRate(), second.getSurvivalRate(), 0);
+        assertEquals("Turns should repeat", first.getMeanTurns(), second.getMeanTurns(), 0);
+        assertEquals("Floors should repeat", first.getMeanFloor(), second.getMeanFloor(), 0);
+        assertEquals("Damage dealt should repeat",
+                first.getMeanDamageDealt(), second.getMeanDamageDealt(), 0);
+        assertEquals("Damage taken should repeat",
+                first.getMeanDamageTaken(), second.getMeanDamageTaken(), 0);
+        assertEquals("Every turn should be timed",
+                first.getMeanTurns() * first.getGames(), first.getLatency().getCount(), 0);
+    }
+
+    @Test
+    public void test_run_strongerEnemiesHurtMore() {
+        SimulationRunner runner = new SimulationRunner(new GreedyBot());
+        runner.setMaxTurns(60);
+        SimulationReport normal = runner.run(24, 11);
+        runner.setDifficulty(Difficulty.NORMAL.withStrength(4));
+        SimulationReport hard = runner.run(24, 11);
+
+        assertTrue("Stronger Enemies should end games sooner",
+                hard.getMeanTurns() < normal.getMeanTurns());
+        assertTrue("Stronger Enemies should stop the Players higher up",
+                hard.getMeanFloor() <= normal.getMeanFloor());
+    }
+
+    @Test
+    public void test_difficulty_rejectsNoStrength() {
+        try {
+            Difficulty.NORMAL.withStrength(0);
+            fail("A Difficulty without strength should be rejected");
+        }
+        catch (IllegalArgumentException expected) { }
+    }
+}
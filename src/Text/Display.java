@@ -19,12 +19,12 @@ public class Display {
      */
     public void printMap(Map map, Set<Position> highlight) {
 
-        Entity[][] grid = map.getGrid();
-        Entity entities;
+        GridView grid = map.view();
+        EntityKind entities;
 
 	System.out.println("");
         System.out.print(" ");
-        for (int i = 0; i < grid[0].length; i++) {
+        for (int i = 0; i < grid.getHeight(); i++) {
             if (i >= 0 && i < 11) {
                 System.out.print("  " + i + " ");
             } else {
@@ -33,7 +33,7 @@ public class Display {
         }
 
 
-        for (int i = 0; i < grid.length; i++) {
+        for (int i = 0; i < grid.getWidth(); i++) {
             System.out.println();
             if (i >= 0 && i < 10) {
                 System.out.print("0" + i + " ");
@@ -42,23 +42,23 @@ public class Display {
             }
 
 
-            for (int j = 0; j < grid[i].length; j++) {
+            for (int j = 0; j < grid.getHeight(); j++) {
 
 
                 Position position = new Position(i, j);
-                entities = grid[i][j];
+                entities = grid.kindAt(i, j);
 
                 if (highlight.contains(position)) {
 
 
-                    if (entities == null) {
+                    if (entities == EntityKind.EMPTY) {
                         System.out.print("[ ] ");
-                    } else if (entities instanceof Player) {
+                    } else if (entities == EntityKind.PLAYER) {
                         System.out.print("[x] ");
 
-                    } else if (entities instanceof Enemy) {
+                    } else if (entities == EntityKind.ENEMY) {
                         System.out.print("[O] ");
-                    } else if (entities instanceof Stairs) {
+                    } else if (entities == EntityKind.STAIRS) {
                         System.out.print("[<] ");
                     } else {
                         System.out.print("#   ");
@@ -67,14 +67,14 @@ public class Display {
 
 
                 } else {
-                    if (entities == null) {
+                    if (entities == EntityKind.EMPTY) {
                         System.out.print("    ");
-                    } else if (entities instanceof Player) {
+                    } else if (entities == EntityKind.PLAYER) {
                         System.out.print("x   ");
 
-                    } else if (entities instanceof Enemy) {
+                    } else if (entities == EntityKind.ENEMY) {
                         System.out.print("O   ");
-                    } else if (entities instanceof Stairs) {
+                    } else if (entities == EntityKind.STAIRS) {
                         System.out.print("<   ");
                     } else {
                         System.out.print("#   ");
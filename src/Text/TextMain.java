@@ -12,7 +12,7 @@ public class TextMain {
 	private static Map map = new Map(10,15);
 	private static Display display = new Display();
 	private static UserInput input = new UserInput();
-	private static List<Player> playable = map.getPlayers();
+	private static List<EntityView> playable = map.getPlayerViews();
 
 	/**
 	 * main() method is used to execute the implementation of UserInput, Display, and some logic of the project
@@ -21,27 +21,14 @@ public class TextMain {
 		//Instantiates the floor level for the game
 		map.nextFloor();
 		
-		//Direct Map logs to the output
-		Map.logHandler = System.out::println;
+		//Direct Map events to the output
+		map.setLegacyLogging(false);
+		map.events().subscribe(event -> System.out.println(event.message));
 
 		//Loop is used to maintain the game flow as long as the User wants or if the game is completed
 		while (true) {
-			//Setting a player's position from the map
-			for (Player userChar: playable) {
-				Entity[][] grid = map.getGrid();
-				for (int i = 0; i < grid.length; i++) {
-					for (int j = 0; j < grid[i].length; j++) {
-						Entity entity = grid[i][j];
-						if (entity instanceof Player) {
-							if (entity.getmaxHP() == userChar.getmaxHP() && entity.getHP() == userChar.getHP()) {
-								userChar.setPOS(new Position(i,j));
-								i = grid.length;
-								break;
-							}
-						}
-					}
-				}
-
+			//Player views are live, so their positions are always current
+			for (EntityView userChar: playable) {
 				//Displaying the map indicating one character and prompting for input
 				display.printMap(map, map.possibleMovesForCharacter(userChar.getPOS()));
 				System.out.println("Floor: " + map.getFloor() + " " + map.getType());
@@ -50,14 +37,13 @@ public class TextMain {
 
 				//Saving messages into the game's log
 				if (move != null) {
-					map.logMessage("Character moved to: " + move);
+					map.events().post("Character moved to: " + move);
 					
 				} else {
-					map.logMessage("Character has passed their move");
+					map.events().post("Character has passed their move");
 				}
 				
 			}
-			playable = map.getPlayers();
 
 			if (playable.isEmpty()) {
 				System.out.println("");